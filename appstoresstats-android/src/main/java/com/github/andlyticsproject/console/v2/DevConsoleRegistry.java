@@ -1,11 +1,66 @@
 package com.github.andlyticsproject.console.v2;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of logged in {@link DevConsoleV2} instances by account, so the
+ * session cookies and the connection pool of an account are reused between
+ * calls instead of logging in again every time.
+ *
+ * A console is handed out with {@link #acquire(String, String, HttpClientSource)}
+ * and given back with {@link #release(DevConsoleV2)}. Sessions are dropped
+ * when they have not been used for the idle timeout, when they reach the
+ * maximum age or when their cookies expire; the HTTP client of a dropped
+ * console is given back to its {@link HttpClientSource} once nobody is using
+ * it. A session is only reused by callers with an equal source and the same
+ * {@link SessionStore}, others get a new session in its place.
+ */
 public class DevConsoleRegistry {
 
+	private static final Logger logger = LoggerFactory.getLogger(DevConsoleRegistry.class);
+
+	public static final long DEFAULT_IDLE_TIMEOUT = 15 * 60 * 1000;
+	public static final long DEFAULT_MAX_AGE = 2 * 60 * 60 * 1000;
+	// how often idle sessions are looked for
+	private static final long EVICTION_PERIOD = 60 * 1000;
+
+	/**
+	 * Creates the HTTP client of a new session. Sources that create the same
+	 * kind of client over the same connections should be equal, so they
+	 * share the sessions
+	 */
+	public interface HttpClientSource {
+		DefaultHttpClient createHttpClient();
+
+		/**
+		 * Called once the session of the client is dropped and unused, to
+		 * close the connections only the client uses
+		 */
+		void releaseHttpClient(DefaultHttpClient httpClient);
+	}
+
 	private Map<String, DevConsoleV2> registry = new HashMap<String, DevConsoleV2>();
+	// every console handed out and not closed yet, including dropped ones
+	// still in use
+	private Map<DevConsoleV2, Session> sessions = new IdentityHashMap<DevConsoleV2, Session>();
+
+	private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	private long maxAge = DEFAULT_MAX_AGE;
+
+	private ScheduledExecutorService evictor;
 
 	private static DevConsoleRegistry instance = new DevConsoleRegistry();
 
@@ -16,9 +71,215 @@ public class DevConsoleRegistry {
 		return instance;
 	}
 
+	/**
+	 * Registers a console built elsewhere, its HTTP client is not shut down
+	 * by the registry
+	 */
 	public synchronized void put(String accountName, DevConsoleV2 devConsole) {
+		drop(accountName);
 		registry.put(accountName, devConsole);
+		sessions.put(devConsole, new Session(accountName, null, null, null, null,
+				System.currentTimeMillis()));
+	}
+
+	/**
+	 * @return the cached console of the account, or a new one with a client
+	 *         of the source. The caller must {@link #release(DevConsoleV2)} it
+	 */
+	public synchronized DevConsoleV2 acquire(String accountName, String password,
+			HttpClientSource source) {
+		return acquire(accountName, password, source, null);
+	}
+
+	/**
+	 * Same as {@link #acquire(String, String, HttpClientSource)}, a new
+	 * session starts from the one saved in the store if there is any
+	 *
+	 * @param sessionStore
+	 *            null to always log in
+	 */
+	public synchronized DevConsoleV2 acquire(String accountName, String password,
+			HttpClientSource source, SessionStore sessionStore) {
+		long now = System.currentTimeMillis();
+		DevConsoleV2 console = registry.get(accountName);
+		if (console != null) {
+			Session session = sessions.get(console);
+			if (session.isUsable(console, password, now) && session.isFrom(source, sessionStore)) {
+				session.users++;
+				session.lastUsed = now;
+				return console;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("acquire() - {}", "Session expired for " + accountName); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			drop(accountName);
+		}
+
+		DefaultHttpClient httpClient = source.createHttpClient();
+		console = sessionStore == null ? DevConsoleV2.createForAccountAndPassword(accountName,
+				password, httpClient) : DevConsoleV2.createForAccountAndPassword(accountName,
+				password, httpClient, sessionStore);
+		Session session = new Session(accountName, password, source, sessionStore, httpClient,
+				now);
+		session.users++;
+		registry.put(accountName, console);
+		sessions.put(console, session);
+		startEvictor();
+		return console;
+	}
+
+	/**
+	 * Gives back a console of {@link #acquire(String, String, HttpClientSource)}
+	 */
+	public synchronized void release(DevConsoleV2 console) {
+		Session session = sessions.get(console);
+		if (session == null) {
+			return;
+		}
+		session.users--;
+		session.lastUsed = System.currentTimeMillis();
+		if (session.users == 0 && registry.get(session.accountName) != console) {
+			// dropped while in use
+			close(console, session);
+		}
+	}
+
+	/**
+	 * Drops the session of the account, for instance after a password change
+	 */
+	public synchronized void invalidate(String accountName) {
+		drop(accountName);
+	}
+
+	/**
+	 * Drops the sessions unused for the idle timeout or too old
+	 */
+	public synchronized void evictIdle() {
+		long now = System.currentTimeMillis();
+		List<String> expired = new ArrayList<String>();
+		for (Map.Entry<String, DevConsoleV2> entry : registry.entrySet()) {
+			Session session = sessions.get(entry.getValue());
+			if (session.users == 0 && !session.isUsable(entry.getValue(), session.password, now)) {
+				expired.add(entry.getKey());
+			}
+		}
+		for (String accountName : expired) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("evictIdle() - {}", "Evicting session of " + accountName); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			drop(accountName);
+		}
+		if (sessions.isEmpty() && evictor != null) {
+			evictor.shutdown();
+			evictor = null;
+		}
 	}
 
-	
+	/**
+	 * Drops every session, the ones in use are closed when released
+	 */
+	public synchronized void clear() {
+		for (String accountName : new ArrayList<String>(registry.keySet())) {
+			drop(accountName);
+		}
+	}
+
+	public synchronized void setIdleTimeout(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public synchronized void setMaxAge(long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	public synchronized int size() {
+		return registry.size();
+	}
+
+	private void drop(String accountName) {
+		DevConsoleV2 console = registry.remove(accountName);
+		if (console == null) {
+			return;
+		}
+		Session session = sessions.get(console);
+		if (session.users == 0) {
+			close(console, session);
+		}
+	}
+
+	private void close(DevConsoleV2 console, Session session) {
+		sessions.remove(console);
+		if (session.httpClient != null) {
+			session.source.releaseHttpClient(session.httpClient);
+		}
+	}
+
+	private void startEvictor() {
+		if (evictor != null) {
+			return;
+		}
+		evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "devconsole-registry-evictor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		evictor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					evictIdle();
+				} catch (RuntimeException e) {
+					logger.error("run() - Error evicting sessions", e); //$NON-NLS-1$
+				}
+			}
+		}, EVICTION_PERIOD, EVICTION_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	private class Session {
+		final String accountName;
+		final String password;
+		// null for consoles registered with put
+		final HttpClientSource source;
+		final SessionStore sessionStore;
+		final DefaultHttpClient httpClient;
+		final long created;
+		long lastUsed;
+		int users;
+
+		Session(String accountName, String password, HttpClientSource source,
+				SessionStore sessionStore, DefaultHttpClient httpClient, long created) {
+			this.accountName = accountName;
+			this.password = password;
+			this.source = source;
+			this.sessionStore = sessionStore;
+			this.httpClient = httpClient;
+			this.created = created;
+			this.lastUsed = created;
+		}
+
+		boolean isUsable(DevConsoleV2 console, String password, long now) {
+			if (this.password != null && !this.password.equals(password)) {
+				return false;
+			}
+			if (users == 0 && now - lastUsed > idleTimeout) {
+				return false;
+			}
+			if (now - created > maxAge) {
+				return false;
+			}
+			SessionCredentials credentials = console.getSessionCredentials();
+			Date expiryDate = credentials == null ? null : credentials.getExpiryDate();
+			return expiryDate == null || expiryDate.getTime() > now;
+		}
+
+		/**
+		 * @return true if the session has the connections and the store the
+		 *         caller asked for, consoles registered with put suit anyone
+		 */
+		boolean isFrom(HttpClientSource source, SessionStore sessionStore) {
+			return this.source == null
+					|| (this.source.equals(source) && this.sessionStore == sessionStore);
+		}
+	}
 }
@@ -1,10 +1,27 @@
 package com.github.andlyticsproject.console.v2;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
@@ -13,17 +30,22 @@ import org.apache.http.cookie.Cookie;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.andlyticsproject.console.AuthenticationException;
 import com.github.andlyticsproject.console.DevConsole;
 import com.github.andlyticsproject.console.DevConsoleException;
+import com.github.andlyticsproject.console.DevConsoleProtocolException;
 import com.github.andlyticsproject.console.NetworkException;
 import com.github.andlyticsproject.model.AppInfo;
 import com.github.andlyticsproject.model.AppStats;
 import com.github.andlyticsproject.model.Comment;
 import com.github.andlyticsproject.model.DeveloperConsoleAccount;
+import com.github.andlyticsproject.model.TimeSeries;
+
+import es.arcadiaconsulting.appstoresstats.common.SingleFlight;
 //import org.apache.http.HttpEntity;
 //import org.apache.http.HttpResponse;
 //import org.apache.http.client.ClientProtocolException;
@@ -53,6 +75,33 @@ public class DevConsoleV2 implements DevConsole {
 	 */
 	private static final Logger logger = LoggerFactory.getLogger(DevConsoleV2.class);
 
+	// shared by all the consoles, requests of different developer accounts run in parallel
+	private static final ExecutorService executor = Executors
+			.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "devconsole-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	// read requests being sent by any console, by account and request
+	private static final SingleFlight<String, Object> requestsInFlight = new SingleFlight<String, Object>();
+
+	// statistics and ratings requests of one refresh waiting for a response at the same time
+	public static final int MAX_REQUESTS_IN_FLIGHT = 8;
+
+	// a getCombinedStats request takes a single stats type, one request per timeline
+	private static final int[] FULL_QUERY_STATS_TYPES = {
+			DevConsoleV2Protocol.STATS_TYPE_ACTIVE_DEVICE_INSTALLS,
+			DevConsoleV2Protocol.STATS_TYPE_TOTAL_USER_INSTALLS,
+			DevConsoleV2Protocol.STATS_TYPE_DAILY_DEVICE_INSTALLS };
+
+	// stands for the ratings request among the statistics types
+	private static final int RATINGS = -1;
+
 	// 30 seconds -- for both socket and connection
 	public static final int TIMEOUT = 30 * 1000;
 
@@ -64,6 +113,10 @@ public class DevConsoleV2 implements DevConsole {
 	private DevConsoleAuthenticator authenticator;
 	private String accountName;
 	private DevConsoleV2Protocol protocol;
+	// serializes logins only, requests run concurrently
+	private final Object authLock = new Object();
+	// null if sessions are not kept between runs
+	private SessionStore sessionStore;
 
 	private ResponseHandler<String> responseHandler = HttpClientFactory.createResponseHandler();
 	//private ResponseHandler<byte[]> responseHandler = new ResponseHandler<byte[]>();
@@ -78,6 +131,30 @@ public class DevConsoleV2 implements DevConsole {
 		return new DevConsoleV2(httpClient, authenticator, new DevConsoleV2Protocol());
 	}
 
+	/**
+	 * Same as {@link #createForAccountAndPassword(String, String, DefaultHttpClient)}
+	 * starting from the session saved in the store, if any. The saved session
+	 * is only checked when the console rejects it, then the console logs in
+	 * again and every new session is saved.
+	 */
+	public static DevConsoleV2 createForAccountAndPassword(String accountName, String password,
+			DefaultHttpClient httpClient, SessionStore sessionStore) {
+		DevConsoleV2 console = createForAccountAndPassword(accountName, password, httpClient);
+		console.sessionStore = sessionStore;
+		SessionCredentials saved = sessionStore.load(accountName);
+		if (saved != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("createForAccountAndPassword() - {}", "Reusing saved session for " + accountName); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			CookieStore cookieStore = httpClient.getCookieStore();
+			for (Cookie cookie : saved.getCookies()) {
+				cookieStore.addCookie(cookie);
+			}
+			console.protocol.setSessionCredentials(saved);
+		}
+		return console;
+	}
+
 	private DevConsoleV2(DefaultHttpClient httpClient, DevConsoleAuthenticator authenticator,
 			DevConsoleV2Protocol protocol) {
 		this.httpClient = httpClient;
@@ -93,16 +170,18 @@ public class DevConsoleV2 implements DevConsole {
 	 * @return
 	 * @throws DevConsoleException
 	 */
-	public synchronized List<AppInfo> getAppInfo() throws DevConsoleException {
+	public List<AppInfo> getAppInfo() throws DevConsoleException {
+		SessionCredentials session = null;
 		try {
 			// the authenticator launched a sub-activity, bail out for now
-			if (!authenticateWithCachedCredentialas()) {
+			session = authenticateWithCachedCredentials();
+			if (session == null) {
 				return new ArrayList<AppInfo>();
 			}
 
 			return fetchAppInfosAndStatistics();
 		} catch (AuthenticationException ex) {
-			if (!authenticateFromScratch()) {
+			if (!authenticateFromScratch(session)) {
 				return new ArrayList<AppInfo>();
 			}
 
@@ -116,16 +195,18 @@ public class DevConsoleV2 implements DevConsole {
 	 * @return
 	 * @throws DevConsoleException
 	 */
-	public synchronized AppInfo getAppInfoFromFullQuery(String packageName) throws DevConsoleException {
+	public AppInfo getAppInfoFromFullQuery(String packageName) throws DevConsoleException {
+		SessionCredentials session = null;
 		try {
 			// the authenticator launched a sub-activity, bail out for now
-			if (!authenticateWithCachedCredentialas()) {
+			session = authenticateWithCachedCredentials();
+			if (session == null) {
 				return null;
 			}
 
 			return fetchAppInfoFromFullQuery(packageName);
 		} catch (AuthenticationException ex) {
-			if (!authenticateFromScratch()) {
+			if (!authenticateFromScratch(session)) {
 				return null;
 			}
 
@@ -139,16 +220,18 @@ public class DevConsoleV2 implements DevConsole {
 	 * @return
 	 * @throws DevConsoleException
 	 */
-	public synchronized AppInfo getAppInfoAndStatisticsFromFullQuery(String packageName) throws DevConsoleException {
+	public AppInfo getAppInfoAndStatisticsFromFullQuery(String packageName) throws DevConsoleException {
+		SessionCredentials session = null;
 		try {
 			// the authenticator launched a sub-activity, bail out for now
-			if (!authenticateWithCachedCredentialas()) {
+			session = authenticateWithCachedCredentials();
+			if (session == null) {
 				return null;
 			}
 
 			return fetchAppInfoAndStatisticsFromFullQuery(packageName);
 		} catch (AuthenticationException ex) {
-			if (!authenticateFromScratch()) {
+			if (!authenticateFromScratch(session)) {
 				return null;
 			}
 
@@ -160,10 +243,7 @@ public class DevConsoleV2 implements DevConsole {
 		
 		AppInfo app=fetchAppInfoFromFullQuery(packageName);
 		if(app!=null){
-				fetchStatistics(app, app.getLatestStats(), 4);
-				fetchRatings(app, app.getLatestStats());
-				
-				
+				fetchDetails(Collections.singletonList(app), FULL_QUERY_STATS_TYPES, true);
 		}
 		else
 		{
@@ -196,17 +276,11 @@ public class DevConsoleV2 implements DevConsole {
 		// Fetch a list of available apps
 		List<AppInfo> apps = fetchAppInfos();
 
-		for (AppInfo app : apps) {
-			// Fetch remaining app statistics
-			// Latest stats object, and active/total installs is fetched in fetchAppInfos
-			AppStats stats = app.getLatestStats();
-			
-			
-			 fetchRatings(app, stats);
-			 
-               //TODO: obtain locale fix implementation
-			//stats.setNumberOfComments(fetchCommentsCount(app, "es-Es"));
-		}
+		// Fetch remaining app statistics
+		// Latest stats object, and active/total installs is fetched in fetchAppInfos
+		fetchDetails(apps, new int[0], true);
+		//TODO: obtain locale fix implementation
+		//stats.setNumberOfComments(fetchCommentsCount(app, "es-Es"));
 
 		return apps;
 	}
@@ -221,17 +295,19 @@ public class DevConsoleV2 implements DevConsole {
 	 * @return
 	 * @throws DevConsoleException
 	 */
-	public synchronized List<Comment> getComments(String packageName,
+	public List<Comment> getComments(String packageName,
 			String developerId, int startIndex, int count, String displayLocale)
 			throws DevConsoleException {
+		SessionCredentials session = null;
 		try {
-			if (!authenticateWithCachedCredentialas()) {
+			session = authenticateWithCachedCredentials();
+			if (session == null) {
 				return new ArrayList<Comment>();
 			}
 
 			return fetchComments(packageName, developerId, startIndex, count, displayLocale);
 		} catch (AuthenticationException ex) {
-			if (!authenticateFromScratch()) {
+			if (!authenticateFromScratch(session)) {
 				return new ArrayList<Comment>();
 			}
 
@@ -241,78 +317,91 @@ public class DevConsoleV2 implements DevConsole {
 
 	public Comment replyToComment(String packageName, String developerId, String commentUiqueId,
 			String reply) {
-		String response = post(protocol.createCommentsUrl(developerId),
+		// a reply is never shared with other requests
+		String response = send(protocol.createCommentsUrl(developerId),
 				protocol.createReplyToCommentRequest(packageName, commentUiqueId, reply),
-				developerId);
+				developerId, responseHandler);
 
 		return protocol.parseCommentReplyResponse(response);
 	}
 	
 	
 	/**
-	 * Fetches a combined list of apps for all avaiable console accounts
+	 * Fetches a combined list of apps for all avaiable console accounts.
+	 * Accounts are queried concurrently, apps are returned in account order
 	 * 
 	 * @return combined list of apps
 	 * @throws DevConsoleException
 	 */
         
 	private List<AppInfo> fetchAppInfos() throws DevConsoleException {
+		DeveloperConsoleAccount[] consoleAccounts = protocol.getSessionCredentials()
+				.getDeveloperConsoleAccounts();
+		List<Callable<List<AppInfo>>> calls = new ArrayList<Callable<List<AppInfo>>>(consoleAccounts.length);
+		for (final DeveloperConsoleAccount consoleAccount : consoleAccounts) {
+			calls.add(new Callable<List<AppInfo>>() {
+				public List<AppInfo> call() {
+					return fetchAppInfos(consoleAccount);
+				}
+			});
+		}
+
 		List<AppInfo> result = new ArrayList<AppInfo>();
-		for (DeveloperConsoleAccount consoleAccount : protocol.getSessionCredentials()
-				.getDeveloperConsoleAccounts()) {
-			String developerId = consoleAccount.getDeveloperId();
-                        String developername = consoleAccount.getName();
-			if (logger.isDebugEnabled()) {
-				logger.debug("fetchAppInfos() - {}", "Getting apps for: " + developername + " - " + developerId); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-			}
+		for (List<AppInfo> apps : invokeAll(calls)) {
+			result.addAll(apps);
+		}
+		return result;
+	}
 
-			String response = post(protocol.createFetchAppsUrl(developerId),
-					protocol.createFetchAppInfosRequest(), developerId);
+	private List<AppInfo> fetchAppInfos(DeveloperConsoleAccount consoleAccount) throws DevConsoleException {
+		List<AppInfo> result = new ArrayList<AppInfo>();
+		String developerId = consoleAccount.getDeveloperId();
+		String developername = consoleAccount.getName();
+		if (logger.isDebugEnabled()) {
+			logger.debug("fetchAppInfos() - {}", "Getting apps for: " + developername + " - " + developerId); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
 
-			// don't skip incomplete apps, so we can get the package list
-			List<AppInfo> apps = protocol.parseAppInfosResponse(response, accountName,developerId, true);
-			if (apps.isEmpty()) {
-				continue;
-			}
-                        
-			result.addAll(apps);
-			List<String> incompletePackages = new ArrayList<String>();
-			for (AppInfo app : apps) {
-				if (app.isIncomplete()) {
-					result.remove(app);
-					incompletePackages.add(app.getPackageName());
-				}
-			}
-			if (logger.isDebugEnabled()) {
-				logger.debug("fetchAppInfos() - {}", String.format("Found %d apps for %s", apps.size(), developerId)); //$NON-NLS-1$ //$NON-NLS-2$
-				logger.debug("fetchAppInfos() - {}", String.format("Incomplete packages: %d", incompletePackages.size())); //$NON-NLS-1$ //$NON-NLS-2$
-			}
+		// don't skip incomplete apps, so we can get the package list
+		List<AppInfo> apps = send(protocol.createFetchAppsUrl(developerId),
+				protocol.createFetchAppInfosRequest(), developerId, appInfosHandler(developerId));
+		if (apps.isEmpty()) {
+			return result;
+		}
 
-			if (incompletePackages.isEmpty()) {
-				continue;
+		result.addAll(apps);
+		List<String> incompletePackages = new ArrayList<String>();
+		for (AppInfo app : apps) {
+			if (app.isIncomplete()) {
+				result.remove(app);
+				incompletePackages.add(app.getPackageName());
 			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("fetchAppInfos() - {}", String.format("Found %d apps for %s", apps.size(), developerId)); //$NON-NLS-1$ //$NON-NLS-2$
+			logger.debug("fetchAppInfos() - {}", String.format("Incomplete packages: %d", incompletePackages.size())); //$NON-NLS-1$ //$NON-NLS-2$
+		}
 
-			if (logger.isDebugEnabled()) {
-				logger.debug("fetchAppInfos() - {}", String.format("Got %d incomplete apps, issuing details request", incompletePackages.size())); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-                
-                response = post(protocol.createFetchAppsUrl(developerId),
-                                protocol.createFetchAppInfosRequest(incompletePackages), developerId);
-                        
-                // if info is not here, not much to do, skip
-                List<AppInfo> extraApps = protocol.parseAppInfosResponse(response, developerId,accountName, true);
-			if (logger.isDebugEnabled()) {
-				logger.debug("fetchAppInfos() - {}", String.format("Got %d extra apps from details request", extraApps.size())); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-                for (AppInfo appInfo : extraApps) {
-                        appInfo.setDeveloperId(developerId);
-                        appInfo.setDeveloperName(consoleAccount.getName());
-                }
-			result.addAll(extraApps);
-                        
+		if (incompletePackages.isEmpty()) {
+			return result;
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("fetchAppInfos() - {}", String.format("Got %d incomplete apps, issuing details request", incompletePackages.size())); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+
+		// if info is not here, not much to do, skip
+		List<AppInfo> extraApps = send(protocol.createFetchAppsUrl(developerId),
+				protocol.createFetchAppInfosRequest(incompletePackages), developerId,
+				appInfosHandler(developerId));
+		if (logger.isDebugEnabled()) {
+			logger.debug("fetchAppInfos() - {}", String.format("Got %d extra apps from details request", extraApps.size())); //$NON-NLS-1$ //$NON-NLS-2$
 		}
-                
-                
+		for (AppInfo appInfo : extraApps) {
+			appInfo.setDeveloperId(developerId);
+			appInfo.setDeveloperName(consoleAccount.getName());
+		}
+		result.addAll(extraApps);
+
 		return result;
 	}
 
@@ -350,18 +439,109 @@ public class DevConsoleV2 implements DevConsole {
 	}
 
 	/**
-	 * Fetches ratings for the given packageName and adds them to the given {@link AppStats} object
+	 * Fetches the statistics of the given types and optionally the ratings
+	 * of every app, and adds them to the latest {@link AppStats} of the app.
+	 * 
+	 * All the requests are sent concurrently, with at most
+	 * {@link #MAX_REQUESTS_IN_FLIGHT} waiting for a response at the same time.
+	 * Responses are parsed on the calling thread.
 	 *
-	 *            The app to fetch ratings for
-	 * @param stats
-	 *            The AppStats object to add them to
 	 * @throws DevConsoleException
+	 *             the first failed request, the pending ones are cancelled
 	 */
-	private void fetchRatings(AppInfo appInfo, AppStats stats) throws DevConsoleException {
-		String developerId = appInfo.getDeveloperId();
-		String response = post(protocol.createCommentsUrl(developerId),
-				protocol.createFetchRatingsRequest(appInfo.getPackageName()), developerId);
-		protocol.parseRatingsResponse(response, stats);
+	private void fetchDetails(List<AppInfo> apps, int[] statsTypes, boolean ratings)
+			throws DevConsoleException {
+		Semaphore window = new Semaphore(MAX_REQUESTS_IN_FLIGHT);
+		List<DetailRequest> requests = new ArrayList<DetailRequest>();
+		try {
+			for (AppInfo app : apps) {
+				for (int statsType : statsTypes) {
+					requests.add(submitDetail(app, statsType, window));
+				}
+				if (ratings) {
+					requests.add(submitDetail(app, RATINGS, window));
+				}
+			}
+
+			for (DetailRequest request : requests) {
+				Object result = request.get();
+				AppStats stats = request.app.getLatestStats();
+				if (request.statsType == RATINGS) {
+					int[] rating = (int[]) result;
+					stats.setRating(rating[0], rating[1], rating[2], rating[3], rating[4]);
+				} else {
+					protocol.addStatistics(stats, request.statsType, (TimeSeries) result);
+				}
+			}
+		} catch (ExecutionException e) {
+			throw toDevConsoleException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new NetworkException(e);
+		} finally {
+			for (DetailRequest request : requests) {
+				request.cancel(true);
+			}
+		}
+	}
+
+	private DetailRequest submitDetail(final AppInfo app, final int statsType, Semaphore window)
+			throws InterruptedException {
+		final String developerId = app.getDeveloperId();
+		Callable<Object> call = new Callable<Object>() {
+			public Object call() {
+				if (statsType == RATINGS) {
+					return post(protocol.createCommentsUrl(developerId),
+							protocol.createFetchRatingsRequest(app.getPackageName()), developerId,
+							new StreamingResponseHandler<int[]>() {
+								@Override
+								int[] parse(Reader json) throws IOException {
+									return protocol.parseRatingsResponse(json);
+								}
+							});
+				}
+				return post(protocol.createFetchStatisticsUrl(developerId),
+						protocol.createFetchStatisticsRequest(app.getPackageName(), statsType),
+						developerId, new StreamingResponseHandler<TimeSeries>() {
+							@Override
+							TimeSeries parse(Reader json) throws IOException {
+								return protocol.parseStatisticsResponse(json);
+							}
+						});
+			}
+		};
+		window.acquire();
+		DetailRequest request = new DetailRequest(app, statsType, call, window);
+		try {
+			executor.execute(request);
+		} catch (RuntimeException e) {
+			window.release();
+			throw e;
+		}
+		return request;
+	}
+
+	/**
+	 * Statistics or ratings request of an app, frees its slot of the window
+	 * when finished or cancelled. The result is the parsed timeline or the
+	 * number of ratings of each star, added to the app by the calling thread.
+	 */
+	private static class DetailRequest extends FutureTask<Object> {
+		private final AppInfo app;
+		private final int statsType;
+		private final Semaphore window;
+
+		DetailRequest(AppInfo app, int statsType, Callable<Object> call, Semaphore window) {
+			super(call);
+			this.app = app;
+			this.statsType = statsType;
+			this.window = window;
+		}
+
+		@Override
+		protected void done() {
+			window.release();
+		}
 	}
 
 	/**
@@ -379,20 +559,18 @@ public class DevConsoleV2 implements DevConsole {
 		int pageSize = 100;
 
 		String developerId = appInfo.getDeveloperId();
-		String response = post(protocol.createCommentsUrl(developerId),
+		int approxNumComments = post(protocol.createCommentsUrl(developerId),
 				protocol.createFetchCommentsRequest(appInfo.getPackageName(), 0, pageSize,
-						displayLocale), developerId);
-		int approxNumComments = protocol.extractCommentsCount(response);
+						displayLocale), developerId, commentsCountHandler);
 		if (approxNumComments <= pageSize) {
 			// this has a good chance of being exact
 			return approxNumComments;
 		}
 
-		response = post(
+		finalNumComments += post(
 				protocol.createCommentsUrl(developerId),
 				protocol.createFetchCommentsRequest(appInfo.getPackageName(), approxNumComments
-						- pageSize, pageSize, displayLocale), developerId);
-		finalNumComments += protocol.extractCommentsCount(response);
+						- pageSize, pageSize, displayLocale), developerId, commentsCountHandler);
 
 		return finalNumComments;
 	}
@@ -400,45 +578,110 @@ public class DevConsoleV2 implements DevConsole {
 	private List<Comment> fetchComments(String packageName, String developerId, int startIndex,
 			int count, String displayLocale) throws DevConsoleException {
 		List<Comment> comments = new ArrayList<Comment>();
-		String response = post(protocol.createCommentsUrl(developerId),
+		comments.addAll(send(protocol.createCommentsUrl(developerId),
 				protocol.createFetchCommentsRequest(packageName, startIndex, count, displayLocale),
-				developerId);
-		comments.addAll(protocol.parseCommentsResponse(response));
+				developerId, new StreamingResponseHandler<List<Comment>>() {
+					@Override
+					List<Comment> parse(Reader json) throws IOException {
+						return protocol.parseCommentsResponse(json);
+					}
+				}));
 
 		return comments;
 	}
 
-	private boolean authenticateWithCachedCredentialas() {
-		return authenticate(false);
-	}
-
-	private boolean authenticateFromScratch() {
-		return authenticate(true);
+	/**
+	 * @return the current session, logging in if there is none yet, or null
+	 *         if the login failed
+	 */
+	private SessionCredentials authenticateWithCachedCredentials() {
+		SessionCredentials session = protocol.getSessionCredentials();
+		if (session != null) {
+			// nothing to do
+			return session;
+		}
+		synchronized (authLock) {
+			if (!protocol.hasSessionCredentials()) {
+				setSessionCredentials(authenticator.authenticateSilently(false));
+			}
+			return protocol.getSessionCredentials();
+		}
 	}
 
 	/**
-	 * Logs into the Android Developer Console
+	 * Logs into the Android Developer Console again after a request was
+	 * rejected. Only one thread logs in; the others waiting on the lock reuse
+	 * its session instead of logging in once each.
 	 *
+	 * @param rejected
+	 *            the session the failed request was sent with
 	 * @throws DevConsoleException
 	 */
-	private boolean authenticate(boolean invalidateCredentials)
+	private boolean authenticateFromScratch(SessionCredentials rejected)
 			throws DevConsoleException {
-		if (invalidateCredentials) {
-			protocol.invalidateSessionCredentials();
+		synchronized (authLock) {
+			SessionCredentials current = protocol.getSessionCredentials();
+			if (current != null && current != rejected) {
+				// renewed by another thread meanwhile
+				return true;
+			}
+			// the old session stays visible to requests in flight until replaced
+			SessionCredentials session;
+			try {
+				session = authenticator.authenticateSilently(true);
+			} catch (DevConsoleException e) {
+				if (sessionStore != null) {
+					sessionStore.delete(accountName);
+				}
+				throw e;
+			}
+			setSessionCredentials(session);
+
+			return protocol.hasSessionCredentials();
 		}
+	}
 
-		if (protocol.hasSessionCredentials()) {
-			// nothing to do
-			return true;
+	private void setSessionCredentials(SessionCredentials session) {
+		protocol.setSessionCredentials(session);
+		if (session != null && sessionStore != null) {
+			sessionStore.save(session);
 		}
+	}
 
-		SessionCredentials sessionCredentials = authenticator.authenticateSilently(invalidateCredentials);
-		protocol.setSessionCredentials(sessionCredentials);
+	public String post(String url, String postData, String developerId) {
+		return post(url, postData, developerId, responseHandler);
+	}
 
-		return protocol.hasSessionCredentials();
+	/**
+	 * Posts the request and hands the response to the given handler, which
+	 * can parse it while it is read. The same request of the same account
+	 * made by another thread at the same time is sent once and its result
+	 * shared, so it must only be used for requests that read data and whose
+	 * result is never modified: text, counts, ratings and statistics series.
+	 * Apps and comments are filled in by each caller and go through
+	 * {@link #send(String, String, String, ResponseHandler)}
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T post(final String url, final String postData, final String developerId,
+			final ResponseHandler<T> handler) {
+		String key = accountName + '\n' + developerId + '\n' + handler.getClass().getName() + '\n'
+				+ url + '\n' + postData;
+		try {
+			return (T) requestsInFlight.execute(key, new Callable<Object>() {
+				public Object call() {
+					return send(url, postData, developerId, handler);
+				}
+			});
+		} catch (ExecutionException e) {
+			throw toDevConsoleException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new NetworkException(e);
+		}
 	}
 
-	public String post(String url, String postData, String developerId) {
+	private <T> T send(String url, String postData, String developerId,
+			ResponseHandler<T> handler) {
 		try {
                         HttpPost post = new HttpPost(url);
                         protocol.addHeaders(post, developerId);
@@ -455,7 +698,7 @@ public class DevConsoleV2 implements DevConsole {
 				}
 			}
 
-			return httpClient.execute(post, responseHandler);
+			return httpClient.execute(post, handler);
 		} catch (HttpResponseException e) {
 			if (e.getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
 				throw new AuthenticationException(e);
@@ -467,6 +710,52 @@ public class DevConsoleV2 implements DevConsole {
 
 	}
 
+	private ResponseHandler<List<AppInfo>> appInfosHandler(final String developerId) {
+		return new StreamingResponseHandler<List<AppInfo>>() {
+			@Override
+			List<AppInfo> parse(Reader json) throws IOException {
+				return protocol.parseAppInfosResponse(json, accountName, developerId, true);
+			}
+		};
+	}
+
+	private final ResponseHandler<Integer> commentsCountHandler = new StreamingResponseHandler<Integer>() {
+		@Override
+		Integer parse(Reader json) throws IOException {
+			return protocol.extractCommentsCount(json);
+		}
+	};
+
+	/**
+	 * Parses the response body while it is read, instead of reading it into
+	 * a String first. Error statuses fail like the default response handler.
+	 */
+	private abstract static class StreamingResponseHandler<T> implements ResponseHandler<T> {
+
+		public T handleResponse(HttpResponse response) throws IOException {
+			StatusLine statusLine = response.getStatusLine();
+			HttpEntity entity = response.getEntity();
+			if (statusLine.getStatusCode() >= 300) {
+				EntityUtils.consume(entity);
+				throw new HttpResponseException(statusLine.getStatusCode(),
+						statusLine.getReasonPhrase());
+			}
+			if (entity == null) {
+				throw new DevConsoleProtocolException("Empty response");
+			}
+			String charset = EntityUtils.getContentCharSet(entity);
+			Reader json = new InputStreamReader(entity.getContent(),
+					charset == null ? HTTP.UTF_8 : charset);
+			try {
+				return parse(json);
+			} finally {
+				json.close();
+			}
+		}
+
+		abstract T parse(Reader json) throws IOException;
+	}
+
 	public boolean canReplyToComments() {
 		return protocol.canReplyToComments();
 	}
@@ -474,68 +763,142 @@ public class DevConsoleV2 implements DevConsole {
 	public boolean hasSessionCredentials() {
 		return protocol.hasSessionCredentials();
 	}
-	private AppInfo fetchAppInfo(String packageName) throws DevConsoleException {
-		AppInfo result = null;
-		for (DeveloperConsoleAccount consoleAccount : protocol.getSessionCredentials()
-				.getDeveloperConsoleAccounts()) {
-			String developerId = consoleAccount.getDeveloperId();
-                        String developername = consoleAccount.getName();
-			if (logger.isDebugEnabled()) {
-				logger.debug("fetchAppInfos() - {}", "Getting apps for: " + developername + " - " + developerId); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+	SessionCredentials getSessionCredentials() {
+		return protocol.getSessionCredentials();
+	}
+	/**
+	 * Looks for the app in every console account concurrently and returns
+	 * the first account that has it, cancelling the remaining requests
+	 */
+	private AppInfo fetchAppInfo(final String packageName) throws DevConsoleException {
+		DeveloperConsoleAccount[] consoleAccounts = protocol.getSessionCredentials()
+				.getDeveloperConsoleAccounts();
+		if (consoleAccounts.length == 1) {
+			return fetchAppInfo(consoleAccounts[0], packageName);
+		}
+
+		CompletionService<AppInfo> completionService = new ExecutorCompletionService<AppInfo>(executor);
+		List<Future<AppInfo>> futures = new ArrayList<Future<AppInfo>>(consoleAccounts.length);
+		try {
+			for (final DeveloperConsoleAccount consoleAccount : consoleAccounts) {
+				futures.add(completionService.submit(new Callable<AppInfo>() {
+					public AppInfo call() {
+						return fetchAppInfo(consoleAccount, packageName);
+					}
+				}));
+			}
+
+			DevConsoleException failure = null;
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					AppInfo app = completionService.take().get();
+					if (app != null) {
+						return app;
+					}
+				} catch (ExecutionException e) {
+					// other accounts may still have the app
+					if (failure == null) {
+						failure = toDevConsoleException(e);
+					}
+				}
 			}
+			if (failure != null) {
+				throw failure;
+			}
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new NetworkException(e);
+		} finally {
+			for (Future<AppInfo> future : futures) {
+				future.cancel(true);
+			}
+		}
+	}
 
-			String response = post(protocol.createFetchAppsUrl(developerId),
-					protocol.createFetchAppInfoRequest(packageName), developerId);
+	private AppInfo fetchAppInfo(DeveloperConsoleAccount consoleAccount, String packageName)
+			throws DevConsoleException {
+		final String developerId = consoleAccount.getDeveloperId();
+		String developername = consoleAccount.getName();
+		if (logger.isDebugEnabled()) {
+			logger.debug("fetchAppInfo() - {}", "Getting app for: " + developername + " - " + developerId); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
 
-			// don't skip incomplete apps, so we can get the package list
-			AppInfo app = protocol.parseAppInfoResponse(response, accountName,developerId, true);
-			
-                        
-			result=app;
-			
-				/*
-				 * When consulting a single app it will always be incomplete
-				 * if (app.isIncomplete()) {
-					result=null;
-					if (logger.isDebugEnabled()) {
-						logger.debug("fetchAppInfos() - {}", String.format("Incomplete apps, issuing details request")); //$NON-NLS-1$ //$NON-NLS-2$
+		// When consulting a single app it will always be incomplete
+		return send(protocol.createFetchAppsUrl(developerId),
+				protocol.createFetchAppInfoRequest(packageName), developerId,
+				new StreamingResponseHandler<AppInfo>() {
+					@Override
+					AppInfo parse(Reader json) throws IOException {
+						return protocol.parseAppInfoResponse(json, accountName, developerId, true);
 					}
-					
-					response = post(protocol.createFetchAppsUrl(developerId),
-                            protocol.createFetchAppInfoRequest(packageName), developerId);
-				      // if info is not here, not much to do, skip
-	                AppInfo extraApp = protocol.parseAppInfoResponse(response,accountName, developerId, true);
-				if (logger.isDebugEnabled()) {
-					logger.debug("fetchAppInfos() - {}", String.format("Got extra app from details request")); //$NON-NLS-1$ //$NON-NLS-2$
+				});
+	}
+
+	/**
+	 * Runs the calls on the shared executor, the last one on the calling
+	 * thread
+	 * 
+	 * @return the results in the same order as the calls
+	 * @throws DevConsoleException
+	 *             the first failure in call order, pending calls are
+	 *             cancelled
+	 */
+	private <T> List<T> invokeAll(List<Callable<T>> calls) throws DevConsoleException {
+		List<Future<T>> futures = new ArrayList<Future<T>>(calls.size());
+		try {
+			for (Callable<T> call : calls) {
+				FutureTask<T> task = new FutureTask<T>(call);
+				if (futures.size() < calls.size() - 1) {
+					executor.execute(task);
+				} else {
+					task.run();
 				}
-	              if(extraApp!=null)
-				result=extraApp;
-				}*/
-			
-			
+				futures.add(task);
+			}
 
-			
-                
-                
-                        
-          
-                        
+			List<T> results = new ArrayList<T>(calls.size());
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (ExecutionException e) {
+			throw toDevConsoleException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new NetworkException(e);
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
 		}
-                
-                
-		return result;
+	}
+
+	private static DevConsoleException toDevConsoleException(ExecutionException e) {
+		// AuthenticationException must reach the callers to log in again
+		Throwable cause = e.getCause();
+		if (cause instanceof DevConsoleException) {
+			return (DevConsoleException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new DevConsoleException(cause);
 	}
 
 	protected AppInfo getAppInfo(String packageName) {
+		SessionCredentials session = null;
 		try {
 			// the authenticator launched a sub-activity, bail out for now
-			if (!authenticateWithCachedCredentialas()) {
+			session = authenticateWithCachedCredentials();
+			if (session == null) {
 				return null;
 			}
 
 			return fetchAppInfoAndStatistics(packageName);
 		} catch (AuthenticationException ex) {
-			if (!authenticateFromScratch()) {
+			if (!authenticateFromScratch(session)) {
 				return null;
 			}
 
@@ -546,7 +909,9 @@ public class DevConsoleV2 implements DevConsole {
 	private AppInfo fetchAppInfoAndStatistics(String packageName) {
 		// Fetch a list of available apps
 		AppInfo app = fetchAppInfo(packageName);
-		fetchStatistics(app, app.getLatestStats(), 4);
+		if (app != null) {
+			fetchDetails(Collections.singletonList(app), FULL_QUERY_STATS_TYPES, false);
+		}
 		
 
 		return app;
@@ -1,5 +1,7 @@
 package com.github.andlyticsproject.console.v2;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 
 import org.apache.http.client.methods.HttpPost;
@@ -11,6 +13,7 @@ import com.github.andlyticsproject.console.DevConsoleProtocolException;
 import com.github.andlyticsproject.model.AppInfo;
 import com.github.andlyticsproject.model.AppStats;
 import com.github.andlyticsproject.model.Comment;
+import com.github.andlyticsproject.model.TimeSeries;
 
 public class DevConsoleV2Protocol {
 	/**
@@ -40,9 +43,9 @@ public class DevConsoleV2Protocol {
 	// 1$: package name, 2$: start, 3$: num comments to fetch, 4$: display locale, 5$ XSRF
 	static final String GET_REVIEWS_TEMPLATE = "{\"method\":\"getReviews\","
 			+ "\"params\":{\"1\":\"%1$s\",\"2\":%2$d,\"3\":%3$d,\"8\":\"%4$s\"},\"xsrf\":\"%5$s\"}";
-	// 1$: package name, 2$: stats type, 3$: stats by, 4$: XSRF
+	// 1$: package name, 2$: stats type, 3$: comma separated stats by, 4$: XSRF
 	static final String GET_COMBINED_STATS_TEMPLATE = "{\"method\":\"getCombinedStats\","
-			+ "\"params\":{\"1\":\"%1$s\",\"2\":1,\"3\":%2$d,\"4\":[%3$d]},\"xsrf\":\"%4$s\"}";
+			+ "\"params\":{\"1\":\"%1$s\",\"2\":1,\"3\":%2$d,\"4\":[%3$s]},\"xsrf\":\"%4$s\"}";
 	// %1$s: package name, %2$s: comment ID, %3$s: reply text, %4$s: XSRF
 	static final String REPLY_TO_COMMENT_TEMPLATE = "{\"method\":\"sendReply\","
 			+ "\"params\":{\"1\":\"%1$s\",\"2\":\"%2$s\",\"3\":\"%3$s\"},\"xsrf\":\"%4$s\"}";
@@ -56,6 +59,8 @@ public class DevConsoleV2Protocol {
 	static final int STATS_BY_LANGUAGE = 4;
 	static final int STATS_BY_APP_VERSION = 5;
 	static final int STATS_BY_CARRIER = 6;
+	static final int[] STATS_BY_ALL = { STATS_BY_ANDROID_VERSION, STATS_BY_DEVICE,
+			STATS_BY_COUNTRY, STATS_BY_LANGUAGE, STATS_BY_APP_VERSION, STATS_BY_CARRIER };
 
 	// Represents the different types of statistics e.g. active device installs
 	static final int STATS_TYPE_ACTIVE_DEVICE_INSTALLS = 1;
@@ -65,7 +70,8 @@ public class DevConsoleV2Protocol {
 
 	static final int COMMENT_REPLY_MAX_LENGTH = 350;
 
-	private SessionCredentials sessionCredentials;
+	// replaced as a whole on re-authentication, requests read it once
+	private volatile SessionCredentials sessionCredentials;
 
 	DevConsoleV2Protocol() {
 	}
@@ -90,10 +96,12 @@ public class DevConsoleV2Protocol {
 		sessionCredentials = null;
 	}
 
-	private void checkState() {
-		if (sessionCredentials == null) {
+	private SessionCredentials checkState() {
+		SessionCredentials credentials = sessionCredentials;
+		if (credentials == null) {
 			throw new IllegalStateException("Set session credentials first.");
 		}
+		return credentials;
 	}
 
 	void addHeaders(HttpPost post, String developerId) {
@@ -129,15 +137,15 @@ public class DevConsoleV2Protocol {
 	}
 
 	public String createFetchAppInfosRequest() {
-		checkState();
+		SessionCredentials credentials = checkState();
 
 		// TODO Check the remaining possible parameters to see if they are
 		// needed for large numbers of apps
-		return String.format(FETCH_APPS_TEMPLATE, sessionCredentials.getXsrfToken());
+		return String.format(FETCH_APPS_TEMPLATE, credentials.getXsrfToken());
 	}
 
 	String createFetchAppInfosRequest(List<String> packages) {
-		checkState();
+		SessionCredentials credentials = checkState();
 
 		StringBuilder buff = new StringBuilder();
 		for (int i = 0; i < packages.size(); i++) {
@@ -150,7 +158,7 @@ public class DevConsoleV2Protocol {
 		String packageList = buff.toString();
 
 		return String.format(FETCH_APPS_BY_PACKAGES_TEMPLATE, packageList,
-				sessionCredentials.getXsrfToken());
+				credentials.getXsrfToken());
 	}
 
 	public List<AppInfo> parseAppInfosResponse(String json, String accountName,String developerId, boolean skipIncomplete) {
@@ -169,6 +177,23 @@ public class DevConsoleV2Protocol {
 			throw new DevConsoleProtocolException(json, ex);
 		}
 	}
+
+	public List<AppInfo> parseAppInfosResponse(Reader json, String accountName,String developerId, boolean skipIncomplete) throws IOException {
+		try {
+			return JsonParser.parseAppInfos(json, accountName,developerId, skipIncomplete);
+		} catch (JSONException ex) {
+			throw new DevConsoleProtocolException("Could not parse apps response", ex);
+		}
+	}
+
+	public AppInfo parseAppInfoResponse(Reader json, String accountName,String developerId, boolean skipIncomplete) throws IOException {
+		try {
+			return JsonParser.parseAppInfo(json, accountName,developerId, skipIncomplete);
+		} catch (JSONException ex) {
+			throw new DevConsoleProtocolException("Could not parse app response", ex);
+		}
+	}
+
 	private static void saveDebugJson(String json) {
 		if (logger.isDebugEnabled()) {
 			logger.debug("saveDebugJson(String) - {}", "saveDebugJson on DevConsoleV2Protocol: {}", json); //$NON-NLS-1$ //$NON-NLS-2$
@@ -176,18 +201,36 @@ public class DevConsoleV2Protocol {
 	}
 
 	public String createFetchAppInfoRequest(String packageName) {
-		checkState();
+		SessionCredentials credentials = checkState();
 
-		return String.format(FETCH_APP_TEMPLATE, packageName, sessionCredentials.getXsrfToken());
+		return String.format(FETCH_APP_TEMPLATE, packageName, credentials.getXsrfToken());
 	}
 
+	/**
+	 * Asks for the timeline of the stats type with every breakdown, the
+	 * breakdowns are not parsed yet
+	 */
 	public String createFetchStatisticsRequest(String packageName, int statsType) {
-		checkState();
+		return createFetchStatisticsRequest(packageName, statsType, STATS_BY_ALL);
+	}
+
+	/**
+	 * One getCombinedStats request covers a single stats type, but all the
+	 * breakdowns wanted for it can go in the same request
+	 */
+	public String createFetchStatisticsRequest(String packageName, int statsType, int... statsBy) {
+		SessionCredentials credentials = checkState();
+
+		StringBuilder buff = new StringBuilder();
+		for (int i = 0; i < statsBy.length; i++) {
+			if (i > 0) {
+				buff.append(",");
+			}
+			buff.append(statsBy[i]);
+		}
 
-		// Don't care about the breakdown at the moment:
-		// STATS_BY_ANDROID_VERSION
 		return String.format(GET_COMBINED_STATS_TEMPLATE, packageName, statsType,
-				STATS_BY_ANDROID_VERSION, sessionCredentials.getXsrfToken());
+				buff.toString(), credentials.getXsrfToken());
 	}
 
 	public void parseStatisticsResponse(String json, AppStats stats, int statsType) {
@@ -199,10 +242,26 @@ public class DevConsoleV2Protocol {
 		}
 	}
 
+	/**
+	 * Streaming version of {@link #parseStatisticsResponse(String, AppStats, int)},
+	 * the timeline is added with {@link #addStatistics(AppStats, int, TimeSeries)}
+	 */
+	public TimeSeries parseStatisticsResponse(Reader json) throws IOException {
+		try {
+			return JsonParser.parseStatistics(json);
+		} catch (JSONException ex) {
+			throw new DevConsoleProtocolException("Could not parse statistics response", ex);
+		}
+	}
+
+	public void addStatistics(AppStats stats, int statsType, TimeSeries timeline) {
+		JsonParser.setStatistics(stats, statsType, timeline);
+	}
+
 	public String createFetchRatingsRequest(String packageName) {
-		checkState();
+		SessionCredentials credentials = checkState();
 
-		return String.format(GET_RATINGS_TEMPLATE, packageName, sessionCredentials.getXsrfToken());
+		return String.format(GET_RATINGS_TEMPLATE, packageName, credentials.getXsrfToken());
 	}
 
 	public void parseRatingsResponse(String json, AppStats stats) {
@@ -214,16 +273,27 @@ public class DevConsoleV2Protocol {
 		}
 	}
 
+	/**
+	 * @return the number of ratings of 1 to 5 stars
+	 */
+	public int[] parseRatingsResponse(Reader json) throws IOException {
+		try {
+			return JsonParser.parseRatings(json);
+		} catch (JSONException ex) {
+			throw new DevConsoleProtocolException("Could not parse ratings response", ex);
+		}
+	}
+
 	public String createFetchCommentsRequest(String packageName, int start, int pageSize,
 			String displayLocale) {
-		checkState();
+		SessionCredentials credentials = checkState();
 
 		return String.format(GET_REVIEWS_TEMPLATE, packageName, start, pageSize, displayLocale,
-				sessionCredentials.getXsrfToken());
+				credentials.getXsrfToken());
 	}
 
 	String createReplyToCommentRequest(String packageName, String commentId, String reply) {
-		checkState();
+		SessionCredentials credentials = checkState();
 
 		if (!canReplyToComments()) {
 			throw new IllegalStateException(
@@ -236,13 +306,13 @@ public class DevConsoleV2Protocol {
 		}
 
 		return String.format(REPLY_TO_COMMENT_TEMPLATE, packageName, commentId, reply,
-				sessionCredentials.getXsrfToken());
+				credentials.getXsrfToken());
 	}
 
 	boolean hasFeature(String feature) {
-		checkState();
+		SessionCredentials credentials = checkState();
 
-		return sessionCredentials.hasFeature(feature);
+		return credentials.hasFeature(feature);
 	}
 
 	boolean canReplyToComments() {
@@ -267,6 +337,22 @@ public class DevConsoleV2Protocol {
 		}
 	}
 
+	int extractCommentsCount(Reader json) throws IOException {
+		try {
+			return JsonParser.parseCommentsCount(json);
+		} catch (JSONException ex) {
+			throw new DevConsoleProtocolException("Could not parse comments response", ex);
+		}
+	}
+
+	List<Comment> parseCommentsResponse(Reader json) throws IOException {
+		try {
+			return JsonParser.parseComments(json);
+		} catch (JSONException ex) {
+			throw new DevConsoleProtocolException("Could not parse comments response", ex);
+		}
+	}
+
 	Comment parseCommentReplyResponse(String json) {
 		try {
 			return JsonParser.parseCommentReplyResponse(json);
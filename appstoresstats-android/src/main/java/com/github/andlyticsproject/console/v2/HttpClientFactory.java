@@ -11,22 +11,11 @@ import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpResponseInterceptor;
-import org.apache.http.HttpVersion;
 import org.apache.http.client.ResponseHandler;
-import org.apache.http.client.params.HttpClientParams;
-import org.apache.http.conn.scheme.PlainSocketFactory;
-import org.apache.http.conn.scheme.Scheme;
-import org.apache.http.conn.scheme.SchemeRegistry;
-import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
-import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
-import org.apache.http.params.HttpParams;
-import org.apache.http.params.HttpProtocolParams;
-import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
 
 public class HttpClientFactory {
@@ -48,7 +37,18 @@ public class HttpClientFactory {
 	}
 
 	public static DefaultHttpClient createDevConsoleHttpClient(int timeoutMillis) {
-		DefaultHttpClient result = createDefaultClient(timeoutMillis);
+		return createDevConsoleHttpClient(HttpConnectionPool.getInstance(), timeoutMillis);
+	}
+
+	/**
+	 * @return a client with the Developer Console headers using the
+	 *         connections of the pool
+	 */
+	public static DefaultHttpClient createDevConsoleHttpClient(HttpConnectionPool pool,
+			int timeoutMillis) {
+		DefaultHttpClient result = pool.createHttpClient();
+		HttpConnectionParams.setConnectionTimeout(result.getParams(), timeoutMillis);
+		HttpConnectionParams.setSoTimeout(result.getParams(), timeoutMillis);
 		result.addRequestInterceptor(new HttpRequestInterceptor() {
 			public void process(HttpRequest request, HttpContext context) {
 				addCommonHeaders(request);
@@ -59,28 +59,6 @@ public class HttpClientFactory {
 		return result;
 	}
 
-	private static DefaultHttpClient createDefaultClient(int timeoutMillis) {
-		HttpParams params = new BasicHttpParams();
-		HttpConnectionParams.setConnectionTimeout(params, timeoutMillis);
-		HttpConnectionParams.setSoTimeout(params, timeoutMillis);
-		//HttpProtocolParams.setUserAgent(params, ANDROID_BROWSER_USER_AGENT);
-		HttpClientParams.setRedirecting(params, true);
-		HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
-		HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
-		HttpProtocolParams.setUseExpectContinue(params, false);
-
-		HttpConnectionParams.setSoTimeout(params, timeoutMillis);
-		HttpConnectionParams.setConnectionTimeout(params, timeoutMillis);
-
-		SSLSocketFactory sf = SSLSocketFactory.getSocketFactory();
-		sf.setHostnameVerifier(SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
-		SchemeRegistry registry = new SchemeRegistry();
-		registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
-		registry.register(new Scheme("https", sf, 443));
-
-		return new DefaultHttpClient(new ThreadSafeClientConnManager(params, registry), params);
-	}
-
 	private static void addGzipInterceptor(DefaultHttpClient result) {
 		result.addResponseInterceptor(new HttpResponseInterceptor() {
 			public void process(HttpResponse response, HttpContext context) {
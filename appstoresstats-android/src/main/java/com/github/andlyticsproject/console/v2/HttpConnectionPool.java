@@ -0,0 +1,292 @@
+package com.github.andlyticsproject.console.v2;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.params.ConnPerRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ConnPoolByRoute;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HTTP;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Connection pool shared by the HTTP clients of a process.
+ *
+ * Every client of {@link #createHttpClient()} has its own cookies and
+ * parameters but takes its connections from the same bounded pool. Stale
+ * connections are checked before use, a daemon thread closes the ones idle
+ * for longer than the idle timeout, and the pool is shut down by
+ * {@link #shutdown()} or, failing that, when the JVM exits.
+ */
+public class HttpConnectionPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(HttpConnectionPool.class);
+
+	public static final int DEFAULT_MAX_TOTAL = 100;
+	public static final int DEFAULT_MAX_PER_ROUTE = 20;
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10 * 1000;
+	public static final int DEFAULT_SOCKET_TIMEOUT = 30 * 1000;
+	public static final long DEFAULT_IDLE_TIMEOUT = 60 * 1000;
+
+	private static HttpConnectionPool instance;
+
+	private final PoolManager connectionManager;
+	private final int connectTimeout;
+	private final int socketTimeout;
+	private final long idleTimeout;
+	private final ScheduledExecutorService monitor;
+	private final Thread shutdownHook;
+	private volatile boolean shutdown;
+
+	public HttpConnectionPool() {
+		this(DEFAULT_MAX_TOTAL, DEFAULT_MAX_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT,
+				DEFAULT_SOCKET_TIMEOUT, DEFAULT_IDLE_TIMEOUT);
+	}
+
+	/**
+	 * @param maxTotal
+	 *            connections open at the same time
+	 * @param maxPerRoute
+	 *            connections open at the same time to a host
+	 * @param connectTimeout
+	 *            milliseconds to open a connection
+	 * @param socketTimeout
+	 *            milliseconds to wait for data
+	 * @param idleTimeout
+	 *            milliseconds an unused connection is kept open
+	 */
+	public HttpConnectionPool(int maxTotal, int maxPerRoute, int connectTimeout,
+			int socketTimeout, long idleTimeout) {
+		SSLSocketFactory sf = SSLSocketFactory.getSocketFactory();
+		sf.setHostnameVerifier(SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+		SchemeRegistry registry = new SchemeRegistry();
+		registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+		registry.register(new Scheme("https", sf, 443));
+
+		connectionManager = new PoolManager(registry);
+		connectionManager.setMaxTotal(maxTotal);
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+
+		this.connectTimeout = connectTimeout;
+		this.socketTimeout = socketTimeout;
+		this.idleTimeout = idleTimeout;
+		monitor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "http-connection-pool-monitor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long period = Math.max(1000, idleTimeout / 2);
+		monitor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				closeIdleConnections();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+
+		shutdownHook = new Thread("http-connection-pool-shutdown") {
+			@Override
+			public void run() {
+				shutdownNow();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * @return the pool of the process, created with the default settings
+	 *         unless one was set
+	 */
+	public static synchronized HttpConnectionPool getInstance() {
+		if (instance == null || instance.isShutdown()) {
+			instance = new HttpConnectionPool();
+		}
+		return instance;
+	}
+
+	/**
+	 * Replaces the pool of the process, the previous one is shut down
+	 */
+	public static synchronized void setInstance(HttpConnectionPool pool) {
+		if (instance != null && instance != pool) {
+			instance.shutdown();
+		}
+		instance = pool;
+	}
+
+	/**
+	 * @return a client with its own cookies using the connections of the
+	 *         pool, it must not be shut down
+	 */
+	public DefaultHttpClient createHttpClient() {
+		if (shutdown) {
+			throw new IllegalStateException("Connection pool shut down");
+		}
+		return new DefaultHttpClient(connectionManager, createParams());
+	}
+
+	private HttpParams createParams() {
+		HttpParams params = new BasicHttpParams();
+		HttpConnectionParams.setConnectionTimeout(params, connectTimeout);
+		HttpConnectionParams.setSoTimeout(params, socketTimeout);
+		HttpConnectionParams.setStaleCheckingEnabled(params, true);
+		HttpClientParams.setRedirecting(params, true);
+		HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+		HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
+		HttpProtocolParams.setUseExpectContinue(params, false);
+		return params;
+	}
+
+	public ClientConnectionManager getConnectionManager() {
+		return connectionManager;
+	}
+
+	/**
+	 * Closes expired connections and the ones unused for the idle timeout
+	 */
+	public void closeIdleConnections() {
+		try {
+			connectionManager.closeExpiredConnections();
+			connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+			if (logger.isDebugEnabled()) {
+				logger.debug("closeIdleConnections() - {}", getStats()); //$NON-NLS-1$
+			}
+		} catch (RuntimeException e) {
+			logger.error("closeIdleConnections() - Error closing connections", e); //$NON-NLS-1$
+		}
+	}
+
+	public Stats getStats() {
+		return connectionManager.getStats();
+	}
+
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/**
+	 * Closes every connection, requests in flight fail
+	 */
+	public void shutdown() {
+		if (shutdownNow()) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				// the JVM is exiting, the hook runs anyway
+			}
+		}
+	}
+
+	private synchronized boolean shutdownNow() {
+		if (shutdown) {
+			return false;
+		}
+		shutdown = true;
+		monitor.shutdownNow();
+		connectionManager.shutdown();
+		return true;
+	}
+
+	/**
+	 * Connections of the pool at a given time
+	 */
+	public static class Stats {
+		private final int leased;
+		private final int available;
+		private final int pending;
+		private final int max;
+
+		Stats(int leased, int available, int pending, int max) {
+			this.leased = leased;
+			this.available = available;
+			this.pending = pending;
+			this.max = max;
+		}
+
+		/**
+		 * @return connections in use
+		 */
+		public int getLeased() {
+			return leased;
+		}
+
+		/**
+		 * @return open connections waiting to be used
+		 */
+		public int getAvailable() {
+			return available;
+		}
+
+		/**
+		 * @return requests waiting for a connection
+		 */
+		public int getPending() {
+			return pending;
+		}
+
+		public int getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Stats [leased=%d, available=%d, pending=%d, max=%d]", leased,
+					available, pending, max);
+		}
+	}
+
+	/**
+	 * Connection manager whose pool can be counted
+	 */
+	private static class PoolManager extends ThreadSafeClientConnManager {
+
+		PoolManager(SchemeRegistry registry) {
+			super(registry);
+		}
+
+		@Override
+		protected ConnPoolByRoute createConnectionPool(long connTTL, TimeUnit connTTLTimeUnit) {
+			return new MeteredPool(connOperator, connPerRoute, connTTL, connTTLTimeUnit);
+		}
+
+		Stats getStats() {
+			return ((MeteredPool) pool).getStats();
+		}
+	}
+
+	private static class MeteredPool extends ConnPoolByRoute {
+
+		MeteredPool(ClientConnectionOperator operator, ConnPerRoute connPerRoute, long connTTL,
+				TimeUnit connTTLTimeUnit) {
+			super(operator, connPerRoute, DEFAULT_MAX_TOTAL, connTTL, connTTLTimeUnit);
+		}
+
+		Stats getStats() {
+			Lock lock = getLock();
+			lock.lock();
+			try {
+				return new Stats(leasedConnections.size(), freeConnections.size(),
+						waitingThreads.size(), getMaxTotalConnections());
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -1,11 +1,13 @@
 package com.github.andlyticsproject.console.v2;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -14,14 +16,17 @@ import org.slf4j.LoggerFactory;
 import com.github.andlyticsproject.console.DevConsoleException;
 import com.github.andlyticsproject.model.AppDetails;
 import com.github.andlyticsproject.model.AppHistoricalStats;
-import com.github.andlyticsproject.model.AppHistoricalStatsElement;
 import com.github.andlyticsproject.model.AppInfo;
 import com.github.andlyticsproject.model.AppStats;
 import com.github.andlyticsproject.model.Comment;
+import com.github.andlyticsproject.model.TimeSeries;
 
 /**
  * This class contains static methods used to parse JSON from {@link DevConsoleV2}
  * 
+ * Responses are read with a {@link JsonReader} straight into the model, the
+ * String versions wrap the text in a reader.
+ * 
  * See {@link https://github.com/AndlyticsProject/andlytics/wiki/Developer-Console-v2} for some more
  * documentation
  * 
@@ -35,8 +40,6 @@ public class JsonParser {
 
 	private static final String TAG = JsonParser.class.getSimpleName();
 
-	private static final boolean DEBUG = false;
-
 	private JsonParser() {
 
 	}
@@ -50,75 +53,131 @@ public class JsonParser {
 	 * @throws JSONException
 	 */
 	static void parseRatings(String json, AppStats stats) throws JSONException {
-		// Extract just the array with the values
-		JSONObject values = new JSONObject(json).getJSONObject("result").getJSONArray("1")
-				.getJSONObject(0);
+		int[] ratings;
+		try {
+			ratings = parseRatings(new StringReader(json));
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+		stats.setRating(ratings[0], ratings[1], ratings[2], ratings[3], ratings[4]);
+	}
 
+	/**
+	 * @return the number of ratings of 1 to 5 stars
+	 */
+	static int[] parseRatings(Reader json) throws IOException, JSONException {
+		JsonReader reader = new JsonReader(json);
+		// Extract just the array with the values
+		beginResult(reader);
+		reader.beginObject();
+		findName(reader, "1", true);
+		reader.beginArray();
+		reader.beginObject();
 		// Ratings are at index 2 - 6
-		stats.setRating(values.getInt("2"), values.getInt("3"), values.getInt("4"),
-				values.getInt("5"), values.getInt("6"));
-
+		int[] ratings = new int[5];
+		while (reader.hasNext()) {
+			String name = reader.nextName();
+			int index = name.length() == 1 ? name.charAt(0) - '2' : -1;
+			if (index >= 0 && index < ratings.length) {
+				ratings[index] = reader.nextInt();
+			} else {
+				reader.skipValue();
+			}
+		}
+		return ratings;
 	}
 
 	/**
-	 * Parses the supplied JSON string and adds the extracted statistics to the supplied
-	 * {@link AppStats} object
-	 * based on the supplied statsType
-	 * Not used at the moment
-	 * 
-	 * @param json
-	 * @param stats
-	 * @param statsType
-	 * @throws JSONException
+	 * Parses a getCombinedStats response into the historical stats of the
+	 * given type. Breakdowns by the STATS_BY_* dimensions are skipped for now.
 	 */
 	static void parseStatistics(String json, AppStats stats, int statsType) throws JSONException {
+		try {
+			setStatistics(stats, statsType, parseStatistics(new StringReader(json)));
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	/**
+	 * @return the timeline of a getCombinedStats response, read in one pass
+	 */
+	static TimeSeries parseStatistics(Reader json) throws IOException, JSONException {
+		JsonReader reader = new JsonReader(json);
 		// Extract the top level values array
-		JSONObject values = new JSONObject(json).getJSONObject("result").getJSONObject("1");
-		
-		// For now we just care about todays value, later we may delve into the historical and
-		// dimensioned data
-		JSONArray historicalData = values.getJSONObject("1").getJSONArray("1");
-		JSONObject latestData = historicalData.getJSONObject(historicalData.length() - 1);
-		
-		int latestValue = latestData.getJSONObject("2").getInt("1");
+		beginResult(reader);
+		reader.beginObject();
+		findName(reader, "1", true);
+		reader.beginObject();
+		findName(reader, "1", true);
+		reader.beginObject();
+		findName(reader, "1", true);
+
+		TimeSeries.Builder timeline = new TimeSeries.Builder();
+		reader.beginArray();
+		while (reader.hasNext()) {
+			Long date = null;
+			long number = 0;
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String name = reader.nextName();
+				if ("1".equals(name)) {
+					date = reader.nextLong();
+				} else if ("2".equals(name)) {
+					reader.beginObject();
+					if (findName(reader, "1", false)) {
+						number = reader.nextLong();
+					}
+					endObject(reader);
+				} else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			if (date == null) {
+				throw new JSONException("JSONObject[\"1\"] not found.");
+			}
+			timeline.add(parseDate(date), number);
+		}
+		// the rest of the response holds the STATS_BY_* breakdowns, skipped
+		// until their layout is known
+		return timeline.build();
+	}
+
+	/**
+	 * Adds a statistics timeline to the historical stats of the given type.
+	 * 
+	 * The latest value only fills the totals the app info did not bring,
+	 * since the app info is more up to date than the last day of the
+	 * timeline.
+	 */
+	static void setStatistics(AppStats stats, int statsType, TimeSeries timeline) {
 		if(stats.getHistoricalStats()==null){
 			stats.setHistoricalStats(new AppHistoricalStats());
 		}
+		AppHistoricalStats historicalStats = stats.getHistoricalStats();
+		int latestValue = (int) timeline.getLatestValue();
 		switch (statsType) {
 			case DevConsoleV2Protocol.STATS_TYPE_TOTAL_USER_INSTALLS:
-				stats.setTotalDownloads(latestValue);
+				historicalStats.setTotalInstallsByUserSeries(timeline);
+				if (stats.getTotalDownloads() == 0) {
+					stats.setTotalDownloads(latestValue);
+				}
 				break;
 			case DevConsoleV2Protocol.STATS_TYPE_DAILY_DEVICE_INSTALLS:
-				
-				stats.getHistoricalStats().setDailyInstallsByDevice(parseStatisticsHistoricalData(historicalData));
+				historicalStats.setDailyInstallsByDeviceSeries(timeline);
 				break;
 			case DevConsoleV2Protocol.STATS_TYPE_ACTIVE_DEVICE_INSTALLS:
-				stats.setActiveInstalls(latestValue);
+				historicalStats.setCurrentInstallsByDeviceSeries(timeline);
+				if (stats.getActiveInstalls() == 0) {
+					stats.setActiveInstalls(latestValue);
+				}
 				break;
 			default:
 				break;
 		}
-		
-		
-
 	}
-	static List<AppHistoricalStatsElement> parseStatisticsHistoricalData(JSONArray result) throws JSONException {
-		// Extract the top level values array
-		
-		// For now we just care about todays value, later we may delve into the historical and
-		// dimensioned data
-		List<AppHistoricalStatsElement> elements=new ArrayList<AppHistoricalStatsElement>();
-		for(int i=0;i<result.length();i++)
-		{
-			JSONObject obj=result.getJSONObject(i);
-			long date=obj.getLong("1");
-			String number=obj.getJSONObject("2").getString("1");			
-			elements.add(new AppHistoricalStatsElement(new Date(date), number));
-		}
-		return elements;
 
-	}
-	
 	/**
 	 * Parses the supplied JSON string and builds a list of apps from it
 	 * 
@@ -130,40 +189,63 @@ public class JsonParser {
 	 */
 	static List<AppInfo> parseAppInfos(String json, String accountName,String developerId, boolean skipIncomplete)
 			throws JSONException {
+		try {
+			return parseAppInfos(new StringReader(json), accountName, developerId, skipIncomplete);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
 
-		
+	static List<AppInfo> parseAppInfos(Reader json, String accountName,String developerId, boolean skipIncomplete)
+			throws IOException, JSONException {
 		List<AppInfo> apps = new ArrayList<AppInfo>();
+		JsonReader reader = new JsonReader(json);
 		// Extract the base array containing apps
-		JSONObject result = new JSONObject(json).getJSONObject("result");
-		if (DEBUG) {
-			pp("result", result);
-		}
-
-		JSONArray jsonApps = result.optJSONArray("1");
-		if (DEBUG) {
-			pp("jsonApps", jsonApps);
-		}
-		if (jsonApps == null) {
+		beginResult(reader);
+		reader.beginObject();
+		if (!findName(reader, "1", false) || reader.peek() != JsonReader.Token.BEGIN_ARRAY) {
 			// no apps yet?
 			return apps;
 		}
 
-		int numberOfApps = jsonApps.length();
-//		System.out.println(String.format("Found %d apps in JSON", numberOfApps));
-		for (int i = 0; i < numberOfApps; i++) {
-		
-			JSONObject jsonApp = jsonApps.getJSONObject(i);
-			AppInfo app=parseApp(jsonApp, skipIncomplete,developerId,accountName);      
+		reader.beginArray();
+		while (reader.hasNext()) {
+			AppInfo app=parseApp(reader, skipIncomplete,developerId,accountName);      
 			if(app!=null){
 			apps.add(app);
 			}
-                        
 		}
-
 		return apps;
 	}
+
+	static AppInfo parseAppInfo(String json, String accountName,String developerId, boolean skipIncomplete)
+			throws JSONException {
+		try {
+			return parseAppInfo(new StringReader(json), accountName, developerId, skipIncomplete);
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	static AppInfo parseAppInfo(Reader json, String accountName,String developerId, boolean skipIncomplete)
+			throws IOException, JSONException {
+		JsonReader reader = new JsonReader(json);
+		// Extract the base array containing apps
+		beginResult(reader);
+		reader.beginObject();
+		if (!findName(reader, "1", false) || reader.peek() != JsonReader.Token.BEGIN_ARRAY) {
+			// no apps yet?
+			return null;
+		}
+		reader.beginArray();
+		if (!reader.hasNext()) {
+			return null;
+		}
+		// the rest of the response is not needed
+		return parseApp(reader, false,developerId,accountName); 
+	}
 	
-	private static AppInfo parseApp(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) throws JSONException
+	private static AppInfo parseApp(JsonReader reader,boolean skipIncomplete,String developerId,String accountName) throws IOException, JSONException
 	{
 		Date now = new Date();
 		AppInfo app = new AppInfo();
@@ -206,208 +288,223 @@ public class JsonParser {
 		 * * Total installs
 		 * ]
 		 */
-		JSONObject jsonAppInfo = jsonApp.getJSONObject("1");
-		if (DEBUG) {
-			pp("jsonAppInfo", jsonAppInfo);
-		}
-		String packageName = jsonAppInfo.getString("1");
-                    
-                    
-		// TODO figure out the rest and add don't just skip, filter, etc. Cf. #223
-		int publishState = jsonAppInfo.optInt("7");
-                    
+		String packageName = null;
+		int publishState = 0;
+		boolean hasDetails = false;
+		String name = null;
+		String description = null;
+		String changelog = "";
+		boolean hasVersions = false;
+		// details of the last version
+		boolean versioned = false;
+		String versionName = null;
+		String iconUrl = null;
+		// -1 when there are no stats
+		int appStatsSize = -1;
+		int activeInstalls = 0;
+		int numberOfComments = 0;
+		String avgRating = null;
+		int numberOfErrors = 0;
+		int totalDownloads = 0;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String key = reader.nextName();
+			if ("1".equals(key)) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String appInfoKey = reader.nextName();
+					if ("1".equals(appInfoKey)) {
+						packageName = reader.nextString();
+					} else if ("7".equals(appInfoKey)) {
+						// TODO figure out the rest and add don't just skip, filter, etc. Cf. #223
+						publishState = optInt(reader);
+					} else if ("2".equals(appInfoKey)) {
+						hasDetails = true;
+						reader.beginObject();
+						if (findName(reader, "1", false)) {
+							reader.beginArray();
+							if (reader.hasNext()) {
+								reader.beginObject();
+								while (reader.hasNext()) {
+									String detailsKey = reader.nextName();
+									if ("2".equals(detailsKey)) {
+										name = reader.nextString();
+									} else if ("3".equals(detailsKey)) {
+										description = reader.nextString();
+									} else if ("5".equals(detailsKey)) {
+										changelog = reader.nextString();
+									} else {
+										reader.skipValue();
+									}
+								}
+								reader.endObject();
+							}
+							endArray(reader);
+						}
+						endObject(reader);
+					} else if ("4".equals(appInfoKey)) {
+						hasVersions = true;
+						//Check application is versioned
+						if (reader.peek() != JsonReader.Token.BEGIN_OBJECT) {
+							reader.skipValue();
+							continue;
+						}
+						reader.beginObject();
+						if (findName(reader, "1", false) && reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+							reader.beginArray();
+							while (reader.hasNext()) {
+								// only the last version is kept
+								versioned = true;
+								versionName = null;
+								iconUrl = null;
+								reader.beginObject();
+								while (reader.hasNext()) {
+									if (!"2".equals(reader.nextName())) {
+										reader.skipValue();
+										continue;
+									}
+									reader.beginObject();
+									while (reader.hasNext()) {
+										String versionKey = reader.nextName();
+										if ("4".equals(versionKey)) {
+											versionName = reader.nextString();
+										} else if ("6".equals(versionKey)) {
+											reader.beginObject();
+											if (findName(reader, "3", false)) {
+												iconUrl = reader.nextString();
+											}
+											endObject(reader);
+										} else {
+											reader.skipValue();
+										}
+									}
+									reader.endObject();
+								}
+								reader.endObject();
+							}
+							reader.endArray();
+						}
+						endObject(reader);
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else if ("3".equals(key) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				// XXX this index might not be correct for all apps?
+				// 3 : { 1: active dnd, 2: # ratings, 3: avg rating, 4: #errors?, 5: total dnd }
+				appStatsSize = 0;
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String statsKey = reader.nextName();
+					appStatsSize++;
+					/*
+					 * 1 = Active Installs
+					 * 2 = Number Rates
+					 * 3 = Average Rating
+					 * 4 = Errors
+					 * 5 = Total Downloads
+					 */
+					if ("1".equals(statsKey)) {
+						activeInstalls = reader.nextInt();
+					} else if ("2".equals(statsKey)) {
+						numberOfComments = reader.nextInt();
+					} else if ("3".equals(statsKey)) {
+						avgRating = reader.nextString();
+					} else if ("4".equals(statsKey)) {
+						numberOfErrors = optInt(reader);
+					} else if ("5".equals(statsKey)) {
+						totalDownloads = reader.nextInt();
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (packageName == null) {
+			throw new JSONException("JSONObject[\"1\"] not found.");
+		}
 		app.setPublishState(publishState);
 		app.setPackageName(packageName);
 
 		// skip if we can't get all the data
 		// XXX should we just let this crash so we know there is a problem?
-                    if (!jsonAppInfo.has("2")) {
-			if (skipIncomplete) {
-				if (logger.isDebugEnabled()) {
-					logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", String.format("Skipping app because no app details found: package name=%s", packageName)); //$NON-NLS-1$ //$NON-NLS-2$
-					return null;
-				}
-			} else {
-				if (logger.isDebugEnabled()) {
-					logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", "Adding incomplete app: " + packageName); //$NON-NLS-1$ //$NON-NLS-2$
-				}
-	
-				
-			}
-			
-		}
-                    else{
-            			JSONObject appDetails = jsonAppInfo.getJSONObject("2").getJSONArray("1")
-        						.getJSONObject(0);
-        				if (DEBUG) {
-        					pp("appDetails", appDetails);
-        				}
-        				app.setName(appDetails.getString("2"));
-        				String description = appDetails.getString("3");
-        				String changelog = appDetails.optString("5");
-        				Long lastPlayStoreUpdate = jsonAppInfo.optLong("7");
-        				AppDetails details = new AppDetails(description, changelog, lastPlayStoreUpdate);
-        				app.setDetails(details);
-                    	
-                    }
-            		
-            		JSONArray appVersions =null;
-		if (!jsonAppInfo.has("4")) {
+		if (!hasDetails) {
 			if (skipIncomplete) {
 				if (logger.isDebugEnabled()) {
-					logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", String.format("Skipping app because no versions info found: package name=%s", packageName)); //$NON-NLS-1$ //$NON-NLS-2$
+					logger.debug("parseApp() - {}", String.format("Skipping app because no app details found: package name=%s", packageName)); //$NON-NLS-1$ //$NON-NLS-2$
 					return null;
 				}
 			} else {
 				if (logger.isDebugEnabled()) {
-					logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", "Adding incomplete app: " + packageName); //$NON-NLS-1$ //$NON-NLS-2$
+					logger.debug("parseApp() - {}", "Adding incomplete app: " + packageName); //$NON-NLS-1$ //$NON-NLS-2$
 				}
-				
-				
 			}
-			
-		}
-		else{
-			//Check application is versioned
-			appVersions = jsonAppInfo.optJSONObject("4").optJSONArray("1");
+		} else {
+			app.setName(name);
+			// the publish state doubles as the last store update
+			AppDetails details = new AppDetails(description, changelog, Long.valueOf(publishState));
+			app.setDetails(details);
 		}
 
-
-
-		if (DEBUG) {
-			pp("appVersions", appVersions);
-		}
-		if (appVersions == null) {
+		if (!hasVersions || !versioned) {
 			if (skipIncomplete) {
 				if (logger.isDebugEnabled()) {
-					logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", String.format("Skipping app because no versions info found: package name=%s", packageName)); //$NON-NLS-1$ //$NON-NLS-2$
+					logger.debug("parseApp() - {}", String.format("Skipping app because no versions info found: package name=%s", packageName)); //$NON-NLS-1$ //$NON-NLS-2$
 					return null;
 				}
 			} else {
 				if (logger.isDebugEnabled()) {
-					logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", "Adding incomplete app: " + packageName); //$NON-NLS-1$ //$NON-NLS-2$
-					
+					logger.debug("parseApp() - {}", "Adding incomplete app: " + packageName); //$NON-NLS-1$ //$NON-NLS-2$
 				}
-				
-				
 			}
-			
-		}
-		else
-		{
-			JSONObject lastAppVersionDetails = appVersions.getJSONObject(appVersions.length() - 1)
-					.getJSONObject("2");
-			if (DEBUG) {
-				pp("lastAppVersionDetails", lastAppVersionDetails);
-			}
-			app.setVersionName(lastAppVersionDetails.getString("4"));
-			app.setIconUrl(lastAppVersionDetails.getJSONObject("6").getString("3"));
+		} else {
+			app.setVersionName(versionName);
+			app.setIconUrl(iconUrl);
 		}
-                    
-		
 
-		// XXX this index might not be correct for all apps?
-		// 3 : { 1: active dnd, 2: # ratings, 3: avg rating, 4: #errors?, 5: total dnd }
-		JSONObject jsonAppStats = jsonApp.optJSONObject("3");
-		if (DEBUG) {
-			pp("jsonAppStats", jsonAppStats);
-		}
-		if (jsonAppStats == null) {
+		if (appStatsSize < 0) {
 			if (skipIncomplete) {
 				if (logger.isDebugEnabled()) {
-					logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", String.format("Skipping app because no stats found: package name=%s", packageName)); //$NON-NLS-1$ //$NON-NLS-2$
+					logger.debug("parseApp() - {}", String.format("Skipping app because no stats found: package name=%s", packageName)); //$NON-NLS-1$ //$NON-NLS-2$
 					return null;
 				}
 			} else {
 				if (logger.isDebugEnabled()) {
-					logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", "Adding incomplete app: " + packageName); //$NON-NLS-1$ //$NON-NLS-2$
+					logger.debug("parseApp() - {}", "Adding incomplete app: " + packageName); //$NON-NLS-1$ //$NON-NLS-2$
 				}
-				
 			}
-			
 		}
-                    
+
 		AppStats stats = new AppStats();
 		stats.setRequestDate(now);
-		if (jsonAppStats==null||jsonAppStats.length() < 4) {
+		if (appStatsSize < 4) {
 			// no statistics (yet?) or weird format
 			// TODO do we need differentiate?
 			stats.setActiveInstalls(0);
 			stats.setTotalDownloads(0);
 			stats.setNumberOfErrors(0);
-                            stats.setAvgRatingDiff(0);
-                            
+			stats.setAvgRatingDiff(0);
 		} else {
-                        /*
-                         * 1 = Active Installs
-                         * 2 = Number Rates
-                         * 3 = Average Rating
-                         * 4 = Errors
-                         * 5 = Total Downloads
-                         */
-			stats.setActiveInstalls(jsonAppStats.getInt("1"));
-			stats.setTotalDownloads(jsonAppStats.getInt("5"));
-			stats.setNumberOfComments(jsonAppStats.getInt("2"));
-		stats.setNumberOfErrors(jsonAppStats.optInt("4"));
-                            stats.setAvgRatingDiff(Float.parseFloat(jsonAppStats.optString("3")));
-                            
-		}
-                    
-                    app.setLatestStats(stats);
-                                            
-		if (logger.isDebugEnabled()) {
-			logger.debug("(JSONObject jsonApp,boolean skipIncomplete,String developerId,String accountName) - {}", app.getPackageName() + ", " + app.getAccount() + ", " + app.getName() + ", " + app.getVersionName() + ", " + stats.getTotalDownloads() + ", " + stats.getActiveInstalls() + ", " + stats.getAvgRatingDiff() + ", "); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
+			stats.setActiveInstalls(activeInstalls);
+			stats.setTotalDownloads(totalDownloads);
+			stats.setNumberOfComments(numberOfComments);
+			stats.setNumberOfErrors(numberOfErrors);
+			stats.setAvgRatingDiff(avgRating == null ? 0 : Float.parseFloat(avgRating));
 		}
-		return app;
-	}
-	static AppInfo parseAppInfo(String json, String accountName,String developerId, boolean skipIncomplete)
-			throws JSONException {
 
-		
-		AppInfo app = null;
-		// Extract the base array containing apps
-		JSONObject result = new JSONObject(json).getJSONObject("result");
-		if (DEBUG) {
-			pp("result", result);
-		}
+		app.setLatestStats(stats);
 
-		JSONArray jsonArray = result.optJSONArray("1");
-		
-		if (DEBUG) {
-			pp("jsonArray", jsonArray);
-		}
-		if (jsonArray == null) {
-			// no apps yet?
-			return app;
-		}
-		JSONObject jsonApp=jsonArray.optJSONObject(0);
-		app=parseApp(jsonApp, false,developerId,accountName); 
-
-			return app;
-	}
-
-	private static void pp(String name, JSONArray jsonArr) {
-		try {
-			String pp = jsonArr == null ? "null" : jsonArr.toString(2);
-			if (logger.isDebugEnabled()) {
-				logger.debug("pp(String, JSONArray) - {}", String.format("%s: %s", name, pp)); //$NON-NLS-1$ //$NON-NLS-2$
-				logger.debug("pp(String, JSONArray) - pp on JsonParser: {}", pp); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-		} catch (JSONException e) {
-			logger.error("pp(String, JSONArray) - {}", "Error printing JSON: " + e.getMessage() + e); //$NON-NLS-1$ //$NON-NLS-2$
-		}
-	}
-
-	private static void pp(String name, JSONObject jsonObj) {
-		try {
-			String pp = jsonObj == null ? "null" : jsonObj.toString(2);
-			if (logger.isDebugEnabled()) {
-				logger.debug("pp(String, JSONObject) - {}", String.format("%s: %s", name, pp)); //$NON-NLS-1$ //$NON-NLS-2$
-				logger.debug("pp(String, JSONObject) - pp on JsonParser: {}", pp); //$NON-NLS-1$ //$NON-NLS-2$
-			}
-		} catch (JSONException e) {
-			logger.error("pp(String, JSONObject) - {}", "Error printing JSON: " + e.getMessage() + e); //$NON-NLS-1$ //$NON-NLS-2$
+		if (logger.isDebugEnabled()) {
+			logger.debug("parseApp() - {}", app.getPackageName() + ", " + app.getAccount() + ", " + app.getName() + ", " + app.getVersionName() + ", " + stats.getTotalDownloads() + ", " + stats.getActiveInstalls() + ", " + stats.getAvgRatingDiff() + ", "); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$
 		}
+		return app;
 	}
 
 	/**
@@ -418,13 +515,25 @@ public class JsonParser {
 	 * @throws JSONException
 	 */
 	static int parseCommentsCount(String json) throws JSONException {
+		try {
+			return parseCommentsCount(new StringReader(json));
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	static int parseCommentsCount(Reader json) throws IOException, JSONException {
+		JsonReader reader = new JsonReader(json);
 		// Just extract the number of comments
 		/*
 		 * null
 		 * Array containing arrays of comments
 		 * numberOfComments
 		 */
-		return new JSONObject(json).getJSONObject("result").getInt("2");
+		beginResult(reader);
+		reader.beginObject();
+		findName(reader, "2", true);
+		return reader.nextInt();
 	}
 
 	/**
@@ -435,119 +544,275 @@ public class JsonParser {
 	 * @throws JSONException
 	 */
 	static List<Comment> parseComments(String json) throws JSONException {
+		try {
+			return parseComments(new StringReader(json));
+		} catch (IOException e) {
+			throw new JSONException(e);
+		}
+	}
+
+	static List<Comment> parseComments(Reader json) throws IOException, JSONException {
 		List<Comment> comments = new ArrayList<Comment>();
+		JsonReader reader = new JsonReader(json);
 		/*
 		 * null
 		 * Array containing arrays of comments
 		 * numberOfComments
 		 */
-		JSONArray jsonComments = new JSONObject(json).getJSONObject("result").getJSONArray("1");
-		int count = jsonComments.length();
-		for (int i = 0; i < count; i++) {
-			Comment comment = new Comment();
-			JSONObject jsonComment = jsonComments.getJSONObject(i);
-			// TODO These examples are out of date and need updating
-			/*
-			 * null
-			 * "gaia:17919762185957048423:1:vm:11887109942373535891", -- ID?
-			 * "REVIEWERS_NAME",
-			 * "1343652956570", -- DATE?
-			 * RATING,
-			 * null
-			 * "COMMENT",
-			 * null,
-			 * "VERSION_NAME",
-			 * [ null,
-			 * "DEVICE_CODE_NAME",
-			 * "DEVICE_MANFACTURER",
-			 * "DEVICE_MODEL"
-			 * ],
-			 * "LOCALE",
-			 * null,
-			 * 0
-			 */
-			// Example with developer reply
-			/*
-			 * [
-			 * null,
-			 * "gaia:12824185113034449316:1:vm:18363775304595766012",
-			 * "Micka?l",
-			 * "1350333837326",
-			 * 1,
-			 * "",
-			 * "Nul\tNul!! N'arrive pas a scanner le moindre code barre!",
-			 * 73,
-			 * "3.2.5",
-			 * [
-			 * null,
-			 * "X10i",
-			 * "SEMC",
-			 * "Xperia X10"
-			 * ],
-			 * "fr_FR",
-			 * [
-			 * null,
-			 * "Prixing fonctionne pourtant bien sur Xperia X10. Essayez de prendre un minimum de recul, au moins 20 ? 30cm, ?vitez les ombres et les reflets. N'h?sitez pas ? nous ?crire sur contact@prixing.fr pour une assistance personnalis?e."
-			 * ,
-			 * null,
-			 * "1350393460968"
-			 * ],
-			 * 1
-			 * ]
-			 */
-			String uniqueId = jsonComment.getString("1");
-			comment.setUniqueId(uniqueId);
-			String user = jsonComment.optString("2");
-			if (user != null && !"".equals(user) && !"null".equals(user)) {
-				comment.setUser(user);
-			}
-			comment.setDate(parseDate(jsonComment.getLong("3")));
-			comment.setRating(jsonComment.getInt("4"));
-			String version = jsonComment.optString("7");
-			if (version != null && !"".equals(version) && !version.equals("null")) {
-				comment.setAppVersion(version);
-			}
+		beginResult(reader);
+		reader.beginObject();
+		findName(reader, "1", true);
+		reader.beginArray();
+		while (reader.hasNext()) {
+			comments.add(parseComment(reader));
+		}
+		return comments;
+	}
 
-			String commentLang = jsonComment.optJSONObject("5").getString("1");
-			String commentText = jsonComment.optJSONObject("5").getString("3");
-			comment.setLanguage(commentLang);
-			comment.setOriginalText(commentText);
-			// overwritten if translation is available
-			comment.setText(commentText);
-
-			JSONObject translation = jsonComment.optJSONObject("11");
-			if (translation != null) {
-				String displayLanguage = Locale.getDefault().getLanguage();
-				String translationLang = translation.getString("1");
-				String translationText = translation.getString("3");
-				if (translationLang.contains(displayLanguage)) {
-					comment.setText(translationText);
+	private static Comment parseComment(JsonReader reader) throws IOException, JSONException {
+		// TODO These examples are out of date and need updating
+		/*
+		 * null
+		 * "gaia:17919762185957048423:1:vm:11887109942373535891", -- ID?
+		 * "REVIEWERS_NAME",
+		 * "1343652956570", -- DATE?
+		 * RATING,
+		 * null
+		 * "COMMENT",
+		 * null,
+		 * "VERSION_NAME",
+		 * [ null,
+		 * "DEVICE_CODE_NAME",
+		 * "DEVICE_MANFACTURER",
+		 * "DEVICE_MODEL"
+		 * ],
+		 * "LOCALE",
+		 * null,
+		 * 0
+		 */
+		// Example with developer reply
+		/*
+		 * [
+		 * null,
+		 * "gaia:12824185113034449316:1:vm:18363775304595766012",
+		 * "Micka?l",
+		 * "1350333837326",
+		 * 1,
+		 * "",
+		 * "Nul\tNul!! N'arrive pas a scanner le moindre code barre!",
+		 * 73,
+		 * "3.2.5",
+		 * [
+		 * null,
+		 * "X10i",
+		 * "SEMC",
+		 * "Xperia X10"
+		 * ],
+		 * "fr_FR",
+		 * [
+		 * null,
+		 * "Prixing fonctionne pourtant bien sur Xperia X10. Essayez de prendre un minimum de recul, au moins 20 ? 30cm, ?vitez les ombres et les reflets. N'h?sitez pas ? nous ?crire sur contact@prixing.fr pour une assistance personnalis?e."
+		 * ,
+		 * null,
+		 * "1350393460968"
+		 * ],
+		 * 1
+		 * ]
+		 */
+		Comment comment = new Comment();
+		String uniqueId = null;
+		Long date = null;
+		Integer rating = null;
+		String commentLang = null;
+		String commentText = null;
+		String translationLang = null;
+		String translationText = null;
+		String deviceName = null;
+		String deviceExtraInfo = null;
+		boolean hasDevice = false;
+		Comment reply = null;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String key = reader.nextName();
+			if ("1".equals(key)) {
+				uniqueId = reader.nextString();
+			} else if ("2".equals(key)) {
+				String user = reader.nextString();
+				if (user != null && !"".equals(user) && !"null".equals(user)) {
+					comment.setUser(user);
+				}
+			} else if ("3".equals(key)) {
+				date = reader.nextLong();
+			} else if ("4".equals(key)) {
+				rating = reader.nextInt();
+			} else if ("7".equals(key)) {
+				String version = reader.nextString();
+				if (version != null && !"".equals(version) && !version.equals("null")) {
+					comment.setAppVersion(version);
+				}
+			} else if ("5".equals(key) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String textKey = reader.nextName();
+					if ("1".equals(textKey)) {
+						commentLang = reader.nextString();
+					} else if ("3".equals(textKey)) {
+						commentText = reader.nextString();
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else if ("11".equals(key) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String textKey = reader.nextName();
+					if ("1".equals(textKey)) {
+						translationLang = reader.nextString();
+					} else if ("3".equals(textKey)) {
+						translationText = reader.nextString();
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else if ("8".equals(key) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				hasDevice = true;
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String deviceKey = reader.nextName();
+					if ("3".equals(deviceKey)) {
+						deviceName = reader.nextString();
+					} else if ("2".equals(deviceKey) && reader.peek() == JsonReader.Token.BEGIN_ARRAY) {
+						reader.beginArray();
+						deviceExtraInfo = reader.hasNext() ? reader.nextString() : "";
+						endArray(reader);
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+			} else if ("9".equals(key) && reader.peek() == JsonReader.Token.BEGIN_OBJECT) {
+				reply = new Comment(true);
+				Long replyDate = null;
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String replyKey = reader.nextName();
+					if ("1".equals(replyKey)) {
+						reply.setText(reader.nextString());
+					} else if ("3".equals(replyKey)) {
+						replyDate = reader.nextLong();
+					} else {
+						reader.skipValue();
+					}
 				}
+				reader.endObject();
+				if (replyDate == null) {
+					throw new JSONException("JSONObject[\"3\"] not found.");
+				}
+				reply.setDate(parseDate(replyDate));
+			} else {
+				reader.skipValue();
 			}
+		}
+		reader.endObject();
 
-			JSONObject jsonDevice = jsonComment.optJSONObject("8");
-			if (jsonDevice != null) {
-				String device = jsonDevice.optString("3");
-				JSONArray extraInfo = jsonDevice.optJSONArray("2");
-				if (extraInfo != null) {
-					device += " " + extraInfo.optString(0);
-				}
-				comment.setDevice(device.trim());
+		if (uniqueId == null || date == null || rating == null || commentText == null) {
+			throw new JSONException("Incomplete comment " + uniqueId);
+		}
+		comment.setUniqueId(uniqueId);
+		comment.setDate(parseDate(date));
+		comment.setRating(rating);
+		comment.setLanguage(commentLang);
+		comment.setOriginalText(commentText);
+		// overwritten if translation is available
+		comment.setText(commentText);
+
+		if (translationLang != null) {
+			String displayLanguage = Locale.getDefault().getLanguage();
+			if (translationLang.contains(displayLanguage)) {
+				comment.setText(translationText);
 			}
+		}
 
-			JSONObject jsonReply = jsonComment.optJSONObject("9");
-			if (jsonReply != null) {
-				Comment reply = new Comment(true);
-				reply.setText(jsonReply.getString("1"));
-				reply.setDate(parseDate(jsonReply.getLong("3")));
-				reply.setOriginalCommentDate(comment.getDate());
-				comment.setReply(reply);
+		if (hasDevice) {
+			String device = deviceName == null ? "" : deviceName;
+			if (deviceExtraInfo != null) {
+				device += " " + deviceExtraInfo;
 			}
+			comment.setDevice(device.trim());
+		}
 
-			comments.add(comment);
+		if (reply != null) {
+			reply.setOriginalCommentDate(comment.getDate());
+			comment.setReply(reply);
 		}
+		return comment;
+	}
 
-		return comments;
+	/**
+	 * Moves the reader to the value of "result"
+	 */
+	private static void beginResult(JsonReader reader) throws IOException, JSONException {
+		reader.beginObject();
+		findName(reader, "result", true);
+	}
+
+	/**
+	 * Skips the members of the current object up to the given name
+	 * 
+	 * @return true with the reader on the value of the name, false with the
+	 *         reader at the end of the object
+	 * @throws JSONException
+	 *             if required and the object does not have the name
+	 */
+	private static boolean findName(JsonReader reader, String name, boolean required)
+			throws IOException, JSONException {
+		while (reader.hasNext()) {
+			if (name.equals(reader.nextName())) {
+				return true;
+			}
+			reader.skipValue();
+		}
+		if (required) {
+			throw new JSONException("JSONObject[\"" + name + "\"] not found.");
+		}
+		return false;
+	}
+
+	/**
+	 * Skips the rest of the current object and ends it
+	 */
+	private static void endObject(JsonReader reader) throws IOException, JSONException {
+		while (reader.hasNext()) {
+			reader.skipValue();
+		}
+		reader.endObject();
+	}
+
+	private static void endArray(JsonReader reader) throws IOException, JSONException {
+		while (reader.hasNext()) {
+			reader.skipValue();
+		}
+		reader.endArray();
+	}
+
+	/**
+	 * @return the number, or 0 for null or anything else, like
+	 *         JSONObject.optInt
+	 */
+	private static int optInt(JsonReader reader) throws IOException, JSONException {
+		JsonReader.Token token = reader.peek();
+		if (token != JsonReader.Token.NUMBER && token != JsonReader.Token.STRING) {
+			reader.skipValue();
+			return 0;
+		}
+		try {
+			return reader.nextInt();
+		} catch (JSONException e) {
+			return 0;
+		}
 	}
 
 	static Comment parseCommentReplyResponse(String json) throws JSONException {
@@ -0,0 +1,399 @@
+package com.github.andlyticsproject.console.v2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.json.JSONException;
+
+/**
+ * Pull parser reading JSON tokens straight from a {@link Reader}, so a
+ * response can be mapped to the model without holding the whole response or
+ * building a {@link org.json.JSONObject} tree. The API follows
+ * android.util.JsonReader.
+ *
+ * The console sends numbers both bare and quoted, so numbers can be read as
+ * strings and quoted numbers as numbers.
+ */
+class JsonReader implements Closeable {
+
+	enum Token {
+		BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+	}
+
+	// what the reader is in the middle of
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_ARRAY = 2;
+	private static final int NONEMPTY_ARRAY = 3;
+	private static final int EMPTY_OBJECT = 4;
+	private static final int DANGLING_NAME = 5;
+	private static final int NONEMPTY_OBJECT = 6;
+
+	private final Reader in;
+
+	private final char[] buffer = new char[1024];
+	private int pos;
+	private int limit;
+
+	private int[] stack = new int[32];
+	private int stackSize = 1;
+
+	// the next token, null until peek() reads it
+	private Token peeked;
+	// text of the peeked name, string, number or boolean
+	private String peekedText;
+
+	private final StringBuilder text = new StringBuilder();
+
+	JsonReader(Reader in) {
+		this.in = in;
+		stack[0] = EMPTY_DOCUMENT;
+	}
+
+	void beginArray() throws IOException, JSONException {
+		expect(Token.BEGIN_ARRAY);
+		push(EMPTY_ARRAY);
+	}
+
+	void endArray() throws IOException, JSONException {
+		expect(Token.END_ARRAY);
+		stackSize--;
+	}
+
+	void beginObject() throws IOException, JSONException {
+		expect(Token.BEGIN_OBJECT);
+		push(EMPTY_OBJECT);
+	}
+
+	void endObject() throws IOException, JSONException {
+		expect(Token.END_OBJECT);
+		stackSize--;
+	}
+
+	/**
+	 * @return whether the current array or object has more elements
+	 */
+	boolean hasNext() throws IOException, JSONException {
+		Token token = peek();
+		return token != Token.END_ARRAY && token != Token.END_OBJECT
+				&& token != Token.END_DOCUMENT;
+	}
+
+	String nextName() throws IOException, JSONException {
+		expect(Token.NAME);
+		return peekedText;
+	}
+
+	/**
+	 * @return the string, the text of a number or boolean, or null for a JSON
+	 *         null
+	 */
+	String nextString() throws IOException, JSONException {
+		Token token = peek();
+		if (token == Token.NULL) {
+			peeked = null;
+			return null;
+		}
+		if (token != Token.STRING && token != Token.NUMBER && token != Token.BOOLEAN) {
+			throw syntaxError("Expected a string but was " + token);
+		}
+		peeked = null;
+		return peekedText;
+	}
+
+	long nextLong() throws IOException, JSONException {
+		String number = nextNumber();
+		try {
+			return Long.parseLong(number);
+		} catch (NumberFormatException e) {
+			return (long) parseDouble(number);
+		}
+	}
+
+	int nextInt() throws IOException, JSONException {
+		String number = nextNumber();
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			return (int) parseDouble(number);
+		}
+	}
+
+	double nextDouble() throws IOException, JSONException {
+		return parseDouble(nextNumber());
+	}
+
+	boolean nextBoolean() throws IOException, JSONException {
+		expect(Token.BOOLEAN);
+		return "true".equals(peekedText);
+	}
+
+	void nextNull() throws IOException, JSONException {
+		expect(Token.NULL);
+	}
+
+	/**
+	 * Skips the next value, with all its nested arrays and objects
+	 */
+	void skipValue() throws IOException, JSONException {
+		int depth = 0;
+		do {
+			Token token = peek();
+			if (token == Token.BEGIN_ARRAY) {
+				beginArray();
+				depth++;
+			} else if (token == Token.BEGIN_OBJECT) {
+				beginObject();
+				depth++;
+			} else if (token == Token.END_ARRAY) {
+				endArray();
+				depth--;
+			} else if (token == Token.END_OBJECT) {
+				endObject();
+				depth--;
+			} else if (token == Token.END_DOCUMENT) {
+				throw syntaxError("Unexpected end of document");
+			} else {
+				peeked = null;
+			}
+		} while (depth > 0);
+	}
+
+	Token peek() throws IOException, JSONException {
+		if (peeked != null) {
+			return peeked;
+		}
+
+		int c;
+		switch (stack[stackSize - 1]) {
+		case EMPTY_DOCUMENT:
+			stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+			return readValue();
+		case NONEMPTY_DOCUMENT:
+			if (nextNonWhitespace() != -1) {
+				throw syntaxError("Expected the end of the document");
+			}
+			return peeked = Token.END_DOCUMENT;
+		case EMPTY_ARRAY:
+			stack[stackSize - 1] = NONEMPTY_ARRAY;
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return peeked = Token.END_ARRAY;
+			}
+			if (c != -1) {
+				pos--;
+			}
+			return readValue();
+		case NONEMPTY_ARRAY:
+			c = nextNonWhitespace();
+			if (c == ']') {
+				return peeked = Token.END_ARRAY;
+			}
+			if (c != ',') {
+				throw syntaxError("Unterminated array");
+			}
+			return readValue();
+		case EMPTY_OBJECT:
+		case NONEMPTY_OBJECT:
+			c = nextNonWhitespace();
+			if (c == '}') {
+				return peeked = Token.END_OBJECT;
+			}
+			if (stack[stackSize - 1] == NONEMPTY_OBJECT) {
+				if (c != ',') {
+					throw syntaxError("Unterminated object");
+				}
+				c = nextNonWhitespace();
+			}
+			if (c != '"') {
+				throw syntaxError("Expected a name");
+			}
+			stack[stackSize - 1] = DANGLING_NAME;
+			peekedText = readString();
+			return peeked = Token.NAME;
+		case DANGLING_NAME:
+			if (nextNonWhitespace() != ':') {
+				throw syntaxError("Expected ':'");
+			}
+			stack[stackSize - 1] = NONEMPTY_OBJECT;
+			return readValue();
+		default:
+			throw new IllegalStateException();
+		}
+	}
+
+	public void close() throws IOException {
+		in.close();
+	}
+
+	private Token readValue() throws IOException, JSONException {
+		int c = nextNonWhitespace();
+		switch (c) {
+		case '{':
+			return peeked = Token.BEGIN_OBJECT;
+		case '[':
+			return peeked = Token.BEGIN_ARRAY;
+		case '"':
+			peekedText = readString();
+			return peeked = Token.STRING;
+		case -1:
+			throw syntaxError("Unexpected end of document");
+		default:
+			pos--;
+			peekedText = readLiteral();
+			if ("true".equals(peekedText) || "false".equals(peekedText)) {
+				return peeked = Token.BOOLEAN;
+			}
+			if ("null".equals(peekedText)) {
+				return peeked = Token.NULL;
+			}
+			char first = peekedText.length() == 0 ? ' ' : peekedText.charAt(0);
+			if (first != '-' && (first < '0' || first > '9')) {
+				throw syntaxError("Unexpected value " + peekedText);
+			}
+			return peeked = Token.NUMBER;
+		}
+	}
+
+	private String nextNumber() throws IOException, JSONException {
+		Token token = peek();
+		if (token != Token.NUMBER && token != Token.STRING) {
+			throw syntaxError("Expected a number but was " + token);
+		}
+		peeked = null;
+		return peekedText;
+	}
+
+	private double parseDouble(String number) throws JSONException {
+		try {
+			return Double.parseDouble(number);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Expected a number but was \"" + number + "\"");
+		}
+	}
+
+	private void expect(Token expected) throws IOException, JSONException {
+		Token token = peek();
+		if (token != expected) {
+			throw syntaxError("Expected " + expected + " but was " + token);
+		}
+		peeked = null;
+	}
+
+	private void push(int scope) {
+		if (stackSize == stack.length) {
+			int[] newStack = new int[stackSize * 2];
+			System.arraycopy(stack, 0, newStack, 0, stackSize);
+			stack = newStack;
+		}
+		stack[stackSize++] = scope;
+	}
+
+	/**
+	 * @return the next character or -1 at the end of the input. The
+	 *         character can be given back with pos--
+	 */
+	private int read() throws IOException {
+		if (pos == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			pos = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[pos++];
+	}
+
+	private int nextNonWhitespace() throws IOException {
+		int c;
+		do {
+			c = read();
+		} while (c == ' ' || c == '\t' || c == '\n' || c == '\r');
+		return c;
+	}
+
+	/**
+	 * Reads up to the closing quote, the opening one is already read
+	 */
+	private String readString() throws IOException, JSONException {
+		text.setLength(0);
+		while (true) {
+			int c = read();
+			if (c == '"') {
+				return text.toString();
+			}
+			if (c == -1) {
+				throw syntaxError("Unterminated string");
+			}
+			if (c == '\\') {
+				c = read();
+				switch (c) {
+				case 'b':
+					text.append('\b');
+					break;
+				case 'f':
+					text.append('\f');
+					break;
+				case 'n':
+					text.append('\n');
+					break;
+				case 'r':
+					text.append('\r');
+					break;
+				case 't':
+					text.append('\t');
+					break;
+				case 'u':
+					int code = 0;
+					for (int i = 0; i < 4; i++) {
+						int digit = Character.digit(read(), 16);
+						if (digit < 0) {
+							throw syntaxError("Invalid unicode escape");
+						}
+						code = code * 16 + digit;
+					}
+					text.append((char) code);
+					break;
+				case -1:
+					throw syntaxError("Unterminated string");
+				default:
+					// \" \\ \/ and anything else escaped as itself
+					text.append((char) c);
+					break;
+				}
+			} else {
+				text.append((char) c);
+			}
+		}
+	}
+
+	private String readLiteral() throws IOException {
+		text.setLength(0);
+		while (true) {
+			int c = read();
+			switch (c) {
+			case ',':
+			case ']':
+			case '}':
+			case ':':
+			case ' ':
+			case '\t':
+			case '\n':
+			case '\r':
+				pos--;
+				return text.toString();
+			case -1:
+				return text.toString();
+			default:
+				text.append((char) c);
+			}
+		}
+	}
+
+	private JSONException syntaxError(String message) {
+		return new JSONException(message);
+	}
+
+}
@@ -2,6 +2,7 @@ package com.github.andlyticsproject.console.v2;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import org.apache.http.cookie.Cookie;
@@ -52,6 +53,22 @@ public class SessionCredentials {
 		return Collections.unmodifiableList(cookies);
 	}
 
+	/**
+	 * @return when the first of the session cookies expires, or null if none
+	 *         of them has an expiry date
+	 */
+	public Date getExpiryDate() {
+		Date expiryDate = null;
+		for (Cookie cookie : cookies) {
+			Date cookieExpiryDate = cookie.getExpiryDate();
+			if (cookieExpiryDate != null
+					&& (expiryDate == null || cookieExpiryDate.before(expiryDate))) {
+				expiryDate = cookieExpiryDate;
+			}
+		}
+		return expiryDate;
+	}
+
 	public List<String> getWhitelistedFeatures() {
 		return Collections.unmodifiableList(whitelistedFeatures);
 	}
@@ -0,0 +1,307 @@
+package com.github.andlyticsproject.console.v2;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.andlyticsproject.model.DeveloperConsoleAccount;
+
+/**
+ * Keeps {@link SessionCredentials} on local disk between runs, one file per
+ * account, so a new process can reuse the session instead of logging in.
+ *
+ * Files are encrypted with AES/CBC and authenticated with HmacSHA256, with
+ * keys derived from the key given to the store. A file that cannot be read,
+ * was written with another key or whose cookies have expired is deleted and
+ * treated as missing, so the console just logs in again. Writing is best
+ * effort: errors are logged and never reach the caller.
+ */
+public class SessionStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionStore.class);
+
+	private static final int VERSION = 1;
+	private static final String SUFFIX = ".session";
+	private static final int IV_LENGTH = 16;
+	private static final int MAC_LENGTH = 32;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final File directory;
+	private final SecretKeySpec cipherKey;
+	private final SecretKeySpec macKey;
+	private final SecureRandom random = new SecureRandom();
+
+	/**
+	 * @param directory
+	 *            where the sessions are kept, created if needed
+	 * @param key
+	 *            secret of any length, the same one must be used to read the
+	 *            sessions back
+	 */
+	public SessionStore(File directory, byte[] key) {
+		if (key == null || key.length == 0) {
+			throw new IllegalArgumentException("Empty session store key");
+		}
+		this.directory = directory;
+		// 128 bit AES works without the unlimited strength policy files
+		this.cipherKey = new SecretKeySpec(Arrays.copyOf(derive(key, "cipher"), 16), "AES");
+		this.macKey = new SecretKeySpec(derive(key, "mac"), "HmacSHA256");
+	}
+
+	/**
+	 * @return the saved session of the account, or null if there is none or
+	 *         it is no longer usable
+	 */
+	public SessionCredentials load(String accountName) {
+		File file = getFile(accountName);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			SessionCredentials session = read(decrypt(readFile(file)));
+			if (!accountName.equals(session.getAccountName())) {
+				throw new IOException("Session of another account");
+			}
+			Date expiryDate = session.getExpiryDate();
+			if (expiryDate != null && !expiryDate.after(new Date())) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("load() - {}", "Saved session expired for " + accountName); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				delete(accountName);
+				return null;
+			}
+			return session;
+		} catch (IOException e) {
+			logger.warn("load() - Discarding unreadable session of " + accountName, e); //$NON-NLS-1$
+		} catch (GeneralSecurityException e) {
+			logger.warn("load() - Discarding unreadable session of " + accountName, e); //$NON-NLS-1$
+		}
+		delete(accountName);
+		return null;
+	}
+
+	public void save(SessionCredentials session) {
+		File file = getFile(session.getAccountName());
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create " + directory);
+			}
+			// write aside and rename, a reader never sees half a file
+			File temp = new File(directory, file.getName() + ".tmp");
+			writeFile(temp, encrypt(write(session)));
+			if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+				temp.delete();
+				throw new IOException("Could not replace " + file);
+			}
+		} catch (IOException e) {
+			logger.warn("save() - Could not save session of " + session.getAccountName(), e); //$NON-NLS-1$
+		} catch (GeneralSecurityException e) {
+			logger.warn("save() - Could not save session of " + session.getAccountName(), e); //$NON-NLS-1$
+		}
+	}
+
+	public void delete(String accountName) {
+		File file = getFile(accountName);
+		if (file.exists() && !file.delete()) {
+			logger.warn("delete() - Could not delete " + file); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * File names are hashes so the directory does not list the accounts
+	 */
+	File getFile(String accountName) {
+		return new File(directory, toHex(sha256(accountName.getBytes(UTF8))) + SUFFIX);
+	}
+
+	private static byte[] write(SessionCredentials session) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(VERSION);
+		out.writeUTF(session.getAccountName());
+		out.writeUTF(session.getXsrfToken());
+		DeveloperConsoleAccount[] accounts = session.getDeveloperConsoleAccounts();
+		out.writeInt(accounts.length);
+		for (DeveloperConsoleAccount account : accounts) {
+			out.writeUTF(account.getDeveloperId());
+			writeNullable(out, account.getName());
+		}
+		List<Cookie> cookies = session.getCookies();
+		out.writeInt(cookies.size());
+		for (Cookie cookie : cookies) {
+			out.writeUTF(cookie.getName());
+			writeNullable(out, cookie.getValue());
+			writeNullable(out, cookie.getDomain());
+			writeNullable(out, cookie.getPath());
+			out.writeLong(cookie.getExpiryDate() == null ? -1 : cookie.getExpiryDate().getTime());
+			out.writeBoolean(cookie.isSecure());
+			out.writeInt(cookie.getVersion());
+		}
+		List<String> features = session.getWhitelistedFeatures();
+		out.writeInt(features.size());
+		for (String feature : features) {
+			out.writeUTF(feature);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static SessionCredentials read(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unknown session version " + version);
+		}
+		String accountName = in.readUTF();
+		String xsrfToken = in.readUTF();
+		DeveloperConsoleAccount[] accounts = new DeveloperConsoleAccount[in.readInt()];
+		for (int i = 0; i < accounts.length; i++) {
+			accounts[i] = new DeveloperConsoleAccount(in.readUTF(), readNullable(in));
+		}
+		SessionCredentials session = new SessionCredentials(accountName, xsrfToken, accounts);
+		int cookies = in.readInt();
+		for (int i = 0; i < cookies; i++) {
+			BasicClientCookie cookie = new BasicClientCookie(in.readUTF(), readNullable(in));
+			cookie.setDomain(readNullable(in));
+			cookie.setPath(readNullable(in));
+			long expiry = in.readLong();
+			cookie.setExpiryDate(expiry == -1 ? null : new Date(expiry));
+			cookie.setSecure(in.readBoolean());
+			cookie.setVersion(in.readInt());
+			session.addCookie(cookie);
+		}
+		List<String> features = new ArrayList<String>();
+		int featureCount = in.readInt();
+		for (int i = 0; i < featureCount; i++) {
+			features.add(in.readUTF());
+		}
+		session.addWhitelistedFeatures(features);
+		return session;
+	}
+
+	private static void writeNullable(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	/**
+	 * @return IV, cipher text and the MAC of both
+	 */
+	private byte[] encrypt(byte[] data) throws GeneralSecurityException {
+		byte[] iv = new byte[IV_LENGTH];
+		random.nextBytes(iv);
+		Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+		cipher.init(Cipher.ENCRYPT_MODE, cipherKey, new IvParameterSpec(iv));
+		byte[] encrypted = cipher.doFinal(data);
+
+		byte[] result = new byte[IV_LENGTH + encrypted.length + MAC_LENGTH];
+		System.arraycopy(iv, 0, result, 0, IV_LENGTH);
+		System.arraycopy(encrypted, 0, result, IV_LENGTH, encrypted.length);
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(macKey);
+		mac.update(result, 0, IV_LENGTH + encrypted.length);
+		mac.doFinal(result, IV_LENGTH + encrypted.length);
+		return result;
+	}
+
+	private byte[] decrypt(byte[] data) throws GeneralSecurityException, IOException {
+		if (data.length < IV_LENGTH + MAC_LENGTH) {
+			throw new IOException("Truncated session file");
+		}
+		int length = data.length - MAC_LENGTH;
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(macKey);
+		mac.update(data, 0, length);
+		if (!MessageDigest.isEqual(mac.doFinal(), Arrays.copyOfRange(data, length, data.length))) {
+			throw new IOException("Session file modified or written with another key");
+		}
+		Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+		cipher.init(Cipher.DECRYPT_MODE, cipherKey, new IvParameterSpec(data, 0, IV_LENGTH));
+		return cipher.doFinal(data, IV_LENGTH, length - IV_LENGTH);
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void writeFile(File file, byte[] data) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(data);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static byte[] derive(byte[] key, String purpose) {
+		MessageDigest digest = newSha256();
+		digest.update(purpose.getBytes(UTF8));
+		digest.update((byte) 0);
+		return digest.digest(key);
+	}
+
+	private static byte[] sha256(byte[] data) {
+		return newSha256().digest(data);
+	}
+
+	private static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// every JRE has it
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder result = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			result.append(Character.forDigit((b >> 4) & 0xf, 16));
+			result.append(Character.forDigit(b & 0xf, 16));
+		}
+		return result.toString();
+	}
+}
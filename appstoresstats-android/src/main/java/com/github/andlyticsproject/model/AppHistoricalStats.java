@@ -2,93 +2,173 @@ package com.github.andlyticsproject.model;
 
 import java.util.List;
 
+/**
+ * Historical statistics of an app, one {@link TimeSeries} per statistic.
+ * The list accessors convert from and to the series for older callers.
+ */
 public class AppHistoricalStats {
 
-	private List<AppHistoricalStatsElement> currentInstallsByDevice;
-	private List<AppHistoricalStatsElement> dailyInstallsByDevice;
-	private List<AppHistoricalStatsElement> dailyUninstallsByDevice;
-	private List<AppHistoricalStatsElement> dailyUpdatesByUser;
-	private List<AppHistoricalStatsElement> currentInstallsByUser;
-	private List<AppHistoricalStatsElement> totalInstallsByUser;
-	private List<AppHistoricalStatsElement> dailyInstallsByUser;
-	private List<AppHistoricalStatsElement> gmcMessages;
-	private List<AppHistoricalStatsElement> gmcRegisters;
-	private List<AppHistoricalStatsElement> averageDailyRating;
-	private List<AppHistoricalStatsElement> averageTotalRating;
-	public List<AppHistoricalStatsElement> getCurrentInstallsByDevice() {
+	private TimeSeries currentInstallsByDevice;
+	private TimeSeries dailyInstallsByDevice;
+	private TimeSeries dailyUninstallsByDevice;
+	private TimeSeries dailyUpdatesByUser;
+	private TimeSeries currentInstallsByUser;
+	private TimeSeries totalInstallsByUser;
+	private TimeSeries dailyInstallsByUser;
+	private TimeSeries gmcMessages;
+	private TimeSeries gmcRegisters;
+	private TimeSeries averageDailyRating;
+	private TimeSeries averageTotalRating;
+	public TimeSeries getCurrentInstallsByDeviceSeries() {
 		return currentInstallsByDevice;
 	}
+	public void setCurrentInstallsByDeviceSeries(TimeSeries currentInstallsByDevice) {
+		this.currentInstallsByDevice = currentInstallsByDevice;
+	}
+	public List<AppHistoricalStatsElement> getCurrentInstallsByDevice() {
+		return toElements(currentInstallsByDevice);
+	}
 	public void setCurrentInstallsByDevice(
 			List<AppHistoricalStatsElement> currentInstallsByDevice) {
-		this.currentInstallsByDevice = currentInstallsByDevice;
+		this.currentInstallsByDevice = toSeries(currentInstallsByDevice);
 	}
-	public List<AppHistoricalStatsElement> getDailyInstallsByDevice() {
+	public TimeSeries getDailyInstallsByDeviceSeries() {
 		return dailyInstallsByDevice;
 	}
+	public void setDailyInstallsByDeviceSeries(TimeSeries dailyInstallsByDevice) {
+		this.dailyInstallsByDevice = dailyInstallsByDevice;
+	}
+	public List<AppHistoricalStatsElement> getDailyInstallsByDevice() {
+		return toElements(dailyInstallsByDevice);
+	}
 	public void setDailyInstallsByDevice(
 			List<AppHistoricalStatsElement> dailyInstallsByDevice) {
-		this.dailyInstallsByDevice = dailyInstallsByDevice;
+		this.dailyInstallsByDevice = toSeries(dailyInstallsByDevice);
 	}
-	public List<AppHistoricalStatsElement> getDailyUninstallsByDevice() {
+	public TimeSeries getDailyUninstallsByDeviceSeries() {
 		return dailyUninstallsByDevice;
 	}
+	public void setDailyUninstallsByDeviceSeries(TimeSeries dailyUninstallsByDevice) {
+		this.dailyUninstallsByDevice = dailyUninstallsByDevice;
+	}
+	public List<AppHistoricalStatsElement> getDailyUninstallsByDevice() {
+		return toElements(dailyUninstallsByDevice);
+	}
 	public void setDailyUninstallsByDevice(
 			List<AppHistoricalStatsElement> dailyUninstallsByDevice) {
-		this.dailyUninstallsByDevice = dailyUninstallsByDevice;
+		this.dailyUninstallsByDevice = toSeries(dailyUninstallsByDevice);
 	}
-	public List<AppHistoricalStatsElement> getDailyUpdatesByUser() {
+	public TimeSeries getDailyUpdatesByUserSeries() {
 		return dailyUpdatesByUser;
 	}
+	public void setDailyUpdatesByUserSeries(TimeSeries dailyUpdatesByUser) {
+		this.dailyUpdatesByUser = dailyUpdatesByUser;
+	}
+	public List<AppHistoricalStatsElement> getDailyUpdatesByUser() {
+		return toElements(dailyUpdatesByUser);
+	}
 	public void setDailyUpdatesByUser(
 			List<AppHistoricalStatsElement> dailyUpdatesByUser) {
-		this.dailyUpdatesByUser = dailyUpdatesByUser;
+		this.dailyUpdatesByUser = toSeries(dailyUpdatesByUser);
 	}
-	public List<AppHistoricalStatsElement> getCurrentInstallsByUser() {
+	public TimeSeries getCurrentInstallsByUserSeries() {
 		return currentInstallsByUser;
 	}
+	public void setCurrentInstallsByUserSeries(TimeSeries currentInstallsByUser) {
+		this.currentInstallsByUser = currentInstallsByUser;
+	}
+	public List<AppHistoricalStatsElement> getCurrentInstallsByUser() {
+		return toElements(currentInstallsByUser);
+	}
 	public void setCurrentInstallsByUser(
 			List<AppHistoricalStatsElement> currentInstallsByUser) {
-		this.currentInstallsByUser = currentInstallsByUser;
+		this.currentInstallsByUser = toSeries(currentInstallsByUser);
 	}
-	public List<AppHistoricalStatsElement> getTotalInstallsByUser() {
+	public TimeSeries getTotalInstallsByUserSeries() {
 		return totalInstallsByUser;
 	}
+	public void setTotalInstallsByUserSeries(TimeSeries totalInstallsByUser) {
+		this.totalInstallsByUser = totalInstallsByUser;
+	}
+	public List<AppHistoricalStatsElement> getTotalInstallsByUser() {
+		return toElements(totalInstallsByUser);
+	}
 	public void setTotalInstallsByUser(
 			List<AppHistoricalStatsElement> totalInstallsByUser) {
-		this.totalInstallsByUser = totalInstallsByUser;
+		this.totalInstallsByUser = toSeries(totalInstallsByUser);
 	}
-	public List<AppHistoricalStatsElement> getDailyInstallsByUser() {
+	public TimeSeries getDailyInstallsByUserSeries() {
 		return dailyInstallsByUser;
 	}
+	public void setDailyInstallsByUserSeries(TimeSeries dailyInstallsByUser) {
+		this.dailyInstallsByUser = dailyInstallsByUser;
+	}
+	public List<AppHistoricalStatsElement> getDailyInstallsByUser() {
+		return toElements(dailyInstallsByUser);
+	}
 	public void setdailyInstallsByUser(
 			List<AppHistoricalStatsElement> dailyInstallsByUser) {
-		this.dailyInstallsByUser = dailyInstallsByUser;
+		this.dailyInstallsByUser = toSeries(dailyInstallsByUser);
 	}
-	public List<AppHistoricalStatsElement> getGmcMessages() {
+	public TimeSeries getGmcMessagesSeries() {
 		return gmcMessages;
 	}
-	public void setGmcMessages(List<AppHistoricalStatsElement> gmcMessages) {
+	public void setGmcMessagesSeries(TimeSeries gmcMessages) {
 		this.gmcMessages = gmcMessages;
 	}
-	public List<AppHistoricalStatsElement> getGmcRegisters() {
+	public List<AppHistoricalStatsElement> getGmcMessages() {
+		return toElements(gmcMessages);
+	}
+	public void setGmcMessages(
+			List<AppHistoricalStatsElement> gmcMessages) {
+		this.gmcMessages = toSeries(gmcMessages);
+	}
+	public TimeSeries getGmcRegistersSeries() {
 		return gmcRegisters;
 	}
-	public void setGmcRegisters(List<AppHistoricalStatsElement> gmcRegisters) {
+	public void setGmcRegistersSeries(TimeSeries gmcRegisters) {
 		this.gmcRegisters = gmcRegisters;
 	}
-	public List<AppHistoricalStatsElement> getAverageDailyRating() {
+	public List<AppHistoricalStatsElement> getGmcRegisters() {
+		return toElements(gmcRegisters);
+	}
+	public void setGmcRegisters(
+			List<AppHistoricalStatsElement> gmcRegisters) {
+		this.gmcRegisters = toSeries(gmcRegisters);
+	}
+	public TimeSeries getAverageDailyRatingSeries() {
 		return averageDailyRating;
 	}
+	public void setAverageDailyRatingSeries(TimeSeries averageDailyRating) {
+		this.averageDailyRating = averageDailyRating;
+	}
+	public List<AppHistoricalStatsElement> getAverageDailyRating() {
+		return toElements(averageDailyRating);
+	}
 	public void setAverageDailyRating(
 			List<AppHistoricalStatsElement> averageDailyRating) {
-		this.averageDailyRating = averageDailyRating;
+		this.averageDailyRating = toSeries(averageDailyRating);
 	}
-	public List<AppHistoricalStatsElement> getAverageTotalRating() {
+	public TimeSeries getAverageTotalRatingSeries() {
 		return averageTotalRating;
 	}
+	public void setAverageTotalRatingSeries(TimeSeries averageTotalRating) {
+		this.averageTotalRating = averageTotalRating;
+	}
+	public List<AppHistoricalStatsElement> getAverageTotalRating() {
+		return toElements(averageTotalRating);
+	}
 	public void setAverageTotalRating(
 			List<AppHistoricalStatsElement> averageTotalRating) {
-		this.averageTotalRating = averageTotalRating;
+		this.averageTotalRating = toSeries(averageTotalRating);
+	}
+
+	private static List<AppHistoricalStatsElement> toElements(TimeSeries series) {
+		return series == null ? null : series.toElements();
+	}
+
+	private static TimeSeries toSeries(List<AppHistoricalStatsElement> elements) {
+		return elements == null ? null : TimeSeries.fromElements(elements);
 	}
 
 }
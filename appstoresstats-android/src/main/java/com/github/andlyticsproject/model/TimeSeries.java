@@ -0,0 +1,289 @@
+package com.github.andlyticsproject.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import es.arcadiaconsulting.appstoresstats.common.DayHelper;
+
+/**
+ * Daily values of a statistic, as two parallel arrays ordered by day: the
+ * day as days since 1970-01-01 and the value.
+ *
+ * Range queries take the first and last day, both included, and find them
+ * by binary search, so they are O(log n) plus the days in the range and do
+ * not allocate. Dates are turned into days with {@link DayHelper} in the
+ * default time zone; callers with another time zone pass the days.
+ */
+public final class TimeSeries {
+
+	public static final TimeSeries EMPTY = new TimeSeries(new int[0], new long[0], 0);
+
+	private final int[] days;
+	private final long[] values;
+	private final int size;
+
+	/**
+	 * @param days
+	 *            ascending, without repeated days
+	 * @param values
+	 *            the value of each day
+	 */
+	public TimeSeries(int[] days, long[] values) {
+		this(days.clone(), values.clone(), days.length);
+		if (days.length != values.length) {
+			throw new IllegalArgumentException("Days and values differ in length");
+		}
+		for (int i = 1; i < size; i++) {
+			if (days[i] <= days[i - 1]) {
+				throw new IllegalArgumentException("Days not ascending at " + i);
+			}
+		}
+	}
+
+	private TimeSeries(int[] days, long[] values, int size) {
+		this.days = days;
+		this.values = values;
+		this.size = size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getDay(int index) {
+		checkIndex(index);
+		return days[index];
+	}
+
+	public long getValue(int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	public Date getDate(int index) {
+		return DayHelper.toDate(getDay(index));
+	}
+
+	/**
+	 * @return the value of the last day, or 0 if there are no days
+	 */
+	public long getLatestValue() {
+		return size == 0 ? 0 : values[size - 1];
+	}
+
+	/**
+	 * @return the index of the day, or -1 if there is no value for it
+	 */
+	public int indexOf(int day) {
+		int index = Arrays.binarySearch(days, 0, size, day);
+		return index < 0 ? -1 : index;
+	}
+
+	/**
+	 * @return the number of days with a value between the given days
+	 */
+	public int count(int fromDay, int toDay) {
+		return Math.max(0, upperBound(toDay) - lowerBound(fromDay));
+	}
+
+	public long sum(int fromDay, int toDay) {
+		long sum = 0;
+		for (int i = lowerBound(fromDay), end = upperBound(toDay); i < end; i++) {
+			sum += values[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the average of the days with a value, or 0 if there are none
+	 */
+	public double average(int fromDay, int toDay) {
+		int count = count(fromDay, toDay);
+		return count == 0 ? 0 : (double) sum(fromDay, toDay) / count;
+	}
+
+	/**
+	 * @return the lowest value, or Long.MAX_VALUE if there are no days
+	 */
+	public long min(int fromDay, int toDay) {
+		long min = Long.MAX_VALUE;
+		for (int i = lowerBound(fromDay), end = upperBound(toDay); i < end; i++) {
+			min = Math.min(min, values[i]);
+		}
+		return min;
+	}
+
+	/**
+	 * @return the highest value, or Long.MIN_VALUE if there are no days
+	 */
+	public long max(int fromDay, int toDay) {
+		long max = Long.MIN_VALUE;
+		for (int i = lowerBound(fromDay), end = upperBound(toDay); i < end; i++) {
+			max = Math.max(max, values[i]);
+		}
+		return max;
+	}
+
+	/**
+	 * Same as {@link #sum(int, int)}, null dates leave that end of the range
+	 * open
+	 */
+	public long sum(Date from, Date to) {
+		TimeZone timeZone = TimeZone.getDefault();
+		return sum(DayHelper.firstDay(from, timeZone), DayHelper.lastDay(to, timeZone));
+	}
+
+	public double average(Date from, Date to) {
+		TimeZone timeZone = TimeZone.getDefault();
+		return average(DayHelper.firstDay(from, timeZone), DayHelper.lastDay(to, timeZone));
+	}
+
+	public long min(Date from, Date to) {
+		TimeZone timeZone = TimeZone.getDefault();
+		return min(DayHelper.firstDay(from, timeZone), DayHelper.lastDay(to, timeZone));
+	}
+
+	public long max(Date from, Date to) {
+		TimeZone timeZone = TimeZone.getDefault();
+		return max(DayHelper.firstDay(from, timeZone), DayHelper.lastDay(to, timeZone));
+	}
+
+	/**
+	 * @return the elements of the series, for code still using them
+	 */
+	public List<AppHistoricalStatsElement> toElements() {
+		List<AppHistoricalStatsElement> elements = new ArrayList<AppHistoricalStatsElement>(size);
+		for (int i = 0; i < size; i++) {
+			elements.add(new AppHistoricalStatsElement(DayHelper.toDate(days[i]), String.valueOf(values[i])));
+		}
+		return elements;
+	}
+
+	public static TimeSeries fromElements(List<AppHistoricalStatsElement> elements) {
+		Builder builder = new Builder(elements.size());
+		for (AppHistoricalStatsElement element : elements) {
+			builder.add(element.getDate(), parseValue(element.getNumber()));
+		}
+		return builder.build();
+	}
+
+	private static long parseValue(String number) {
+		try {
+			return Long.parseLong(number);
+		} catch (NumberFormatException e) {
+			return Math.round(Double.parseDouble(number));
+		}
+	}
+
+	/**
+	 * @return the index of the first day not before the given one
+	 */
+	private int lowerBound(int day) {
+		int index = Arrays.binarySearch(days, 0, size, day);
+		return index < 0 ? -index - 1 : index;
+	}
+
+	/**
+	 * @return the index of the first day after the given one
+	 */
+	private int upperBound(int day) {
+		int index = Arrays.binarySearch(days, 0, size, day);
+		return index < 0 ? -index - 1 : index + 1;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TimeSeries[" + size + " days"
+				+ (size == 0 ? "" : " from " + days[0] + " to " + days[size - 1]) + "]";
+	}
+
+	/**
+	 * Collects the values of a series day by day. A day added again replaces
+	 * its value, and days can come in any order, though sorted input is
+	 * cheapest.
+	 */
+	public static class Builder {
+		private int[] days;
+		private long[] values;
+		private int size;
+		private boolean sorted = true;
+
+		public Builder() {
+			this(16);
+		}
+
+		public Builder(int capacity) {
+			days = new int[Math.max(capacity, 1)];
+			values = new long[days.length];
+		}
+
+		public Builder add(int day, long value) {
+			if (size > 0 && day <= days[size - 1]) {
+				if (day == days[size - 1]) {
+					values[size - 1] = value;
+					return this;
+				}
+				sorted = false;
+			}
+			if (size == days.length) {
+				days = Arrays.copyOf(days, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+			}
+			days[size] = day;
+			values[size] = value;
+			size++;
+			return this;
+		}
+
+		public Builder add(Date date, long value) {
+			return add(DayHelper.toEpochDay(date), value);
+		}
+
+		public TimeSeries build() {
+			if (!sorted) {
+				sort();
+			}
+			return new TimeSeries(Arrays.copyOf(days, size), Arrays.copyOf(values, size), size);
+		}
+
+		/**
+		 * Insertion sort keeping the last value of repeated days, the console
+		 * sends the days in order so this is only a fallback
+		 */
+		private void sort() {
+			int newSize = 0;
+			for (int i = 0; i < size; i++) {
+				int day = days[i];
+				long value = values[i];
+				int j = newSize - 1;
+				while (j >= 0 && days[j] > day) {
+					j--;
+				}
+				if (j >= 0 && days[j] == day) {
+					values[j] = value;
+					continue;
+				}
+				System.arraycopy(days, j + 1, days, j + 2, newSize - j - 1);
+				System.arraycopy(values, j + 1, values, j + 2, newSize - j - 1);
+				days[j + 1] = day;
+				values[j + 1] = value;
+				newSize++;
+			}
+			size = newSize;
+			sorted = true;
+		}
+	}
+}
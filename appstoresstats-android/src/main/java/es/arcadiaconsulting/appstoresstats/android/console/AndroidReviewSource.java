@@ -0,0 +1,102 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.android.console;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.andlyticsproject.console.DevConsoleException;
+import com.github.andlyticsproject.console.v2.DevConsoleV2;
+import com.github.andlyticsproject.model.AppInfo;
+import com.github.andlyticsproject.model.Comment;
+
+import es.arcadiaconsulting.appstoresstats.common.Rating;
+import es.arcadiaconsulting.appstoresstats.common.ReviewSource;
+import es.arcadiaconsulting.appstoresstats.common.StoreStatsException;
+
+/**
+ * Comments of the apps of a Developer Console account, page by page. The
+ * developer account of each app is looked up once with the app list.
+ */
+public class AndroidReviewSource implements ReviewSource {
+
+	public static final int DEFAULT_PAGE_SIZE = 50;
+
+	private final DevConsoleV2 console;
+
+	private final String locale;
+
+	private final int pageSize;
+
+	private Map<String, String> developerIds;
+
+	/**
+	 * @param locale
+	 *            language the comments are shown in
+	 */
+	public AndroidReviewSource(DevConsoleV2 console, String locale) {
+		this(console, locale, DEFAULT_PAGE_SIZE);
+	}
+
+	public AndroidReviewSource(DevConsoleV2 console, String locale, int pageSize) {
+		this.console = console;
+		this.locale = locale;
+		this.pageSize = pageSize;
+	}
+
+	public List<Rating> getReviews(String appId, int page) throws StoreStatsException {
+		try {
+			String developerId = getDeveloperId(appId);
+			List<Comment> comments = console.getComments(appId, developerId, page * pageSize,
+					pageSize, locale);
+			List<Rating> reviews = new ArrayList<Rating>(comments.size());
+			for (Comment comment : comments) {
+				reviews.add(toRating(comment));
+			}
+			return reviews;
+		} catch (DevConsoleException e) {
+			throw new StoreStatsException("Could not get the comments of " + appId, e);
+		}
+	}
+
+	private synchronized String getDeveloperId(String appId) throws StoreStatsException {
+		if (developerIds == null) {
+			Map<String, String> ids = new HashMap<String, String>();
+			List<AppInfo> apps = console.getAppInfo();
+			if (apps != null) {
+				for (AppInfo app : apps) {
+					ids.put(app.getPackageName(), app.getDeveloperId());
+				}
+			}
+			developerIds = ids;
+		}
+		String developerId = developerIds.get(appId);
+		if (developerId == null) {
+			throw new StoreStatsException("App " + appId + " not found in the account");
+		}
+		return developerId;
+	}
+
+	static Rating toRating(Comment comment) {
+		Rating rating = new Rating(comment.getRating(), comment.getText(), comment.getUser(),
+				comment.getDate(), comment.getAppVersion());
+		rating.setId(comment.getUniqueId());
+		return rating;
+	}
+
+}
@@ -16,41 +16,53 @@
 package es.arcadiaconsulting.appstoresstats.android.console;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
 
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolException;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
-import org.apache.http.impl.conn.SchemeRegistryFactory;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
-import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
-import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.andlyticsproject.console.v2.DevConsoleRegistry;
 import com.github.andlyticsproject.console.v2.DevConsoleV2;
-import com.github.andlyticsproject.model.AppHistoricalStatsElement;
+import com.github.andlyticsproject.console.v2.HttpConnectionPool;
+import com.github.andlyticsproject.console.v2.SessionStore;
 import com.github.andlyticsproject.model.AppInfo;
 import com.github.andlyticsproject.model.Comment;
+import com.github.andlyticsproject.model.TimeSeries;
 
 import es.arcadiaconsulting.appstoresstats.android.model.StarsRate;
 import es.arcadiaconsulting.appstoresstats.android.model.StatsDataAndroid;
 import es.arcadiaconsulting.appstoresstats.common.CommonStatsData;
+import es.arcadiaconsulting.appstoresstats.common.DayHelper;
 import es.arcadiaconsulting.appstoresstats.common.IStoreStats;
 import es.arcadiaconsulting.appstoresstats.common.NumberHelper;
 import es.arcadiaconsulting.appstoresstats.common.Rating;
+import es.arcadiaconsulting.appstoresstats.common.ReviewStore;
+import es.arcadiaconsulting.appstoresstats.common.ReviewSync;
+import es.arcadiaconsulting.appstoresstats.common.StoreStatsException;
 
 public class AndroidStoreStats implements IStoreStats {
 
-	DevConsoleV2 console=null;
 	private final int CONNECTION_TIMEOUT=10000;
+	public static final String DEFAULT_COMMENTS_LOCALE="es";
+	// language of the comments
+	private String commentsLocale=DEFAULT_COMMENTS_LOCALE;
+	// null unless sessions are kept between runs
+	private SessionStore sessionStore;
+	// new sessions of the registry get a client of this class
+	private final DevConsoleRegistry.HttpClientSource httpClientSource=new ClientSource();
+	// null to use the pool of the process
+	private HttpConnectionPool connectionPool;
 	/**
 	 * Logger for this class
 	 */
@@ -69,7 +81,7 @@ public class AndroidStoreStats implements IStoreStats {
 	 * @param packageName
 	 * @return
 	 */
-	protected List<StatsDataAndroid> getBasicStatsDataAndroid()
+	protected List<StatsDataAndroid> getBasicStatsDataAndroid(DevConsoleV2 console)
 	{
 		List<StatsDataAndroid> result=null;
 		List<AppInfo> apps=console.getAppInfo();
@@ -85,14 +97,17 @@ public class AndroidStoreStats implements IStoreStats {
 	}
 	
 	
-	protected CommonStatsData getStatsDataAndroidBetweenDates(String packageName,Date initDate,Date endDate)
+	/**
+	 * Stats of the app with the installations between the dates, the logged console can be shared by several apps
+	 */
+	protected CommonStatsData getStatsDataAndroidBetweenDates(DevConsoleV2 console,String packageName,Date initDate,Date endDate)
 	{
 		/*
 		 * CUrrently obtaining full app list because ratings, downloads... etc are not visible from detailed app view
 		 * AppInfo app=console.getAppInfo(packageName);
 		 */
 		if(logger.isDebugEnabled())
-			logger.debug("getStatsDataAndroidBetweenDates() - {}", String.format("Getting statistics for %d", packageName));
+			logger.debug("getStatsDataAndroidBetweenDates() - {}", String.format("Getting statistics for %s", packageName));
 		AppInfo app=console.getAppInfoAndStatisticsFromFullQuery(packageName);
 		
 		return buildStats(app,initDate,endDate);
@@ -106,80 +121,39 @@ public class AndroidStoreStats implements IStoreStats {
 	 * @param packageName
 	 * @return
 	 */
-	protected StatsDataAndroid getBasicStatsDataAndroid(String packageName)
+	protected StatsDataAndroid getBasicStatsDataAndroid(DevConsoleV2 console,String packageName)
 	{
 		AppInfo app=console.getAppInfoFromFullQuery(packageName);
 		return buildStats(app);
 		
 	}
-	protected StatsDataAndroid getCommentForApp(StatsDataAndroid stats)
+	protected StatsDataAndroid getCommentForApp(DevConsoleV2 console,StatsDataAndroid stats)
 	{
- List<Comment> comments=console.getComments(stats.getAppId(), stats.getDeveloperId(), 0, 50, "es");
+ List<Comment> comments=console.getComments(stats.getAppId(), stats.getDeveloperId(), 0, AndroidReviewSource.DEFAULT_PAGE_SIZE, commentsLocale);
  return buildComments(stats, comments);
 	}
 
 	protected StatsDataAndroid parseInstallationsBetweenDates(StatsDataAndroid stats,AppInfo app)
 	{
-		if(app!=null&&app.getLatestStats()!=null&&app.getLatestStats().getHistoricalStats()!=null&&app.getLatestStats().getHistoricalStats().getDailyInstallsByDevice()!=null)
+		if(app!=null&&app.getLatestStats()!=null&&app.getLatestStats().getHistoricalStats()!=null&&app.getLatestStats().getHistoricalStats().getDailyInstallsByDeviceSeries()!=null)
 		{
-			int installs=0;
-			Iterator<AppHistoricalStatsElement> it=app.getLatestStats().getHistoricalStats().getDailyInstallsByDevice().iterator();
-			while(it.hasNext())
-			{
-				AppHistoricalStatsElement el=it.next();
-				if(equalsOrHigerToInit(stats.getInitDate(),el.getDate()))
-				{
-					if(equalsOrLowerToEnd(stats.getEndDate(),el.getDate()))
-					{
-						installs+=Integer.parseInt(el.getNumber());
-					}
-					else
-					{
-						break;
-					}
-					
-				
-					
-				}
-			}
-			stats.setDownloadsNumber(installs);
+			TimeSeries dailyInstalls=app.getLatestStats().getHistoricalStats().getDailyInstallsByDeviceSeries();
+			// the bounds are computed once, the series is searched by day. The
+			// series cuts the console timestamps into days in the default time zone
+			TimeZone timeZone=TimeZone.getDefault();
+			int initDay=DayHelper.firstDay(stats.getInitDate(),timeZone);
+			int endDay=DayHelper.lastDay(stats.getEndDate(),timeZone);
+			stats.setDownloadsNumber((int)dailyInstalls.sum(initDay,endDay));
 		}
 		return stats;
 	}
 	protected boolean equalsOrHigerToInit(Date initDate,Date compareDate)
 	{
-		Calendar init=Calendar.getInstance();
-		init.setTime(initDate);
-
-		Calendar comp=Calendar.getInstance();
-		comp.setTime(compareDate);
-		if(init.get(Calendar.YEAR)==comp.get(Calendar.YEAR)){
-		if(init.get(Calendar.DAY_OF_YEAR)<=comp.get(Calendar.DAY_OF_YEAR)){
-			return true;
-		}
-		}
-		else{
-			if(init.get(Calendar.YEAR)<comp.get(Calendar.YEAR)){
-				return true;
-			}
-		}
-		return false;
+		return DayHelper.toEpochDay(initDate,TimeZone.getDefault())<=DayHelper.toEpochDay(compareDate,TimeZone.getDefault());
 	}
 	protected boolean equalsOrLowerToEnd(Date endDate,Date compareDate)
 	{
-		Calendar end=Calendar.getInstance();
-		end.setTime(endDate);
-		Calendar comp=Calendar.getInstance();
-		comp.setTime(compareDate);
-
-		if(end.get(Calendar.YEAR)==comp.get(Calendar.YEAR)){
-		if(end.get(Calendar.DAY_OF_YEAR)>=comp.get(Calendar.DAY_OF_YEAR))
-			return true;
-		}
-		else if(end.get(Calendar.YEAR)>comp.get(Calendar.YEAR)){
-			return true;
-		}
-		return false;
+		return DayHelper.toEpochDay(endDate,TimeZone.getDefault())>=DayHelper.toEpochDay(compareDate,TimeZone.getDefault());
 	}
 	protected StatsDataAndroid buildStats(AppInfo app,Date initDate,Date endDate)
 	{
@@ -203,7 +177,7 @@ public class AndroidStoreStats implements IStoreStats {
 			List <Rating> rates=new ArrayList<Rating>();
 			for(Comment com:comments)
 			{
-				rates.add(new Rating(com.getRating(),com.getText(),com.getUser(),com.getDate(),com.getAppVersion()));
+				rates.add(AndroidReviewSource.toRating(com));
 			}
 			stats.setRatings(rates);
 		}
@@ -236,53 +210,140 @@ public class AndroidStoreStats implements IStoreStats {
 		return stats;
 	}
 
-	@SuppressWarnings("unused")
-	protected AndroidStoreStats(DevConsoleV2 console) {
-		super();
-		this.console = console;
-	}
-
 	@Override
 	public CommonStatsData getStatsForApp(String user, String password,
 			String appId, Date initDate, Date endDate,String vectorId) {
-		console=DevConsoleV2.createForAccountAndPassword(user, password, createDefaultHttpClient());
-		
-		return getStatsDataAndroidBetweenDates(appId,initDate,endDate);
+		DevConsoleV2 accountConsole=acquireConsole(user, password);
+		try{
+			return getStatsDataAndroidBetweenDates(accountConsole,appId,initDate,endDate);
+		}finally{
+			releaseConsole(accountConsole);
+		}
+	}
+
+	/**
+	 * Logs in once and reuses the console session for every app
+	 */
+	@Override
+	public List<CommonStatsData> getStatsForApps(String user, String password,
+			List<String> appIds, Date initDate, Date endDate, String vendorId) {
+		// local console, several accounts may be fetched at the same time
+		DevConsoleV2 accountConsole=acquireConsole(user, password);
+		try{
+			return getStatsForApps(accountConsole, appIds, initDate, endDate);
+		}finally{
+			releaseConsole(accountConsole);
+		}
 	}
 
-	
 	public List<CommonStatsData> getStatsForAllApps(String user,
 			String password, Date initDate, Date endDate) {
-		// TODO Auto-generated method stub
-		return null;
+		DevConsoleV2 accountConsole=acquireConsole(user, password);
+		try{
+			List<AppInfo> apps=accountConsole.getAppInfo();
+			if(apps==null)
+				return null;
+			List<String> appIds=new ArrayList<String>(apps.size());
+			for(AppInfo app:apps)
+			{
+				appIds.add(app.getPackageName());
+			}
+			return getStatsForApps(accountConsole, appIds, initDate, endDate);
+		}finally{
+			releaseConsole(accountConsole);
+		}
+	}
+
+	protected List<CommonStatsData> getStatsForApps(DevConsoleV2 console, List<String> appIds,
+			Date initDate, Date endDate) {
+		List<CommonStatsData> result=new ArrayList<CommonStatsData>(appIds.size());
+		for(String appId:appIds)
+		{
+			CommonStatsData stats=null;
+			try{
+				stats=getStatsDataAndroidBetweenDates(console,appId,initDate,endDate);
+			}catch(RuntimeException e){
+				logger.error("Error getting stats for "+appId,e);
+			}
+			if(stats!=null)
+				result.add(stats);
+		}
+		return result;
 	}
 
 	@Override
 	public StatsDataAndroid getFullStatsForApp(String user, String password,
 			String appId,String vectorId) {
 		
-		console=DevConsoleV2.createForAccountAndPassword(user, password, createDefaultHttpClient());
-		StatsDataAndroid stats =getBasicStatsDataAndroid(appId);
-		stats=this.getCommentForApp(stats);
-		return stats;
+		DevConsoleV2 accountConsole=acquireConsole(user, password);
+		try{
+			StatsDataAndroid stats =getBasicStatsDataAndroid(accountConsole,appId);
+			stats=this.getCommentForApp(accountConsole,stats);
+			return stats;
+		}finally{
+			releaseConsole(accountConsole);
+		}
 	}
 
 	
 	public List<StatsDataAndroid> getFullStatsForAllApps(String user,
 			String password) {
-		console=DevConsoleV2.createForAccountAndPassword(user, password, createDefaultHttpClient());
-		return getBasicStatsDataAndroid();
+		DevConsoleV2 accountConsole=acquireConsole(user, password);
+		try{
+			return getBasicStatsDataAndroid(accountConsole);
+		}finally{
+			releaseConsole(accountConsole);
+		}
+	}
+
+	/**
+	 * Stores the comments of the apps posted since the last sync, reading only
+	 * the pages with new comments
+	 * @return the new comments of each app, without the apps that failed
+	 */
+	public Map<String, List<Rating>> syncReviews(String user,String password,List<String> appIds,ReviewStore store)
+	{
+		Map<String, List<Rating>> result=new LinkedHashMap<String, List<Rating>>();
+		DevConsoleV2 accountConsole=acquireConsole(user, password);
+		try{
+			ReviewSync sync=new ReviewSync(new AndroidReviewSource(accountConsole, commentsLocale), store);
+			for(String appId:appIds)
+			{
+				try {
+					result.put(appId, sync.sync(appId));
+				} catch (StoreStatsException e) {
+					logger.error("Error synchronizing comments of "+appId, e);
+				}
+			}
+			return result;
+		}finally{
+			releaseConsole(accountConsole);
+		}
 	}
 
+	/**
+	 * @return the logged in console of the account kept by the
+	 *         {@link DevConsoleRegistry}, to be given back with
+	 *         {@link #releaseConsole(DevConsoleV2)}
+	 */
+	protected DevConsoleV2 acquireConsole(String user,String password)
+	{
+		return DevConsoleRegistry.getInstance().acquire(user, password, httpClientSource, sessionStore);
+	}
+
+	protected void releaseConsole(DevConsoleV2 console)
+	{
+		DevConsoleRegistry.getInstance().release(console);
+	}
+
+	/**
+	 * @return a client with its own cookies over the connections of
+	 *         {@link #getConnectionPool()}
+	 */
 	protected DefaultHttpClient createDefaultHttpClient()
 	{
-		ThreadSafeClientConnManager cxMgr = new ThreadSafeClientConnManager( SchemeRegistryFactory.createDefault());
-		cxMgr.setMaxTotal(100);
-		cxMgr.setDefaultMaxPerRoute(20);
-		DefaultHttpClient defHttp=new DefaultHttpClient(cxMgr);
-		HttpParams params = new BasicHttpParams();
-		defHttp.setParams(params);
-		HttpConnectionParams.setConnectionTimeout(params, CONNECTION_TIMEOUT);
+		DefaultHttpClient defHttp=getConnectionPool().createHttpClient();
+		HttpConnectionParams.setConnectionTimeout(defHttp.getParams(), CONNECTION_TIMEOUT);
 		defHttp.setRedirectStrategy(new DefaultRedirectStrategy() {                
 	        public boolean isRedirected(HttpRequest request, HttpResponse response, HttpContext context)  {
 	            boolean isRedirect=false;
@@ -303,6 +364,73 @@ public class AndroidStoreStats implements IStoreStats {
 	    });
 		return defHttp;
 	}
+	/**
+	 * Clients of {@link #createDefaultHttpClient()}, equal for the instances
+	 * of the same class over the same pool so they share the sessions
+	 */
+	private class ClientSource implements DevConsoleRegistry.HttpClientSource {
+		public DefaultHttpClient createHttpClient() {
+			return createDefaultHttpClient();
+		}
+
+		public void releaseHttpClient(DefaultHttpClient httpClient) {
+			// the connections belong to the shared pool, only the cookies go away
+		}
+
+		private AndroidStoreStats owner() {
+			return AndroidStoreStats.this;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ClientSource)) {
+				return false;
+			}
+			AndroidStoreStats other=((ClientSource) obj).owner();
+			return other.getClass()==owner().getClass()
+					&& other.getConnectionPool()==owner().getConnectionPool();
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(getConnectionPool());
+		}
+	}
+
+	public String getCommentsLocale() {
+		return commentsLocale;
+	}
+
+	public void setCommentsLocale(String commentsLocale) {
+		this.commentsLocale = commentsLocale;
+	}
+
+	public HttpConnectionPool getConnectionPool() {
+		return connectionPool!=null?connectionPool:HttpConnectionPool.getInstance();
+	}
+
+	/**
+	 * Pool the Developer Console clients take their connections from, the
+	 * one of the process unless set. Sessions of the account started over
+	 * another pool are not reused, the next call logs in again
+	 */
+	public void setConnectionPool(HttpConnectionPool connectionPool) {
+		this.connectionPool = connectionPool;
+	}
+
+	public SessionStore getSessionStore() {
+		return sessionStore;
+	}
+
+	/**
+	 * Keeps the Developer Console sessions in the store, so a new process
+	 * reuses them instead of logging in again. Sessions of the account
+	 * started with another store are not reused
+	 */
+	public void setSessionStore(SessionStore sessionStore) {
+		this.sessionStore = sessionStore;
+	}
+
 	public AndroidStoreStats() {
 		super();
 		// TODO Auto-generated constructor stub
@@ -2,8 +2,15 @@ package com.github.andlyticsproject.console.v2;
 
 import static com.github.andlyticsproject.console.v2.Constants.*;
 
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class CommonMatchers {
 	  public static class HttpPostAppInfosArgumentMatcher extends ArgumentMatcher<HttpPost> {
@@ -39,4 +46,17 @@ public static class HttpPostAppCommentsArgumentMatcher extends ArgumentMatcher<H
 	     return false;
 	 }
 	}
+/**
+ * Answers an execute call handing the JSON to its response handler, as the
+ * client does with the console response
+ */
+public static Answer<Object> respond(final String json) {
+	return new Answer<Object>() {
+		public Object answer(InvocationOnMock invocation) throws Throwable {
+			BasicHttpResponse response=new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+			response.setEntity(new StringEntity(json, "UTF-8"));
+			return ((ResponseHandler<?>) invocation.getArguments()[1]).handleResponse(response);
+		}
+	};
+}
 }
@@ -0,0 +1,121 @@
+package com.github.andlyticsproject.console.v2;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import junit.framework.TestCase;
+
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.junit.After;
+import org.junit.Test;
+
+public class DevConsoleRegistryTest extends TestCase {
+
+	private final DevConsoleRegistry registry = DevConsoleRegistry.getInstance();
+
+	private ClientConnectionManager connectionManager;
+
+	private final DevConsoleRegistry.HttpClientSource source = new DevConsoleRegistry.HttpClientSource() {
+		public DefaultHttpClient createHttpClient() {
+			DefaultHttpClient httpClient = mock(DefaultHttpClient.class);
+			connectionManager = mock(ClientConnectionManager.class);
+			when(httpClient.getConnectionManager()).thenReturn(connectionManager);
+			return httpClient;
+		}
+
+		public void releaseHttpClient(DefaultHttpClient httpClient) {
+			httpClient.getConnectionManager().shutdown();
+		}
+	};
+
+	@After
+	public void tearDown() {
+		registry.setIdleTimeout(DevConsoleRegistry.DEFAULT_IDLE_TIMEOUT);
+		registry.setMaxAge(DevConsoleRegistry.DEFAULT_MAX_AGE);
+		registry.clear();
+	}
+
+	@Test
+	public void testSessionReusedByAccount() {
+		DevConsoleV2 console = registry.acquire("account", "password", source);
+		registry.release(console);
+		assertSame(console, registry.acquire("account", "password", source));
+		registry.release(console);
+
+		DevConsoleV2 other = registry.acquire("other", "password", source);
+		assertNotSame(console, other);
+		registry.release(other);
+		assertEquals(2, registry.size());
+
+		// a new password logs in again
+		DevConsoleV2 renewed = registry.acquire("other", "changed", source);
+		assertNotSame(other, renewed);
+		registry.release(renewed);
+	}
+
+	@Test
+	public void testSessionKeptToItsSourceAndStore() {
+		DevConsoleV2 console = registry.acquire("account", "password", source);
+		ClientConnectionManager pool = connectionManager;
+		registry.release(console);
+
+		// other connections, the session is replaced
+		DevConsoleRegistry.HttpClientSource otherSource = new DevConsoleRegistry.HttpClientSource() {
+			public DefaultHttpClient createHttpClient() {
+				return source.createHttpClient();
+			}
+
+			public void releaseHttpClient(DefaultHttpClient httpClient) {
+				source.releaseHttpClient(httpClient);
+			}
+		};
+		DevConsoleV2 otherConsole = registry.acquire("account", "password", otherSource);
+		assertNotSame(console, otherConsole);
+		verify(pool).shutdown();
+		registry.release(otherConsole);
+
+		// same source but a store for the sessions
+		SessionStore sessionStore = mock(SessionStore.class);
+		DevConsoleV2 stored = registry.acquire("account", "password", otherSource, sessionStore);
+		assertNotSame(otherConsole, stored);
+		registry.release(stored);
+		assertSame(stored, registry.acquire("account", "password", otherSource, sessionStore));
+		registry.release(stored);
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testIdleSessionEvictedAndClosed() {
+		DevConsoleV2 console = registry.acquire("account", "password", source);
+		ClientConnectionManager pool = connectionManager;
+		registry.setIdleTimeout(-1);
+
+		// in use, kept
+		registry.evictIdle();
+		assertEquals(1, registry.size());
+		verify(pool, never()).shutdown();
+
+		registry.release(console);
+		registry.evictIdle();
+		assertEquals(0, registry.size());
+		verify(pool).shutdown();
+	}
+
+	@Test
+	public void testExpiredSessionClosedWhenReleased() {
+		DevConsoleV2 console = registry.acquire("account", "password", source);
+		ClientConnectionManager pool = connectionManager;
+		registry.setMaxAge(-1);
+
+		DevConsoleV2 renewed = registry.acquire("account", "password", source);
+		assertNotSame(console, renewed);
+		verify(pool, never()).shutdown();
+
+		registry.release(console);
+		verify(pool).shutdown();
+		registry.release(renewed);
+	}
+}
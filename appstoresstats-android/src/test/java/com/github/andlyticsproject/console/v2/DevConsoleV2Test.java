@@ -1,5 +1,6 @@
 package com.github.andlyticsproject.console.v2;
 
+import static com.github.andlyticsproject.console.v2.CommonMatchers.respond;
 import static com.github.andlyticsproject.console.v2.Constants.*;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
@@ -7,27 +8,43 @@ import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
+import org.apache.http.HttpStatus;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
 
 import com.github.andlyticsproject.console.v2.CommonMatchers.HttpPostAppInfosArgumentMatcher;
 import com.github.andlyticsproject.console.v2.CommonMatchers.HttpPostAppStatsArgumentMatcher;
 import com.github.andlyticsproject.console.v2.CommonMatchers.HttpPostAppCommentsArgumentMatcher;
+import com.github.andlyticsproject.model.AppHistoricalStats;
 import com.github.andlyticsproject.model.AppInfo;
 import com.github.andlyticsproject.model.AppStats;
+import com.github.andlyticsproject.model.TimeSeries;
 import com.github.andlyticsproject.model.DeveloperConsoleAccount;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -62,12 +79,13 @@ public class DevConsoleV2Test extends TestCase{
 		when(authenticator.authenticateSilently(false)).thenReturn(CREDENTIALS_OK);
 		when(protocol.createFetchAppsUrl(DEVELOPERID)).thenReturn(FETCH_APP_INFOS_URL);
 		when(protocol.createFetchAppInfoRequest(anyString())).thenReturn(FETCH_APP_INFOS_POST);
-		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_INFOS_JSON);
-		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_STATS_JSON);
-		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_INFOS_JSON);
-		when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_RATINGS_JSON);
+		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_INFOS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_STATS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_INFOS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_RATINGS_JSON));
 
 		when(protocol.parseAppInfoResponse(anyString(), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
+		when(protocol.parseAppInfoResponse(isA(Reader.class), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
 		when(protocol.createFetchStatisticsUrl(DEVELOPERID)).thenReturn(FETCH_APP_STATS_URL);
 		when(protocol.createFetchStatisticsRequest(anyString(), anyInt())).thenReturn(FETCH_APP_STATS_POST);
 		when(protocol.createCommentsUrl(DEVELOPERID)).thenReturn(COMMENTS_URL);
@@ -77,6 +95,9 @@ public class DevConsoleV2Test extends TestCase{
 	
 		 doCallRealMethod().when(protocol).parseStatisticsResponse(anyString(),isA(AppStats.class),anyInt());
 			doCallRealMethod().when(protocol).parseRatingsResponse(anyString(),isA(AppStats.class));
+		when(protocol.parseStatisticsResponse(isA(Reader.class))).thenCallRealMethod();
+		when(protocol.parseRatingsResponse(isA(Reader.class))).thenCallRealMethod();
+		doCallRealMethod().when(protocol).addStatistics(isA(AppStats.class),anyInt(),isA(TimeSeries.class));
 
 
 		AppInfo app=console.getAppInfoFromFullQuery(PACKAGE_NAME_OK);
@@ -103,12 +124,13 @@ public class DevConsoleV2Test extends TestCase{
 		when(authenticator.authenticateSilently(false)).thenReturn(CREDENTIALS_OK);
 		when(protocol.createFetchAppsUrl(DEVELOPERID)).thenReturn(FETCH_APP_INFOS_URL);
 		when(protocol.createFetchAppInfoRequest(anyString())).thenReturn(FETCH_APP_INFOS_POST);
-		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_INFOS_JSON);
-		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_STATS_JSON);
-		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_INFOS_JSON);
-		when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_RATINGS_JSON);
+		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_INFOS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_STATS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_INFOS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_RATINGS_JSON));
 
 		when(protocol.parseAppInfoResponse(anyString(), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
+		when(protocol.parseAppInfoResponse(isA(Reader.class), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
 		when(protocol.createFetchStatisticsUrl(DEVELOPERID)).thenReturn(FETCH_APP_STATS_URL);
 		when(protocol.createFetchStatisticsRequest(anyString(), anyInt())).thenReturn(FETCH_APP_STATS_POST);
 		when(protocol.createCommentsUrl(DEVELOPERID)).thenReturn(COMMENTS_URL);
@@ -118,6 +140,9 @@ public class DevConsoleV2Test extends TestCase{
 	
 		 doCallRealMethod().when(protocol).parseStatisticsResponse(anyString(),isA(AppStats.class),anyInt());
 			doCallRealMethod().when(protocol).parseRatingsResponse(anyString(),isA(AppStats.class));
+		when(protocol.parseStatisticsResponse(isA(Reader.class))).thenCallRealMethod();
+		when(protocol.parseRatingsResponse(isA(Reader.class))).thenCallRealMethod();
+		doCallRealMethod().when(protocol).addStatistics(isA(AppStats.class),anyInt(),isA(TimeSeries.class));
 
 		 AppInfo app=console.getAppInfoAndStatisticsFromFullQuery(PACKAGE_NAME_OK);
 		assertNotNull(app);
@@ -131,11 +156,98 @@ public class DevConsoleV2Test extends TestCase{
 		assertEquals(app.getLatestStats().getAvgRatingDiff(),Float.parseFloat("4.7884617"));
 		assertEquals(app.getLatestStats().getNumberOfComments(), 52);
 		assertNotNull(app.getLatestStats().getHistoricalStats());
+		// the three timelines of the full query, one request each
+		AppHistoricalStats historicalStats = app.getLatestStats().getHistoricalStats();
+		assertFalse(historicalStats.getDailyInstallsByDevice().isEmpty());
+		assertFalse(historicalStats.getCurrentInstallsByDevice().isEmpty());
+		assertFalse(historicalStats.getTotalInstallsByUser().isEmpty());
+		verify(protocol, times(3)).createFetchStatisticsRequest(anyString(), anyInt());
+		verify(protocol).createFetchStatisticsRequest(PACKAGE_NAME_OK, DevConsoleV2Protocol.STATS_TYPE_ACTIVE_DEVICE_INSTALLS);
+		verify(protocol).createFetchStatisticsRequest(PACKAGE_NAME_OK, DevConsoleV2Protocol.STATS_TYPE_TOTAL_USER_INSTALLS);
+		verify(protocol).createFetchStatisticsRequest(PACKAGE_NAME_OK, DevConsoleV2Protocol.STATS_TYPE_DAILY_DEVICE_INSTALLS);
 		
     }
-  
-    
-    
-  
-    
+
+    @SuppressWarnings("unchecked")
+	@Test
+    public void testStatisticsRequestAsksForEveryBreakdown()
+    {
+		String request = new DevConsoleV2Protocol(CREDENTIALS_OK).createFetchStatisticsRequest(
+				PACKAGE_NAME_OK, DevConsoleV2Protocol.STATS_TYPE_TOTAL_USER_INSTALLS);
+		assertTrue(request, request.contains("\"3\":8,\"4\":[1,2,3,4,5,6]"));
+    }
+
+	@Test
+    public void testConcurrentFullQueriesGetOwnApps() throws Exception
+    {
+    	when(protocol.hasSessionCredentials()).thenReturn(true);
+		when(protocol.getSessionCredentials()).thenReturn(CREDENTIALS_OK);
+		when(protocol.createFetchAppsUrl(DEVELOPERID)).thenReturn(FETCH_APP_INFOS_URL);
+		when(protocol.createFetchAppInfoRequest(anyString())).thenReturn(FETCH_APP_INFOS_POST);
+		// the app info is answered once both threads sent it, or late if only one did
+		final CountDownLatch arrived = new CountDownLatch(2);
+		final Answer<Object> appInfos = respond(APP_INFOS_JSON);
+		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(new Answer<Object>() {
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				arrived.countDown();
+				arrived.await(1, TimeUnit.SECONDS);
+				return appInfos.answer(invocation);
+			}
+		});
+		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_STATS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_RATINGS_JSON));
+		when(protocol.parseAppInfoResponse(isA(Reader.class), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
+		when(protocol.createFetchStatisticsUrl(DEVELOPERID)).thenReturn(FETCH_APP_STATS_URL);
+		when(protocol.createFetchStatisticsRequest(anyString(), anyInt())).thenReturn(FETCH_APP_STATS_POST);
+		when(protocol.createCommentsUrl(DEVELOPERID)).thenReturn(COMMENTS_URL);
+		when(protocol.createFetchRatingsRequest(PACKAGE_NAME_OK)).thenReturn(RATINGS_POST);
+		when(protocol.parseStatisticsResponse(isA(Reader.class))).thenCallRealMethod();
+		when(protocol.parseRatingsResponse(isA(Reader.class))).thenCallRealMethod();
+		doCallRealMethod().when(protocol).addStatistics(isA(AppStats.class),anyInt(),isA(TimeSeries.class));
+
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		try {
+			Callable<AppInfo> query = new Callable<AppInfo>() {
+				public AppInfo call() {
+					return console.getAppInfoAndStatisticsFromFullQuery(PACKAGE_NAME_OK);
+				}
+			};
+			Future<AppInfo> first = callers.submit(query);
+			Future<AppInfo> second = callers.submit(query);
+			AppInfo firstApp = first.get(5, TimeUnit.SECONDS);
+			AppInfo secondApp = second.get(5, TimeUnit.SECONDS);
+			// each caller fills in its own app
+			assertNotSame(firstApp, secondApp);
+			assertNotSame(firstApp.getLatestStats(), secondApp.getLatestStats());
+			assertEquals(52, firstApp.getLatestStats().getNumberOfComments());
+			assertEquals(52, secondApp.getLatestStats().getNumberOfComments());
+			assertNotNull(firstApp.getLatestStats().getHistoricalStats().getDailyInstallsByDevice());
+			assertNotNull(secondApp.getLatestStats().getHistoricalStats().getDailyInstallsByDevice());
+		} finally {
+			callers.shutdownNow();
+		}
+    }
+
+    @SuppressWarnings("unchecked")
+	@Test
+    public void testRejectedSessionAlreadyRenewed() throws ClientProtocolException, IOException
+    {
+    	// another request logged in again after this one sent the old session
+    	SessionCredentials renewed=new SessionCredentials(ACCOUNT_NAME,XSRF,arrayAccountsOK);
+		when(protocol.getSessionCredentials()).thenReturn(CREDENTIALS_OK, renewed);
+		when(protocol.hasSessionCredentials()).thenReturn(true);
+		when(protocol.createFetchAppsUrl(DEVELOPERID)).thenReturn(FETCH_APP_INFOS_URL);
+		when(protocol.createFetchAppInfoRequest(anyString())).thenReturn(FETCH_APP_INFOS_POST);
+		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) ))
+				.thenThrow(new HttpResponseException(HttpStatus.SC_UNAUTHORIZED, "Unauthorized"))
+				.thenAnswer(respond(APP_INFOS_JSON));
+		when(protocol.parseAppInfoResponse(anyString(), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
+		when(protocol.parseAppInfoResponse(isA(Reader.class), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
+
+		AppInfo app=console.getAppInfoFromFullQuery(PACKAGE_NAME_OK);
+		assertNotNull(app);
+		assertEquals(app.getPackageName(), PACKAGE_NAME_OK );
+		verify(authenticator, never()).authenticateSilently(anyBoolean());
+    }
+
 }
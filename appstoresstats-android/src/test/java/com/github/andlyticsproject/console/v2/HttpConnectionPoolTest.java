@@ -0,0 +1,54 @@
+package com.github.andlyticsproject.console.v2;
+
+import junit.framework.TestCase;
+
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.apache.http.params.HttpConnectionParams;
+import org.junit.Test;
+
+public class HttpConnectionPoolTest extends TestCase {
+
+	@Test
+	public void testClientsShareConnectionsNotCookies() {
+		HttpConnectionPool pool = new HttpConnectionPool(10, 5, 1000, 2000, 60000);
+		try {
+			DefaultHttpClient first = pool.createHttpClient();
+			DefaultHttpClient second = pool.createHttpClient();
+			assertSame(pool.getConnectionManager(), first.getConnectionManager());
+			assertSame(first.getConnectionManager(), second.getConnectionManager());
+
+			first.getCookieStore().addCookie(new BasicClientCookie("SID", "secret"));
+			assertTrue(second.getCookieStore().getCookies().isEmpty());
+
+			assertEquals(1000, HttpConnectionParams.getConnectionTimeout(first.getParams()));
+			assertEquals(2000, HttpConnectionParams.getSoTimeout(first.getParams()));
+			assertTrue(HttpConnectionParams.isStaleCheckingEnabled(first.getParams()));
+			HttpConnectionParams.setSoTimeout(first.getParams(), 5000);
+			assertEquals(2000, HttpConnectionParams.getSoTimeout(second.getParams()));
+
+			HttpConnectionPool.Stats stats = pool.getStats();
+			assertEquals(0, stats.getLeased());
+			assertEquals(0, stats.getAvailable());
+			assertEquals(0, stats.getPending());
+			assertEquals(10, stats.getMax());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testShutdown() {
+		HttpConnectionPool pool = new HttpConnectionPool();
+		pool.shutdown();
+		assertTrue(pool.isShutdown());
+		// twice is harmless
+		pool.shutdown();
+		try {
+			pool.createHttpClient();
+			fail();
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+}
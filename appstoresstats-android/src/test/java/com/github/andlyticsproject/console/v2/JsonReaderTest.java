@@ -0,0 +1,140 @@
+package com.github.andlyticsproject.console.v2;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import org.json.JSONException;
+
+public class JsonReaderTest extends TestCase{
+
+	private static JsonReader reader(String json){
+		return new JsonReader(new StringReader(json));
+	}
+
+	public void testUnicodeEscapes() throws Exception{
+		JsonReader reader = reader("[\"\\u00e9t\\u00E9\", \"a\\\"b\\\\c\\/d\\n\"]");
+		reader.beginArray();
+		assertEquals("\u00e9t\u00e9", reader.nextString());
+		assertEquals("a\"b\\c/d\n", reader.nextString());
+		reader.endArray();
+		assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+	}
+
+	public void testInvalidUnicodeEscape() throws Exception{
+		JsonReader reader = reader("[\"\\u00zz\"]");
+		reader.beginArray();
+		try {
+			reader.nextString();
+			fail();
+		} catch (JSONException e) {
+			// expected
+		}
+	}
+
+	public void testQuotedAndBareNumbers() throws Exception{
+		JsonReader reader = reader("{\"a\":1381442400000,\"b\":\"1381442400000\",\"c\":\"42\",\"d\":42,\"e\":4.79,\"f\":-3}");
+		reader.beginObject();
+		assertEquals("a", reader.nextName());
+		assertEquals(1381442400000L, reader.nextLong());
+		assertEquals("b", reader.nextName());
+		assertEquals(1381442400000L, reader.nextLong());
+		assertEquals("c", reader.nextName());
+		assertEquals(42, reader.nextInt());
+		assertEquals("d", reader.nextName());
+		assertEquals(42, reader.nextInt());
+		assertEquals("e", reader.nextName());
+		assertEquals(4, reader.nextInt());
+		assertEquals("f", reader.nextName());
+		assertEquals("-3", reader.nextString());
+		reader.endObject();
+	}
+
+	public void testNotANumber() throws Exception{
+		JsonReader reader = reader("[\"abc\",true]");
+		reader.beginArray();
+		try {
+			reader.nextLong();
+			fail();
+		} catch (JSONException e) {
+			// expected
+		}
+		try {
+			reader.nextInt();
+			fail();
+		} catch (JSONException e) {
+			// a boolean is not a number either
+		}
+	}
+
+	public void testSkipNestedValue() throws Exception{
+		JsonReader reader = reader("{\"skip\":{\"a\":[1,[2,{\"b\":null}],\"]}\"],\"c\":{}},\"keep\":true}");
+		reader.beginObject();
+		assertEquals("skip", reader.nextName());
+		reader.skipValue();
+		assertEquals("keep", reader.nextName());
+		assertTrue(reader.nextBoolean());
+		assertFalse(reader.hasNext());
+		reader.endObject();
+	}
+
+	public void testValuesAcrossBufferBoundary() throws Exception{
+		// moves the values over the 1024 chars buffer a char at a time
+		for (int padding = 990; padding < 1030; padding++) {
+			StringBuilder json = new StringBuilder("{\"p\":\"");
+			for (int i = 0; i < padding; i++) {
+				json.append('x');
+			}
+			json.append("\",\"s\":\"\\u00e9abc\",\"n\":123456789012,\"t\":true}");
+
+			JsonReader reader = reader(json.toString());
+			reader.beginObject();
+			assertEquals("p", reader.nextName());
+			assertEquals(padding, reader.nextString().length());
+			assertEquals("s", reader.nextName());
+			assertEquals("\u00e9abc", reader.nextString());
+			assertEquals("n", reader.nextName());
+			assertEquals(123456789012L, reader.nextLong());
+			assertEquals("t", reader.nextName());
+			assertTrue(reader.nextBoolean());
+			reader.endObject();
+			assertEquals(JsonReader.Token.END_DOCUMENT, reader.peek());
+		}
+	}
+
+	public void testShortReads() throws Exception{
+		// the reader may return less than asked for
+		Reader in = new StringReader("{\"name\":\"v\\u0061lue\",\"list\":[10,20]}") {
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				return super.read(buffer, offset, Math.min(length, 3));
+			}
+		};
+		JsonReader reader = new JsonReader(in);
+		reader.beginObject();
+		assertEquals("name", reader.nextName());
+		assertEquals("value", reader.nextString());
+		assertEquals("list", reader.nextName());
+		reader.beginArray();
+		assertEquals(10, reader.nextInt());
+		assertEquals(20, reader.nextInt());
+		reader.endArray();
+		reader.endObject();
+	}
+
+	public void testTruncatedInput() throws Exception{
+		String[] truncated = { "", "{", "{\"a\"", "{\"a\":", "{\"a\":\"abc", "{\"a\":[1,2",
+				"{\"a\":\"\\u00", "[{}" };
+		for (String json : truncated) {
+			JsonReader reader = reader(json);
+			try {
+				reader.skipValue();
+				fail(json);
+			} catch (JSONException e) {
+				// expected
+			}
+		}
+	}
+}
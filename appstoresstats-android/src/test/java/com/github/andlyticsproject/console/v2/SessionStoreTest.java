@@ -0,0 +1,123 @@
+package com.github.andlyticsproject.console.v2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.andlyticsproject.model.DeveloperConsoleAccount;
+
+public class SessionStoreTest extends TestCase {
+
+	private static final byte[] KEY = "test key".getBytes();
+
+	private File directory;
+
+	private SessionStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("sessions", "");
+		directory.delete();
+		store = new SessionStore(directory, KEY);
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private SessionCredentials createSession(Date expiryDate) {
+		SessionCredentials session = new SessionCredentials("user@example.com", "xsrf",
+				new DeveloperConsoleAccount[] { new DeveloperConsoleAccount("0123", "Dev") });
+		BasicClientCookie cookie = new BasicClientCookie("SID", "secret");
+		cookie.setDomain(".google.com");
+		cookie.setPath("/");
+		cookie.setExpiryDate(expiryDate);
+		cookie.setSecure(true);
+		session.addCookie(cookie);
+		session.addWhitelistedFeatures(Arrays.asList("REPLY_TO_COMMENTS"));
+		return session;
+	}
+
+	@Test
+	public void testSaveAndLoad() {
+		Date expiryDate = new Date(System.currentTimeMillis() + 3600 * 1000);
+		store.save(createSession(expiryDate));
+
+		SessionCredentials session = new SessionStore(directory, KEY).load("user@example.com");
+		assertNotNull(session);
+		assertEquals("xsrf", session.getXsrfToken());
+		assertEquals("0123", session.getDeveloperConsoleAccounts()[0].getDeveloperId());
+		assertEquals("Dev", session.getDeveloperConsoleAccounts()[0].getName());
+		assertTrue(session.hasFeature("REPLY_TO_COMMENTS"));
+		Cookie cookie = session.getCookies().get(0);
+		assertEquals("SID", cookie.getName());
+		assertEquals("secret", cookie.getValue());
+		assertEquals(".google.com", cookie.getDomain());
+		assertEquals(expiryDate, cookie.getExpiryDate());
+		assertTrue(cookie.isSecure());
+
+		assertNull(store.load("other@example.com"));
+	}
+
+	@Test
+	public void testEncryptedOnDisk() throws IOException {
+		store.save(createSession(null));
+		File file = store.getFile("user@example.com");
+		byte[] data = new byte[(int) file.length()];
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			in.readFully(data);
+		} finally {
+			in.close();
+		}
+		assertFalse(new String(data, "ISO-8859-1").contains("secret"));
+		assertFalse(file.getName().contains("example"));
+	}
+
+	@Test
+	public void testWrongKeyDiscarded() {
+		store.save(createSession(null));
+		assertNull(new SessionStore(directory, "other key".getBytes()).load("user@example.com"));
+		assertFalse(store.getFile("user@example.com").exists());
+	}
+
+	@Test
+	public void testTamperedDiscarded() throws IOException {
+		store.save(createSession(null));
+		File file = store.getFile("user@example.com");
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.seek(20);
+			int b = out.read();
+			out.seek(20);
+			out.write(b ^ 1);
+		} finally {
+			out.close();
+		}
+		assertNull(store.load("user@example.com"));
+	}
+
+	@Test
+	public void testExpiredDiscarded() {
+		store.save(createSession(new Date(System.currentTimeMillis() - 1000)));
+		assertNull(store.load("user@example.com"));
+		assertFalse(store.getFile("user@example.com").exists());
+	}
+}
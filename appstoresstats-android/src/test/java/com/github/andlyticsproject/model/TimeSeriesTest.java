@@ -0,0 +1,74 @@
+package com.github.andlyticsproject.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import es.arcadiaconsulting.appstoresstats.common.DayHelper;
+
+public class TimeSeriesTest extends TestCase {
+
+	private TimeSeries series() {
+		return new TimeSeries(new int[] { 10, 11, 13, 20 }, new long[] { 5, 7, 1, 9 });
+	}
+
+	@Test
+	public void testRangeQueries() {
+		TimeSeries series = series();
+		assertEquals(22, series.sum(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		assertEquals(17, series.sum(11, 20));
+		// days without a value are skipped
+		assertEquals(8, series.sum(11, 19));
+		assertEquals(2, series.count(12, 13) + series.count(10, 10));
+		assertEquals(0, series.sum(14, 19));
+		assertEquals(0, series.sum(20, 10));
+		assertEquals(1, series.min(10, 13));
+		assertEquals(9, series.max(11, 30));
+		assertEquals(4.0, series.average(11, 13), 0.0001);
+		assertEquals(0.0, series.average(21, 30), 0.0001);
+		assertEquals(9, series.getLatestValue());
+		assertEquals(2, series.indexOf(13));
+		assertEquals(-1, series.indexOf(12));
+	}
+
+	@Test
+	public void testBuilderSortsAndReplacesDays() {
+		TimeSeries series = new TimeSeries.Builder(2).add(3, 30).add(1, 10).add(2, 20).add(1, 11)
+				.add(4, 40).add(4, 41).build();
+		assertEquals(4, series.size());
+		assertEquals(1, series.getDay(0));
+		assertEquals(11, series.getValue(0));
+		assertEquals(20, series.getValue(1));
+		assertEquals(41, series.getLatestValue());
+	}
+
+	@Test
+	public void testDatesAndElements() {
+		Date day = DayHelper.toDate(15000);
+		assertEquals(15000, DayHelper.toEpochDay(day));
+		assertEquals(15000, DayHelper.toEpochDay(new Date(day.getTime() + 23 * 60 * 60 * 1000L)));
+
+		List<AppHistoricalStatsElement> elements = new ArrayList<AppHistoricalStatsElement>();
+		elements.add(new AppHistoricalStatsElement(DayHelper.toDate(15000), "3"));
+		elements.add(new AppHistoricalStatsElement(DayHelper.toDate(15001), "4"));
+		TimeSeries series = TimeSeries.fromElements(elements);
+		assertEquals(7, series.sum(day, null));
+		assertEquals(4, series.sum(DayHelper.toDate(15001), DayHelper.toDate(15001)));
+		assertEquals("4", series.toElements().get(1).getNumber());
+		assertEquals(DayHelper.toDate(15001), series.toElements().get(1).getDate());
+	}
+
+	@Test
+	public void testUnsortedDaysRejected() {
+		try {
+			new TimeSeries(new int[] { 2, 1 }, new long[] { 1, 1 });
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package es.arcadiaconsulting.appstoresstats.android.console;
 
+import static com.github.andlyticsproject.console.v2.CommonMatchers.respond;
 import static com.github.andlyticsproject.console.v2.Constants.*;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
@@ -10,6 +11,7 @@ import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.Date;
 
 import junit.framework.TestCase;
@@ -31,6 +33,7 @@ import com.github.andlyticsproject.console.v2.CommonMatchers.HttpPostAppComments
 import com.github.andlyticsproject.console.v2.CommonMatchers.HttpPostAppInfosArgumentMatcher;
 import com.github.andlyticsproject.console.v2.CommonMatchers.HttpPostAppStatsArgumentMatcher;
 import com.github.andlyticsproject.model.AppStats;
+import com.github.andlyticsproject.model.TimeSeries;
 
 import es.arcadiaconsulting.appstoresstats.android.console.AndroidStoreStats;
 import es.arcadiaconsulting.appstoresstats.android.model.StatsDataAndroid;
@@ -80,18 +83,18 @@ public class AndroidStoreStatsTest extends TestCase{
 	@Test
 	public void testGetStatsDataAndroidBetweenDates() throws ClientProtocolException, IOException
 	{	AndroidStoreStats stats=new AndroidStoreStats();
-		stats.console=console;
 		when(protocol.hasSessionCredentials()).thenReturn(true);
 		when(protocol.getSessionCredentials()).thenReturn(CREDENTIALS_OK);
 		when(protocol.createFetchAppsUrl(DEVELOPERID)).thenReturn(FETCH_APP_INFOS_URL);
 		when(protocol.createFetchAppInfosRequest()).thenReturn(FETCH_APP_INFOS_POST);
-		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_INFOS_JSON);
-		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_STATS_JSON);
+		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_INFOS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_STATS_JSON));
 		when(protocol.createFetchAppInfoRequest(anyString())).thenReturn(FETCH_APP_INFOS_POST);
 		when(protocol.createCommentsUrl(DEVELOPERID)).thenReturn(COMMENTS_URL);
 		when(protocol.createFetchCommentsRequest(PACKAGE_NAME_OK, 0, 50, "es")).thenReturn(COMMENTS_POST);
 	
 		when(protocol.parseAppInfoResponse(anyString(), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
+		when(protocol.parseAppInfoResponse(isA(Reader.class), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
 		when(protocol.createFetchStatisticsUrl(DEVELOPERID)).thenReturn(FETCH_APP_STATS_URL);
 		when(protocol.createFetchStatisticsRequest(anyString(), anyInt())).thenReturn(FETCH_APP_STATS_POST);
 		when(protocol.createFetchRatingsRequest(PACKAGE_NAME_OK)).thenReturn(RATINGS_POST);
@@ -99,7 +102,10 @@ public class AndroidStoreStatsTest extends TestCase{
 
 	 doCallRealMethod().when(protocol).parseStatisticsResponse(anyString(),isA(AppStats.class),anyInt());
 		doCallRealMethod().when(protocol).parseRatingsResponse(anyString(),isA(AppStats.class));
-	when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_RATINGS_JSON);
+		when(protocol.parseStatisticsResponse(isA(Reader.class))).thenCallRealMethod();
+		when(protocol.parseRatingsResponse(isA(Reader.class))).thenCallRealMethod();
+		doCallRealMethod().when(protocol).addStatistics(isA(AppStats.class),anyInt(),isA(TimeSeries.class));
+	when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_RATINGS_JSON));
 
 		
 		
@@ -110,7 +116,7 @@ public class AndroidStoreStatsTest extends TestCase{
 		    Date initDate=new Date(1381442400000L);
 		endDate.setTime(1381788000000L);
 
-		StatsDataAndroid inf=(StatsDataAndroid) stats.getStatsDataAndroidBetweenDates(PACKAGE_NAME_OK, initDate, endDate);
+		StatsDataAndroid inf=(StatsDataAndroid) stats.getStatsDataAndroidBetweenDates(console,PACKAGE_NAME_OK, initDate, endDate);
 		assertNotNull(inf);
 		assertEquals(inf.getAppId(), PACKAGE_NAME_OK);
 		assertEquals(inf.getAppName(),APP_OK_NAME);
@@ -124,18 +130,18 @@ public class AndroidStoreStatsTest extends TestCase{
 	@Test
 	public void testGetBasicStatsDataAndroid() throws ClientProtocolException, IOException
 	{	AndroidStoreStats stats=new AndroidStoreStats();
-		stats.console=console;
 		when(protocol.hasSessionCredentials()).thenReturn(true);
 		when(protocol.getSessionCredentials()).thenReturn(CREDENTIALS_OK);
 		when(protocol.createFetchAppsUrl(DEVELOPERID)).thenReturn(FETCH_APP_INFOS_URL);
 		when(protocol.createFetchAppInfosRequest()).thenReturn(FETCH_APP_INFOS_POST);
-		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_INFOS_JSON);
-		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_STATS_JSON);
+		when(httpClient.execute(argThat(new HttpPostAppInfosArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_INFOS_JSON));
+		when(httpClient.execute(argThat(new HttpPostAppStatsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_STATS_JSON));
 		when(protocol.createFetchAppInfoRequest(anyString())).thenReturn(FETCH_APP_INFOS_POST);
 		when(protocol.createCommentsUrl(DEVELOPERID)).thenReturn(COMMENTS_URL);
 		when(protocol.createFetchCommentsRequest(PACKAGE_NAME_OK, 0, 50, "es")).thenReturn(COMMENTS_POST);
 	
 		when(protocol.parseAppInfoResponse(anyString(), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
+		when(protocol.parseAppInfoResponse(isA(Reader.class), anyString(),anyString(), anyBoolean())).thenCallRealMethod();
 		when(protocol.createFetchStatisticsUrl(DEVELOPERID)).thenReturn(FETCH_APP_STATS_URL);
 		when(protocol.createFetchStatisticsRequest(anyString(), anyInt())).thenReturn(FETCH_APP_STATS_POST);
 		when(protocol.createFetchRatingsRequest(PACKAGE_NAME_OK)).thenReturn(RATINGS_POST);
@@ -143,7 +149,10 @@ public class AndroidStoreStatsTest extends TestCase{
 
 	 doCallRealMethod().when(protocol).parseStatisticsResponse(anyString(),isA(AppStats.class),anyInt());
 		doCallRealMethod().when(protocol).parseRatingsResponse(anyString(),isA(AppStats.class));
-	when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenReturn(APP_RATINGS_JSON);
+		when(protocol.parseStatisticsResponse(isA(Reader.class))).thenCallRealMethod();
+		when(protocol.parseRatingsResponse(isA(Reader.class))).thenCallRealMethod();
+		doCallRealMethod().when(protocol).addStatistics(isA(AppStats.class),anyInt(),isA(TimeSeries.class));
+	when(httpClient.execute(argThat(new HttpPostAppCommentsArgumentMatcher()),isA(ResponseHandler.class) )).thenAnswer(respond(APP_RATINGS_JSON));
 
 		
 		
@@ -154,7 +163,7 @@ public class AndroidStoreStatsTest extends TestCase{
 		    Date initDate=new Date(1381442400000L);
 		endDate.setTime(1381788000000L);
 		
-		StatsDataAndroid inf=(StatsDataAndroid) stats.getBasicStatsDataAndroid(PACKAGE_NAME_OK);
+		StatsDataAndroid inf=(StatsDataAndroid) stats.getBasicStatsDataAndroid(console,PACKAGE_NAME_OK);
 		assertNotNull(inf);
 		assertEquals(inf.getAppId(), PACKAGE_NAME_OK);
 		assertEquals(inf.getAppName(),APP_OK_NAME);
@@ -165,7 +174,7 @@ public class AndroidStoreStatsTest extends TestCase{
 		assertEquals(inf.getDownloadsNumber(),4148);
 		initDate=new Date(1381788000000L);
 		endDate.setTime(System.currentTimeMillis());
-		inf=(StatsDataAndroid) stats.getStatsDataAndroidBetweenDates("abc", initDate, endDate);
+		inf=(StatsDataAndroid) stats.getStatsDataAndroidBetweenDates(console,"abc", initDate, endDate);
 		
 		
 	}
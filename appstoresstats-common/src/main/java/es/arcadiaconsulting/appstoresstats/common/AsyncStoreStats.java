@@ -0,0 +1,160 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the calls of an {@link IStoreStats} on an executor.
+ *
+ * Each instance wraps one store. Give the iOS and the Android stores their
+ * own instances and executors, so a slow store does not hold the threads of
+ * the other.
+ */
+public class AsyncStoreStats implements IAsyncStoreStats {
+
+	public static final int DEFAULT_THREADS = 8;
+
+	private final IStoreStats storeStats;
+
+	private final ExecutorService executor;
+
+	// only shut down the executor created here
+	private final boolean ownExecutor;
+
+	/**
+	 * Uses a pool of {@link #DEFAULT_THREADS} daemon threads
+	 */
+	public AsyncStoreStats(IStoreStats storeStats) {
+		this(storeStats, Executors.newFixedThreadPool(DEFAULT_THREADS, daemonThreads("store-stats-")),
+				true);
+	}
+
+	public AsyncStoreStats(IStoreStats storeStats, ExecutorService executor) {
+		this(storeStats, executor, false);
+	}
+
+	private AsyncStoreStats(IStoreStats storeStats, ExecutorService executor, boolean ownExecutor) {
+		this.storeStats = storeStats;
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+	}
+
+	@Override
+	public Future<CommonStatsData> getStatsForApp(String user, String password, String appId,
+			Date initDate, Date endDate, String vendorId) {
+		return getStatsForApp(user, password, appId, initDate, endDate, vendorId, null);
+	}
+
+	@Override
+	public Future<CommonStatsData> getStatsForApp(final String user, final String password,
+			final String appId, final Date initDate, final Date endDate, final String vendorId,
+			StoreStatsCallback callback) {
+		return submit(new Callable<CommonStatsData>() {
+			@Override
+			public CommonStatsData call() throws StoreStatsException {
+				return checkResult(storeStats.getStatsForApp(user, password, appId, initDate,
+						endDate, vendorId), appId);
+			}
+		}, callback);
+	}
+
+	@Override
+	public Future<CommonStatsData> getFullStatsForApp(String user, String password, String appId,
+			String vendorId) {
+		return getFullStatsForApp(user, password, appId, vendorId, null);
+	}
+
+	@Override
+	public Future<CommonStatsData> getFullStatsForApp(final String user, final String password,
+			final String appId, final String vendorId, StoreStatsCallback callback) {
+		return submit(new Callable<CommonStatsData>() {
+			@Override
+			public CommonStatsData call() throws StoreStatsException {
+				return checkResult(storeStats.getFullStatsForApp(user, password, appId, vendorId),
+						appId);
+			}
+		}, callback);
+	}
+
+	/**
+	 * Stops the executor if it was created by this instance
+	 */
+	public void shutdown() {
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * @return a factory of daemon threads named with the prefix and a number
+	 */
+	public static ThreadFactory daemonThreads(final String namePrefix) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, namePrefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	private static CommonStatsData checkResult(CommonStatsData statsData, String appId)
+			throws StoreStatsException {
+		// stores return null on failure and log the reason
+		if (statsData == null) {
+			throw new StoreStatsException("Could not get stats for app " + appId);
+		}
+		return statsData;
+	}
+
+	private Future<CommonStatsData> submit(Callable<CommonStatsData> call,
+			final StoreStatsCallback callback) {
+		FutureTask<CommonStatsData> task = new FutureTask<CommonStatsData>(call) {
+			@Override
+			protected void done() {
+				if (callback == null || isCancelled()) {
+					return;
+				}
+				try {
+					callback.onSuccess(get());
+				} catch (ExecutionException e) {
+					callback.onFailure(e.getCause());
+				} catch (CancellationException e) {
+					// cancelled while finishing, nobody waits for the result
+				} catch (InterruptedException e) {
+					// get() does not block once the task is done
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		executor.execute(task);
+		return task;
+	}
+
+}
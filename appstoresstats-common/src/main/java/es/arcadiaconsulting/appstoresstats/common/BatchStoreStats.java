@@ -0,0 +1,166 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import es.arcadiaconsulting.appstoresstats.common.CommonStatsData.Platform;
+
+/**
+ * Stats of many apps of both stores in one call.
+ *
+ * Queries are grouped by account (platform, user and vendor) and every group
+ * is resolved with a single {@link IStoreStats#getStatsForApps} call, so the
+ * Google login and the Apple reports are shared by the apps of the account.
+ * Groups run concurrently on the executor.
+ */
+public class BatchStoreStats {
+
+	public static final int DEFAULT_THREADS = 4;
+
+	private static final Logger logger = LoggerFactory.getLogger(BatchStoreStats.class);
+
+	private final Map<Platform, IStoreStats> stores = new HashMap<Platform, IStoreStats>();
+
+	private final ExecutorService executor;
+
+	// only shut down the executor created here
+	private final boolean ownExecutor;
+
+	/**
+	 * Uses a pool of {@link #DEFAULT_THREADS} daemon threads
+	 */
+	public BatchStoreStats(IStoreStats iosStats, IStoreStats androidStats) {
+		this(iosStats, androidStats, Executors.newFixedThreadPool(DEFAULT_THREADS,
+				AsyncStoreStats.daemonThreads("batch-stats-")), true);
+	}
+
+	public BatchStoreStats(IStoreStats iosStats, IStoreStats androidStats,
+			ExecutorService executor) {
+		this(iosStats, androidStats, executor, false);
+	}
+
+	private BatchStoreStats(IStoreStats iosStats, IStoreStats androidStats,
+			ExecutorService executor, boolean ownExecutor) {
+		stores.put(Platform.iOS, iosStats);
+		stores.put(Platform.android, androidStats);
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+	}
+
+	/**
+	 * @return stats in the same order as the queries, without the apps that
+	 *         failed
+	 * @throws StoreStatsException if interrupted while waiting for the groups
+	 */
+	public List<CommonStatsData> getStats(List<StatsQuery> queries, Date initDate, Date endDate)
+			throws StoreStatsException {
+		Map<String, List<StatsQuery>> queriesByAccount = new LinkedHashMap<String, List<StatsQuery>>();
+		for (StatsQuery query : queries) {
+			List<StatsQuery> accountQueries = queriesByAccount.get(query.getAccountKey());
+			if (accountQueries == null) {
+				accountQueries = new ArrayList<StatsQuery>();
+				queriesByAccount.put(query.getAccountKey(), accountQueries);
+			}
+			accountQueries.add(query);
+		}
+
+		Map<String, Future<List<CommonStatsData>>> futures = new LinkedHashMap<String, Future<List<CommonStatsData>>>();
+		try {
+			for (Map.Entry<String, List<StatsQuery>> entry : queriesByAccount.entrySet()) {
+				futures.put(entry.getKey(), executor.submit(createGroupCall(entry.getValue(),
+						initDate, endDate)));
+			}
+
+			Map<String, CommonStatsData> statsByQuery = new HashMap<String, CommonStatsData>();
+			for (Map.Entry<String, Future<List<CommonStatsData>>> entry : futures.entrySet()) {
+				List<CommonStatsData> accountStats;
+				try {
+					accountStats = entry.getValue().get();
+				} catch (ExecutionException e) {
+					// the apps of the account are left out
+					logger.error("Error getting stats of account "
+							+ entry.getKey().replace('\t', ' '), e.getCause());
+					continue;
+				}
+				if (accountStats == null) {
+					continue;
+				}
+				for (CommonStatsData statsData : accountStats) {
+					statsByQuery.put(entry.getKey() + "\t" + statsData.getAppId(), statsData);
+				}
+			}
+
+			List<CommonStatsData> result = new ArrayList<CommonStatsData>(queries.size());
+			for (StatsQuery query : queries) {
+				CommonStatsData statsData = statsByQuery.get(query.getAccountKey() + "\t"
+						+ query.getAppId());
+				if (statsData != null) {
+					result.add(statsData);
+				}
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StoreStatsException("Interrupted while getting stats", e);
+		} finally {
+			// no-op for finished groups
+			for (Future<List<CommonStatsData>> future : futures.values()) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private Callable<List<CommonStatsData>> createGroupCall(final List<StatsQuery> accountQueries,
+			final Date initDate, final Date endDate) {
+		final StatsQuery account = accountQueries.get(0);
+		final IStoreStats store = stores.get(account.getPlatform());
+		final List<String> appIds = new ArrayList<String>(accountQueries.size());
+		for (StatsQuery query : accountQueries) {
+			appIds.add(query.getAppId());
+		}
+		return new Callable<List<CommonStatsData>>() {
+			@Override
+			public List<CommonStatsData> call() {
+				return store.getStatsForApps(account.getUser(), account.getPassword(), appIds,
+						initDate, endDate, account.getVendorId());
+			}
+		};
+	}
+
+	/**
+	 * Stops the executor if it was created by this instance
+	 */
+	public void shutdown() {
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Days as days since 1970-01-01, so day ranges can be compared as ints.
+ *
+ * A date falls in the day of its local date in the given time zone, the
+ * default one when none is given, like the Calendar comparisons this
+ * replaces. Nothing here allocates except {@link #fromEpochDay(int)} and
+ * {@link #toDate(int, TimeZone)}.
+ */
+public class DayHelper {
+
+	public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+	private DayHelper() {
+	}
+
+	public static int toEpochDay(Date date) {
+		return toEpochDay(date, TimeZone.getDefault());
+	}
+
+	public static int toEpochDay(Date date, TimeZone timeZone) {
+		return toEpochDay(date.getTime(), timeZone);
+	}
+
+	public static int toEpochDay(long millis, TimeZone timeZone) {
+		long local = millis + timeZone.getOffset(millis);
+		long day = local / MILLIS_PER_DAY;
+		if (local % MILLIS_PER_DAY < 0) {
+			day--;
+		}
+		return (int) day;
+	}
+
+	/**
+	 * Days since 1970-01-01 of a proleptic gregorian date, month from 1 to 12
+	 */
+	public static int toEpochDay(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * @return year, month (1 to 12) and day of month
+	 */
+	public static int[] fromEpochDay(int epochDay) {
+		int z = epochDay + 719468;
+		int era = (z >= 0 ? z : z - 146096) / 146097;
+		int dayOfEra = z - era * 146097;
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+		return new int[] { year, month, day };
+	}
+
+	public static Date toDate(int epochDay) {
+		return toDate(epochDay, TimeZone.getDefault());
+	}
+
+	/**
+	 * @return the first instant of the day in the time zone
+	 */
+	public static Date toDate(int epochDay, TimeZone timeZone) {
+		long local = epochDay * MILLIS_PER_DAY;
+		return new Date(local - timeZone.getOffset(local - timeZone.getOffset(local)));
+	}
+
+	/**
+	 * @return 0 for Monday to 6 for Sunday
+	 */
+	public static int dayOfWeek(int epochDay) {
+		// 1970-01-01 was a Thursday
+		int mod = (epochDay + 3) % 7;
+		return mod < 0 ? mod + 7 : mod;
+	}
+
+	/**
+	 * @return the day of the date, or Integer.MIN_VALUE for no date, as the
+	 *         first day of an open range
+	 */
+	public static int firstDay(Date date, TimeZone timeZone) {
+		return date == null ? Integer.MIN_VALUE : toEpochDay(date, timeZone);
+	}
+
+	/**
+	 * @return the day of the date, or Integer.MAX_VALUE for no date, as the
+	 *         last day of an open range
+	 */
+	public static int lastDay(Date date, TimeZone timeZone) {
+		return date == null ? Integer.MAX_VALUE : toEpochDay(date, timeZone);
+	}
+}
@@ -0,0 +1,261 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link ReviewStore} with a file per app in a directory.
+ *
+ * Every sync appends one batch to the file of the app: the new watermark
+ * followed by the new reviews, so nothing already written is rewritten. A
+ * batch cut short by a crash is cut off the file when read and its reviews
+ * come again on the next sync. The ids of the stored reviews are kept in memory once
+ * read, to drop the reviews already stored.
+ */
+public class FileReviewStore implements ReviewStore {
+
+	private static final String SUFFIX = ".reviews";
+
+	private final File directory;
+
+	private final Map<String, Set<String>> idsByApp = new HashMap<String, Set<String>>();
+
+	private final Map<String, ReviewWatermark> watermarks = new HashMap<String, ReviewWatermark>();
+
+	public FileReviewStore(File directory) {
+		this.directory = directory;
+	}
+
+	public synchronized ReviewWatermark getWatermark(String appId) throws StoreStatsException {
+		if (!idsByApp.containsKey(appId)) {
+			load(appId, null);
+		}
+		return watermarks.get(appId);
+	}
+
+	public synchronized void addReviews(String appId, List<Rating> reviews,
+			ReviewWatermark watermark) throws StoreStatsException {
+		if (!idsByApp.containsKey(appId)) {
+			load(appId, null);
+		}
+		Set<String> ids = idsByApp.get(appId);
+		List<Rating> newReviews = new ArrayList<Rating>(reviews.size());
+		for (Rating review : reviews) {
+			if (review.getId() == null || !ids.contains(review.getId())) {
+				newReviews.add(review);
+			}
+		}
+		if (newReviews.isEmpty() && watermark == null) {
+			return;
+		}
+
+		File file = getFile(appId);
+		try {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create " + directory);
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream batch = new DataOutputStream(bytes);
+			batch.writeInt(newReviews.size());
+			writeWatermark(batch, watermark);
+			for (Rating review : newReviews) {
+				writeReview(batch, review);
+			}
+			batch.flush();
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file, true)));
+			try {
+				out.writeInt(bytes.size());
+				bytes.writeTo(out);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			throw new StoreStatsException("Could not store the reviews of " + appId, e);
+		}
+		for (Rating review : newReviews) {
+			if (review.getId() != null) {
+				ids.add(review.getId());
+			}
+		}
+		if (watermark != null) {
+			watermarks.put(appId, watermark);
+		}
+	}
+
+	public synchronized List<Rating> getReviews(String appId) throws StoreStatsException {
+		List<List<Rating>> batches = new ArrayList<List<Rating>>();
+		load(appId, batches);
+		// batches are appended oldest first
+		Collections.reverse(batches);
+		List<Rating> reviews = new ArrayList<Rating>();
+		for (List<Rating> batch : batches) {
+			reviews.addAll(batch);
+		}
+		return reviews;
+	}
+
+	private void load(String appId, List<List<Rating>> batches) throws StoreStatsException {
+		Set<String> ids = new HashSet<String>();
+		ReviewWatermark watermark = null;
+		File file = getFile(appId);
+		if (file.isFile()) {
+			try {
+				long length = 0;
+				DataInputStream in = new DataInputStream(new BufferedInputStream(
+						new FileInputStream(file)));
+				try {
+					while (length < file.length()) {
+						byte[] bytes = new byte[in.readInt()];
+						in.readFully(bytes);
+						length += 4 + bytes.length;
+
+						DataInputStream batchIn = new DataInputStream(new ByteArrayInputStream(bytes));
+						int size = batchIn.readInt();
+						ReviewWatermark batchWatermark = readWatermark(batchIn);
+						List<Rating> batch = new ArrayList<Rating>(size);
+						for (int i = 0; i < size; i++) {
+							Rating review = readReview(batchIn);
+							if (review.getId() != null) {
+								ids.add(review.getId());
+							}
+							batch.add(review);
+						}
+						if (batchWatermark != null) {
+							watermark = batchWatermark;
+						}
+						if (batches != null) {
+							batches.add(batch);
+						}
+					}
+				} catch (EOFException e) {
+					// last batch cut short, its reviews come again on the next sync
+				} finally {
+					in.close();
+				}
+				if (length < file.length()) {
+					truncate(file, length);
+				}
+			} catch (IOException e) {
+				throw new StoreStatsException("Could not read the reviews of " + appId, e);
+			}
+		}
+		idsByApp.put(appId, ids);
+		if (watermark != null) {
+			watermarks.put(appId, watermark);
+		} else {
+			watermarks.remove(appId);
+		}
+	}
+
+	private static void truncate(File file, long length) throws IOException {
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(length);
+		} finally {
+			out.close();
+		}
+	}
+
+	private File getFile(String appId) {
+		StringBuilder name = new StringBuilder(appId.length());
+		for (int i = 0; i < appId.length(); i++) {
+			char c = appId.charAt(i);
+			boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+					|| (c >= '0' && c <= '9') || c == '.' || c == '-';
+			name.append(safe ? c : '_');
+		}
+		return new File(directory, name + SUFFIX);
+	}
+
+	private static void writeWatermark(DataOutputStream out, ReviewWatermark watermark)
+			throws IOException {
+		out.writeBoolean(watermark != null);
+		if (watermark != null) {
+			writeDate(out, watermark.getDate());
+			writeNullable(out, watermark.getId());
+		}
+	}
+
+	private static ReviewWatermark readWatermark(DataInputStream in) throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+		return new ReviewWatermark(readDate(in), readNullable(in));
+	}
+
+	private static void writeReview(DataOutputStream out, Rating review) throws IOException {
+		writeNullable(out, review.getId());
+		writeDate(out, review.getDate());
+		out.writeInt(review.getRate());
+		writeNullable(out, review.getUser());
+		writeNullable(out, review.getAppVersion());
+		writeNullable(out, review.getOpinion());
+	}
+
+	private static Rating readReview(DataInputStream in) throws IOException {
+		Rating review = new Rating();
+		review.setId(readNullable(in));
+		review.setDate(readDate(in));
+		review.setRate(in.readInt());
+		review.setUser(readNullable(in));
+		review.setAppVersion(readNullable(in));
+		review.setOpinion(readNullable(in));
+		return review;
+	}
+
+	private static void writeDate(DataOutputStream out, Date date) throws IOException {
+		out.writeLong(date == null ? Long.MIN_VALUE : date.getTime());
+	}
+
+	private static Date readDate(DataInputStream in) throws IOException {
+		long time = in.readLong();
+		return time == Long.MIN_VALUE ? null : new Date(time);
+	}
+
+	private static void writeNullable(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullable(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+}
@@ -0,0 +1,36 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.Date;
+import java.util.concurrent.Future;
+
+/**
+ * Non blocking version of {@link IStoreStats}. The returned futures fail
+ * with an ExecutionException caused by a {@link StoreStatsException}
+ * instead of returning null.
+ */
+public interface IAsyncStoreStats {
+
+	public Future<CommonStatsData> getStatsForApp(String user,String password,String appId,Date initDate,Date endDate,String vendorId);
+	
+	public Future<CommonStatsData> getStatsForApp(String user,String password,String appId,Date initDate,Date endDate,String vendorId,StoreStatsCallback callback);
+	
+	public Future<CommonStatsData> getFullStatsForApp(String user,String password,String appId,String vendorId);
+	
+	public Future<CommonStatsData> getFullStatsForApp(String user,String password,String appId,String vendorId,StoreStatsCallback callback);
+	
+}
@@ -18,6 +18,10 @@ package es.arcadiaconsulting.appstoresstats.common;
 import java.util.Date;
 
 public class Rating {
+	/**
+	 * Id of the review in its store
+	 */
+	private String id;
 	/**
 	 * User rating for current app
 	 */
@@ -42,6 +46,12 @@ public class Rating {
 	 */
 	private Date date;
 	
+	public String getId() {
+		return id;
+	}
+	public void setId(String id) {
+		this.id = id;
+	}
 	public String getAppVersion() {
 		return appVersion;
 	}
@@ -0,0 +1,35 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.List;
+
+/**
+ * Reviews of the apps of a store, page by page
+ */
+public interface ReviewSource {
+
+	/**
+	 * @param page
+	 *            0 for the newest reviews
+	 * @return the reviews of the page from the newest to the oldest, empty
+	 *         after the last page
+	 * @throws StoreStatsException
+	 *             if the page could not be downloaded
+	 */
+	public List<Rating> getReviews(String appId, int page) throws StoreStatsException;
+
+}
@@ -0,0 +1,44 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.List;
+
+/**
+ * Local copy of the reviews of the apps and of how far they were synchronized
+ */
+public interface ReviewStore {
+
+	/**
+	 * @return the newest review stored for the app, or null if none
+	 */
+	public ReviewWatermark getWatermark(String appId) throws StoreStatsException;
+
+	/**
+	 * Adds the reviews not stored yet and moves the watermark of the app
+	 *
+	 * @param reviews
+	 *            from the newest to the oldest
+	 */
+	public void addReviews(String appId, List<Rating> reviews, ReviewWatermark watermark)
+			throws StoreStatsException;
+
+	/**
+	 * @return every stored review of the app, from the newest to the oldest
+	 */
+	public List<Rating> getReviews(String appId) throws StoreStatsException;
+
+}
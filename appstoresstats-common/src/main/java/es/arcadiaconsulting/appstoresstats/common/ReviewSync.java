@@ -0,0 +1,90 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incremental synchronization of the reviews of an app into a
+ * {@link ReviewStore}.
+ *
+ * Pages of the {@link ReviewSource} are read from the newest reviews until
+ * one already seen is reached, according to the watermark of the app, so a
+ * poll without new reviews costs a single page. The reviews found are stored
+ * together with the new watermark; if a page fails nothing is stored and the
+ * next sync starts over from the same watermark.
+ */
+public class ReviewSync {
+
+	public static final int DEFAULT_MAX_PAGES = 10;
+
+	private final ReviewSource source;
+
+	private final ReviewStore store;
+
+	private int maxPages = DEFAULT_MAX_PAGES;
+
+	public ReviewSync(ReviewSource source, ReviewStore store) {
+		this.source = source;
+		this.store = store;
+	}
+
+	/**
+	 * Limits the pages read in a sync, for the first sync of an app and for
+	 * apps with more new reviews than fit in them the oldest ones are skipped
+	 */
+	public void setMaxPages(int maxPages) {
+		this.maxPages = maxPages;
+	}
+
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+	/**
+	 * @return the new reviews of the app, from the newest to the oldest
+	 */
+	public List<Rating> sync(String appId) throws StoreStatsException {
+		ReviewWatermark watermark = store.getWatermark(appId);
+		List<Rating> newReviews = new ArrayList<Rating>();
+		// pages move while they are read if reviews arrive meanwhile
+		Set<String> ids = new HashSet<String>();
+		boolean seen = false;
+		for (int page = 0; page < maxPages && !seen; page++) {
+			List<Rating> reviews = source.getReviews(appId, page);
+			if (reviews == null || reviews.isEmpty()) {
+				break;
+			}
+			for (Rating review : reviews) {
+				if (watermark != null && watermark.isSeen(review)) {
+					seen = true;
+					break;
+				}
+				if (review.getId() == null || ids.add(review.getId())) {
+					newReviews.add(review);
+				}
+			}
+		}
+		if (!newReviews.isEmpty()) {
+			store.addReviews(appId, newReviews, ReviewWatermark.of(newReviews.get(0)));
+		}
+		return newReviews;
+	}
+
+}
@@ -0,0 +1,66 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.Date;
+
+/**
+ * The newest review of an app already synchronized: its date and id.
+ *
+ * Stores list reviews from the newest to the oldest, so a sync stops at the
+ * first review that is this one or older than it.
+ */
+public class ReviewWatermark {
+
+	private final Date date;
+
+	private final String id;
+
+	public ReviewWatermark(Date date, String id) {
+		this.date = date;
+		this.id = id;
+	}
+
+	public static ReviewWatermark of(Rating rating) {
+		return new ReviewWatermark(rating.getDate(), rating.getId());
+	}
+
+	public Date getDate() {
+		return date;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return true if the review is the watermark or older than it. Reviews
+	 *         of the same time with another id are new, the store drops the
+	 *         ones it already has
+	 */
+	public boolean isSeen(Rating rating) {
+		if (id != null && id.equals(rating.getId())) {
+			return true;
+		}
+		return date != null && rating.getDate() != null && rating.getDate().before(date);
+	}
+
+	@Override
+	public String toString() {
+		return "ReviewWatermark [date=" + date + ", id=" + id + "]";
+	}
+
+}
@@ -0,0 +1,79 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs identical calls made at the same time only once.
+ *
+ * The first thread asking for a key runs the call, the threads asking for
+ * the same key while it runs wait and get the same result or the same
+ * failure. Nothing is kept once the call ends, the next caller runs it
+ * again; caching results is up to the caller.
+ *
+ * Keys must identify the call completely, account included, and only
+ * calls without side effects should be shared.
+ */
+public class SingleFlight<K, V> {
+
+	private final Map<K, FutureTask<V>> calls = new HashMap<K, FutureTask<V>>();
+
+	/**
+	 * @return the result of the call, run by this thread or by another one
+	 *         with the same key
+	 * @throws ExecutionException
+	 *             with the failure of the call as cause
+	 * @throws InterruptedException
+	 *             if this thread was waiting for another one and was
+	 *             interrupted
+	 */
+	public V execute(K key, Callable<V> call) throws ExecutionException, InterruptedException {
+		FutureTask<V> task;
+		boolean owner = false;
+		synchronized (calls) {
+			task = calls.get(key);
+			if (task == null) {
+				task = new FutureTask<V>(call);
+				calls.put(key, task);
+				owner = true;
+			}
+		}
+		if (owner) {
+			try {
+				task.run();
+			} finally {
+				synchronized (calls) {
+					calls.remove(key);
+				}
+			}
+		}
+		return task.get();
+	}
+
+	/**
+	 * @return calls running at the moment
+	 */
+	public int size() {
+		synchronized (calls) {
+			return calls.size();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import es.arcadiaconsulting.appstoresstats.common.CommonStatsData.Platform;
+
+/**
+ * One app of a {@link BatchStoreStats} request with the account it belongs
+ * to. vendorId is only used by iOS.
+ */
+public class StatsQuery {
+
+	private final Platform platform;
+	private final String user;
+	private final String password;
+	private final String appId;
+	private final String vendorId;
+
+	public StatsQuery(Platform platform, String user, String password, String appId,
+			String vendorId) {
+		super();
+		this.platform = platform;
+		this.user = user;
+		this.password = password;
+		this.appId = appId;
+		this.vendorId = vendorId;
+	}
+
+	public Platform getPlatform() {
+		return platform;
+	}
+
+	public String getUser() {
+		return user;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public String getAppId() {
+		return appId;
+	}
+
+	public String getVendorId() {
+		return vendorId;
+	}
+
+	/**
+	 * Queries with the same key share the login and the downloaded reports
+	 */
+	String getAccountKey() {
+		return platform + "\t" + user + "\t" + vendorId;
+	}
+
+}
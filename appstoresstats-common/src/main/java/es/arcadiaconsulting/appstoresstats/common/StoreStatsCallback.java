@@ -0,0 +1,32 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+/**
+ * Receives the result of an asynchronous stats request, on the thread that
+ * ran it
+ */
+public interface StoreStatsCallback {
+
+	public void onSuccess(CommonStatsData statsData);
+
+	/**
+	 * @param cause a {@link StoreStatsException} when the store returned no
+	 *            stats, or the error thrown by the store
+	 */
+	public void onFailure(Throwable cause);
+
+}
@@ -0,0 +1,140 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter shared by the threads calling a service.
+ *
+ * Tokens are added at a fixed rate up to the capacity, which is the largest
+ * burst allowed after a quiet period, and every call takes one. Waiting
+ * callers are served in the order the tokens are reserved.
+ */
+public class TokenBucket {
+
+	private final double capacity;
+
+	// nanoseconds to produce a token
+	private double interval;
+
+	private double tokens;
+
+	private long lastRefill;
+
+	/**
+	 * @param permitsPerSecond
+	 *            sustained rate
+	 * @param capacity
+	 *            tokens available at once, at least 1
+	 */
+	public TokenBucket(double permitsPerSecond, int capacity) {
+		if (permitsPerSecond <= 0 || capacity < 1) {
+			throw new IllegalArgumentException("Rate and capacity must be positive");
+		}
+		this.capacity = capacity;
+		this.interval = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+		this.tokens = capacity;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Takes a token, waiting for it if there is none
+	 */
+	public void acquire() throws InterruptedException {
+		long wait = reserve();
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Same as {@link #acquire()} but an interrupt does not stop the wait, it
+	 * is kept for the caller once the token is taken
+	 */
+	public void acquireUninterruptibly() {
+		sleepUninterruptibly(reserve(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Sleeps the whole time even if the thread is interrupted, the interrupt
+	 * is set again when it returns
+	 */
+	public static void sleepUninterruptibly(long duration, TimeUnit unit) {
+		boolean interrupted = false;
+		long deadline = System.nanoTime() + unit.toNanos(duration);
+		try {
+			for (long wait = unit.toNanos(duration); wait > 0; wait = deadline - System.nanoTime()) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(wait);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Takes a token if there is one now
+	 */
+	public synchronized boolean tryAcquire() {
+		refill(System.nanoTime());
+		if (tokens >= 1) {
+			tokens--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return tokens produced per second
+	 */
+	public synchronized double getRate() {
+		return TimeUnit.SECONDS.toNanos(1) / interval;
+	}
+
+	/**
+	 * Changes the sustained rate, the tokens already produced are kept
+	 */
+	public synchronized void setRate(double permitsPerSecond) {
+		if (permitsPerSecond <= 0) {
+			throw new IllegalArgumentException("Rate must be positive");
+		}
+		refill(System.nanoTime());
+		interval = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+	}
+
+	/**
+	 * @return nanoseconds until the reserved token is available
+	 */
+	private synchronized long reserve() {
+		long now = System.nanoTime();
+		refill(now);
+		// may go negative, later callers wait for the debt too
+		tokens--;
+		return tokens >= 0 ? 0 : (long) (-tokens * interval);
+	}
+
+	private void refill(long now) {
+		tokens = Math.min(capacity, tokens + (now - lastRefill) / interval);
+		lastRefill = now;
+	}
+
+}
@@ -0,0 +1,136 @@
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class AsyncStoreStatsTest extends TestCase{
+
+	private ExecutorService executor;
+
+	private AsyncStoreStats stats;
+
+	/**
+	 * Returns stats for "ok", null for "none" and throws for "broken"
+	 */
+	private static class StubStoreStats implements IStoreStats {
+
+		private CommonStatsData stats(String appId){
+			if ("broken".equals(appId)) {
+				throw new IllegalStateException("store down");
+			}
+			if ("none".equals(appId)) {
+				return null;
+			}
+			CommonStatsData data = new CommonStatsData();
+			data.setAppId(appId);
+			return data;
+		}
+
+		public CommonStatsData getStatsForApp(String user, String password, String appId,
+				Date initDate, Date endDate, String vendorId) {
+			return stats(appId);
+		}
+
+		public List<CommonStatsData> getStatsForApps(String user, String password,
+				List<String> appIds, Date initDate, Date endDate, String vendorId) {
+			List<CommonStatsData> result = new ArrayList<CommonStatsData>();
+			for (String appId : appIds) {
+				result.add(stats(appId));
+			}
+			return result;
+		}
+
+		public CommonStatsData getFullStatsForApp(String user, String password, String appId,
+				String vendorId) {
+			return stats(appId);
+		}
+	}
+
+	private static class RecordingCallback implements StoreStatsCallback {
+
+		final CountDownLatch called = new CountDownLatch(1);
+
+		volatile CommonStatsData statsData;
+
+		volatile Throwable cause;
+
+		public void onSuccess(CommonStatsData statsData) {
+			this.statsData = statsData;
+			called.countDown();
+		}
+
+		public void onFailure(Throwable cause) {
+			this.cause = cause;
+			called.countDown();
+		}
+
+		void await() throws InterruptedException {
+			assertTrue(called.await(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Override
+	protected void setUp(){
+		executor = Executors.newFixedThreadPool(2);
+		stats = new AsyncStoreStats(new StubStoreStats(), executor);
+	}
+
+	@Override
+	protected void tearDown(){
+		stats.shutdown();
+		executor.shutdownNow();
+	}
+
+	public void testSuccess() throws Exception{
+		RecordingCallback callback = new RecordingCallback();
+		Future<CommonStatsData> future = stats.getStatsForApp("user", "password", "ok", new Date(),
+				new Date(), null, callback);
+		assertEquals("ok", future.get(5, TimeUnit.SECONDS).getAppId());
+		callback.await();
+		assertSame(future.get(), callback.statsData);
+		assertNull(callback.cause);
+	}
+
+	public void testNullResultFails() throws Exception{
+		RecordingCallback callback = new RecordingCallback();
+		Future<CommonStatsData> future = stats.getFullStatsForApp("user", "password", "none", null,
+				callback);
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof StoreStatsException);
+		}
+		callback.await();
+		assertTrue(callback.cause instanceof StoreStatsException);
+		assertNull(callback.statsData);
+	}
+
+	public void testStoreErrorFails() throws Exception{
+		RecordingCallback callback = new RecordingCallback();
+		Future<CommonStatsData> future = stats.getStatsForApp("user", "password", "broken",
+				new Date(), new Date(), null, callback);
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		callback.await();
+		assertTrue(callback.cause instanceof IllegalStateException);
+	}
+
+	public void testWithoutCallback() throws Exception{
+		Future<CommonStatsData> future = stats.getFullStatsForApp("user", "password", "ok", null);
+		assertEquals("ok", future.get(5, TimeUnit.SECONDS).getAppId());
+	}
+}
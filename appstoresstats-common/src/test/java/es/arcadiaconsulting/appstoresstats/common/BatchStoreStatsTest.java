@@ -0,0 +1,106 @@
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import es.arcadiaconsulting.appstoresstats.common.CommonStatsData.Platform;
+
+public class BatchStoreStatsTest extends TestCase{
+
+	private ExecutorService executor;
+
+	private final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+	/**
+	 * Answers every app of the accounts it knows and fails for user "down"
+	 */
+	private class StubStoreStats implements IStoreStats {
+
+		private final String name;
+
+		StubStoreStats(String name) {
+			this.name = name;
+		}
+
+		public CommonStatsData getStatsForApp(String user, String password, String appId,
+				Date initDate, Date endDate, String vendorId) {
+			throw new UnsupportedOperationException();
+		}
+
+		public List<CommonStatsData> getStatsForApps(String user, String password,
+				List<String> appIds, Date initDate, Date endDate, String vendorId) {
+			calls.add(name + ":" + user + ":" + appIds);
+			if ("down".equals(user)) {
+				throw new IllegalStateException("store down");
+			}
+			// answered in reverse to check the result order
+			List<CommonStatsData> result = new ArrayList<CommonStatsData>();
+			for (int i = appIds.size() - 1; i >= 0; i--) {
+				CommonStatsData data = new CommonStatsData();
+				data.setAppId(appIds.get(i));
+				result.add(data);
+			}
+			return result;
+		}
+
+		public CommonStatsData getFullStatsForApp(String user, String password, String appId,
+				String vendorId) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	@Override
+	protected void setUp(){
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@Override
+	protected void tearDown(){
+		executor.shutdownNow();
+	}
+
+	private static List<String> appIds(List<CommonStatsData> stats){
+		List<String> appIds = new ArrayList<String>();
+		for (CommonStatsData data : stats) {
+			appIds.add(data.getAppId());
+		}
+		return appIds;
+	}
+
+	public void testGroupedByAccountInQueryOrder() throws Exception{
+		BatchStoreStats batch = new BatchStoreStats(new StubStoreStats("ios"),
+				new StubStoreStats("android"), executor);
+		List<CommonStatsData> stats = batch.getStats(Arrays.asList(
+				new StatsQuery(Platform.android, "a", "p", "com.a1", null),
+				new StatsQuery(Platform.iOS, "i", "p", "sku1", "8000"),
+				new StatsQuery(Platform.android, "a", "p", "com.a2", null),
+				new StatsQuery(Platform.iOS, "i", "p", "sku2", "8000"),
+				new StatsQuery(Platform.iOS, "i", "p", "sku3", "8001")), new Date(), new Date());
+
+		assertEquals(Arrays.asList("com.a1", "sku1", "com.a2", "sku2", "sku3"), appIds(stats));
+		assertEquals(3, calls.size());
+		assertTrue(calls.contains("android:a:[com.a1, com.a2]"));
+		assertTrue(calls.contains("ios:i:[sku1, sku2]"));
+		assertTrue(calls.contains("ios:i:[sku3]"));
+	}
+
+	public void testFailedGroupLeftOut() throws Exception{
+		BatchStoreStats batch = new BatchStoreStats(new StubStoreStats("ios"),
+				new StubStoreStats("android"), executor);
+		List<CommonStatsData> stats = batch.getStats(Arrays.asList(
+				new StatsQuery(Platform.android, "down", "p", "com.a1", null),
+				new StatsQuery(Platform.iOS, "i", "p", "sku1", "8000"),
+				new StatsQuery(Platform.android, "down", "p", "com.a2", null),
+				new StatsQuery(Platform.android, "a", "p", "com.b1", null)), new Date(), new Date());
+
+		assertEquals(Arrays.asList("sku1", "com.b1"), appIds(stats));
+		assertTrue(calls.contains("android:down:[com.a1, com.a2]"));
+	}
+}
@@ -0,0 +1,130 @@
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ReviewSyncTest extends TestCase{
+
+	private File directory;
+
+	// reviews of the app from the newest to the oldest
+	private final List<Rating> feed = new ArrayList<Rating>();
+
+	private final List<Integer> pagesRead = new ArrayList<Integer>();
+
+	private final ReviewSource source = new ReviewSource() {
+		public List<Rating> getReviews(String appId, int page) {
+			pagesRead.add(page);
+			int from = Math.min(feed.size(), page * 2);
+			return new ArrayList<Rating>(feed.subList(from, Math.min(feed.size(), from + 2)));
+		}
+	};
+
+	@Override
+	protected void setUp() throws IOException{
+		directory = File.createTempFile("reviews", "");
+		directory.delete();
+	}
+
+	@Override
+	protected void tearDown(){
+		File[] files = directory.listFiles();
+		if(files != null){
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	private void post(String id, long time){
+		Rating review = new Rating(5, "opinion " + id, "user", new Date(time), "1.0");
+		review.setId(id);
+		feed.add(0, review);
+	}
+
+	public void testOnlyNewPagesRead() throws StoreStatsException{
+		for (int i = 1; i <= 5; i++) {
+			post("r" + i, i * 1000L);
+		}
+		ReviewSync sync = new ReviewSync(source, new FileReviewStore(directory));
+		assertEquals(5, sync.sync("app").size());
+		// two reviews per page, the fourth page is empty
+		assertEquals(4, pagesRead.size());
+
+		pagesRead.clear();
+		assertTrue(sync.sync("app").isEmpty());
+		assertEquals(1, pagesRead.size());
+
+		post("r6", 6000L);
+		post("r7", 7000L);
+		post("r8", 8000L);
+		pagesRead.clear();
+		List<Rating> newReviews = sync.sync("app");
+		assertEquals(3, newReviews.size());
+		assertEquals("r8", newReviews.get(0).getId());
+		assertEquals("r6", newReviews.get(2).getId());
+		assertEquals(2, pagesRead.size());
+
+		// a new store over the same files sees everything
+		FileReviewStore store = new FileReviewStore(directory);
+		assertEquals("r8", store.getWatermark("app").getId());
+		List<Rating> stored = store.getReviews("app");
+		assertEquals(8, stored.size());
+		assertEquals("r8", stored.get(0).getId());
+		assertEquals("r1", stored.get(7).getId());
+		assertEquals("opinion r1", stored.get(7).getOpinion());
+		assertEquals(new Date(1000L), stored.get(7).getDate());
+	}
+
+	public void testMaxPages() throws StoreStatsException{
+		for (int i = 1; i <= 5; i++) {
+			post("r" + i, i * 1000L);
+		}
+		ReviewSync sync = new ReviewSync(source, new FileReviewStore(directory));
+		sync.setMaxPages(1);
+		assertEquals(2, sync.sync("app").size());
+		assertEquals(1, pagesRead.size());
+	}
+
+	public void testStoreDropsRepeatedReviews() throws StoreStatsException{
+		FileReviewStore store = new FileReviewStore(directory);
+		post("r1", 1000L);
+		post("r2", 1000L);
+		store.addReviews("app", feed, ReviewWatermark.of(feed.get(0)));
+		// same time as the watermark but another id, it is new
+		post("r3", 1000L);
+		List<Rating> newReviews = new ReviewSync(source, store).sync("app");
+		assertEquals(1, newReviews.size());
+		assertEquals("r3", newReviews.get(0).getId());
+
+		store.addReviews("app", feed, ReviewWatermark.of(feed.get(0)));
+		assertEquals(3, store.getReviews("app").size());
+	}
+
+	public void testTruncatedBatchIgnored() throws StoreStatsException, IOException{
+		post("r1", 1000L);
+		new ReviewSync(source, new FileReviewStore(directory)).sync("app");
+		post("r2", 2000L);
+		new ReviewSync(source, new FileReviewStore(directory)).sync("app");
+
+		File file = directory.listFiles()[0];
+		RandomAccessFile out = new RandomAccessFile(file, "rw");
+		try {
+			out.setLength(file.length() - 3);
+		} finally {
+			out.close();
+		}
+
+		FileReviewStore store = new FileReviewStore(directory);
+		assertEquals("r1", store.getWatermark("app").getId());
+		assertEquals(1, new ReviewSync(source, store).sync("app").size());
+		assertEquals(2, new FileReviewStore(directory).getReviews("app").size());
+	}
+}
@@ -0,0 +1,95 @@
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class SingleFlightTest extends TestCase{
+
+	private final SingleFlight<String, String> flight = new SingleFlight<String, String>();
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private ExecutorService executor;
+
+	@Override
+	protected void setUp(){
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@Override
+	protected void tearDown(){
+		executor.shutdownNow();
+	}
+
+	private Future<String> submit(final String key, final CountDownLatch release, final Exception failure){
+		return executor.submit(new Callable<String>() {
+			public String call() throws Exception {
+				return flight.execute(key, new Callable<String>() {
+					public String call() throws Exception {
+						calls.incrementAndGet();
+						release.await();
+						if(failure!=null)
+							throw failure;
+						return "result of " + key;
+					}
+				});
+			}
+		});
+	}
+
+	private void waitInFlight(int count) throws InterruptedException{
+		for (int i = 0; i < 200 && flight.size() < count; i++) {
+			Thread.sleep(5);
+		}
+		assertEquals(count, flight.size());
+	}
+
+	public void testConcurrentCallsShared() throws Exception{
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> first = submit("a", release, null);
+		waitInFlight(1);
+		Future<String> second = submit("a", release, null);
+		Future<String> other = submit("b", release, null);
+		waitInFlight(2);
+		// let the second caller reach the running call
+		Thread.sleep(50);
+		release.countDown();
+		assertEquals("result of a", first.get());
+		assertEquals("result of a", second.get());
+		assertEquals("result of b", other.get());
+		assertEquals(2, calls.get());
+		assertEquals(0, flight.size());
+
+		// finished calls are not kept
+		assertEquals("result of a", submit("a", release, null).get());
+		assertEquals(3, calls.get());
+	}
+
+	public void testFailureShared() throws Exception{
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> first = submit("a", release, new IOException("offline"));
+		waitInFlight(1);
+		Future<String> second = submit("a", release, null);
+		Thread.sleep(50);
+		release.countDown();
+		for (Future<String> future : Arrays.asList(first, second)) {
+			try {
+				future.get();
+				fail();
+			} catch (ExecutionException e) {
+				// SingleFlight wraps the failure, the future wraps it again
+				assertEquals("offline", e.getCause().getCause().getMessage());
+			}
+		}
+		assertEquals(1, calls.get());
+	}
+}
@@ -0,0 +1,54 @@
+package es.arcadiaconsulting.appstoresstats.common;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class TokenBucketTest extends TestCase{
+
+	public void testBurstThenRate() throws InterruptedException{
+		TokenBucket bucket = new TokenBucket(20, 2);
+		assertTrue(bucket.tryAcquire());
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+
+		long start = System.nanoTime();
+		bucket.acquire();
+		bucket.acquire();
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		// two tokens at 20 per second take about 100 ms
+		assertTrue("Took " + elapsed + " ms", elapsed >= 80);
+	}
+
+	public void testInterruptDoesNotCutTheWait(){
+		TokenBucket bucket = new TokenBucket(10, 1);
+		assertTrue(bucket.tryAcquire());
+		Thread.currentThread().interrupt();
+		long start = System.nanoTime();
+		bucket.acquireUninterruptibly();
+		TokenBucket.sleepUninterruptibly(50, TimeUnit.MILLISECONDS);
+		long elapsed = (System.nanoTime() - start) / 1000000;
+		// the interrupt is kept for the caller
+		assertTrue(Thread.interrupted());
+		assertTrue("Took " + elapsed + " ms", elapsed >= 130);
+		assertFalse(bucket.tryAcquire());
+	}
+
+	public void testSetRate(){
+		TokenBucket bucket = new TokenBucket(20, 1);
+		assertEquals(20.0, bucket.getRate(), 0.001);
+		bucket.setRate(0.5);
+		assertEquals(0.5, bucket.getRate(), 0.001);
+		assertTrue(bucket.tryAcquire());
+		assertFalse(bucket.tryAcquire());
+	}
+
+	public void testIncorrectRate(){
+		try {
+			new TokenBucket(0, 1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+}
@@ -17,11 +17,15 @@ package es.arcadiaconsulting.appstoresstats.ios.console;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,14 +34,21 @@ import es.arcadiaconsulting.appstoresstats.common.CommonStatsData;
 import es.arcadiaconsulting.appstoresstats.common.CommonStatsData.Platform;
 import es.arcadiaconsulting.appstoresstats.common.IStoreStats;
 import es.arcadiaconsulting.appstoresstats.common.Rating;
+import es.arcadiaconsulting.appstoresstats.common.ReviewStore;
+import es.arcadiaconsulting.appstoresstats.common.ReviewSync;
+import es.arcadiaconsulting.appstoresstats.common.StoreStatsException;
+import es.arcadiaconsulting.appstoresstats.ios.io.AppInfoService;
 import es.arcadiaconsulting.appstoresstats.ios.io.Autoingestion;
 import es.arcadiaconsulting.appstoresstats.ios.io.DateHelper;
 import es.arcadiaconsulting.appstoresstats.ios.io.DateHelperException;
 import es.arcadiaconsulting.appstoresstats.ios.io.HTTPClientHelper;
+import es.arcadiaconsulting.appstoresstats.ios.io.ItunesReviewSource;
 import es.arcadiaconsulting.appstoresstats.ios.io.JSONParser;
 import es.arcadiaconsulting.appstoresstats.ios.io.RSSHelper;
+import es.arcadiaconsulting.appstoresstats.ios.io.ReviewHarvester;
 import es.arcadiaconsulting.appstoresstats.ios.model.AppInfo;
 import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+import es.arcadiaconsulting.appstoresstats.ios.model.ItunesReviewFeed;
 import es.arcadiaconsulting.appstoresstats.ios.model.StatsDataIOS;
 import es.arcadiaconsulting.appstoresstats.ios.model.UnitData;
 
@@ -45,16 +56,108 @@ public class IOSStoreStats implements IStoreStats{
 	
 	private static final Logger logger = LoggerFactory.getLogger(IOSStoreStats.class);
 
+	// null to read the ratings of the Spanish feed only
+	private ReviewHarvester reviewHarvester;
+
 	@Override
 	/**
 	 * La fecha inicial tiene que ser posterior al despliegue
 	 */
 	public CommonStatsData getStatsForApp(String user, String password,
 			String appId, Date initDate, Date endDate, String vendorId)  {
-		Date current = new Date(System.currentTimeMillis());
-		GregorianCalendar enddateCalendar = new GregorianCalendar();
-		enddateCalendar.setTime(current);
-		enddateCalendar.add(Calendar.DATE, -1);
+		StatsDataIOS statsData = buildStatsData(user, password, appId, initDate, endDate, vendorId);
+		if(statsData==null)
+			return null;
+		
+		Date releaseDate = statsData.getInitDate();
+		if(initDate.before(releaseDate))
+			initDate = (Date)releaseDate.clone();
+		
+		
+		try {
+			List<UnitData> unitData = DateHelper.getUnitDataByDate(initDate, endDate, appId, user, password, vendorId);
+			setUnitData(statsData, unitData);
+		} catch (DateHelperException e) {
+			logger.error("Error getting units");
+			return null;
+		}
+		
+		return statsData;
+	}
+	
+	/**
+	 * Stats of several apps of the same vendor. Every Autoingestion report is
+	 * downloaded once and shared by all the apps.
+	 * @return stats in the same order as appIds, without the apps that failed
+	 */
+	@Override
+	public List<CommonStatsData> getStatsForApps(String user, String password,
+			List<String> appIds, Date initDate, Date endDate, String vendorId) {
+		prefetchAppInfos(user, password, appIds, initDate, vendorId);
+		List<StatsDataIOS> statsDataList = new ArrayList<StatsDataIOS>();
+		// apps released after initDate start counting on their release date
+		Map<Date, List<String>> skusByInitDate = new LinkedHashMap<Date, List<String>>();
+		for (String appId : appIds) {
+			StatsDataIOS statsData = buildStatsData(user, password, appId, initDate, endDate, vendorId);
+			if(statsData==null){
+				logger.error("Error getting stats for " + appId);
+				continue;
+			}
+			statsDataList.add(statsData);
+			Date appInitDate = initDate.before(statsData.getInitDate()) ? statsData.getInitDate() : initDate;
+			List<String> skus = skusByInitDate.get(appInitDate);
+			if(skus==null){
+				skus = new ArrayList<String>();
+				skusByInitDate.put(appInitDate, skus);
+			}
+			skus.add(appId);
+		}
+		
+		Map<String, List<UnitData>> unitDataBySku = new HashMap<String, List<UnitData>>();
+		for (Map.Entry<Date, List<String>> entry : skusByInitDate.entrySet()) {
+			try {
+				unitDataBySku.putAll(DateHelper.getUnitDataByDate(entry.getKey(), endDate, entry.getValue(), user, password, vendorId));
+			} catch (DateHelperException e) {
+				logger.error("Error getting units for " + entry.getValue());
+			}
+		}
+		
+		List<CommonStatsData> result = new ArrayList<CommonStatsData>(statsDataList.size());
+		for (StatsDataIOS statsData : statsDataList) {
+			List<UnitData> unitData = unitDataBySku.get(statsData.getAppId());
+			if(unitData!=null){
+				setUnitData(statsData, unitData);
+				result.add(statsData);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Looks up the info of all the apps in one request, so buildStatsData
+	 * finds it cached
+	 */
+	private void prefetchAppInfos(String user, String password, List<String> appIds, Date initDate, String vendorId) {
+		SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
+		List<String> appleIds = new ArrayList<String>(appIds.size());
+		for (String appId : appIds) {
+			try {
+				// the report is downloaded once and shared with buildStatsData
+				String appleId = Autoingestion.getAppleIDBySKU(user, password, vendorId, Constants.REPORT_TYPE_SALES, Constants.DATE_TYPE_MONTHLY, Constants.REPORT_SUBTYPE_SUMMARY_NAME, sdf.format(initDate), appId);
+				if(appleId!=null)
+					appleIds.add(appleId);
+			} catch (IOException e) {
+				// reported by buildStatsData
+			}
+		}
+		AppInfoService.getDefault().getAppInfos(appleIds);
+	}
+	
+	/**
+	 * App info and ratings, without units
+	 */
+	private StatsDataIOS buildStatsData(String user, String password,
+			String appId, Date initDate, Date endDate, String vendorId) {
 		GregorianCalendar initDateGregorian = new GregorianCalendar();
 		initDateGregorian.setTime(initDate);
 		SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
@@ -71,15 +174,14 @@ public class IOSStoreStats implements IStoreStats{
 		Date releaseDate = appInfo.getReleaseDate();
 		String appName = appInfo.getAppName();
 StatsDataIOS statsData= new StatsDataIOS(appId,endDate,releaseDate,appName);
-		GregorianCalendar releasecalendar = new GregorianCalendar();
-		releasecalendar.setTime(releaseDate);
 		
 
 		//get rating
-		String downloadURL = RSSHelper.getItunesURL(appleId);
+		ItunesReviewFeed reviewFeed = RSSHelper.getItunesReviewFeed(appleId);
+		String downloadURL = reviewFeed==null?null:reviewFeed.getStoreUrl();
 		if(downloadURL!=null){
 			statsData.setDownloadURL(downloadURL);
-			List<Rating> ratingList = RSSHelper.getItunesRating(appleId);
+			List<Rating> ratingList = getRatings(appleId, reviewFeed);
 			int ratingPlus = 0;
 			for (Iterator iterator = ratingList.iterator(); iterator.hasNext();) {
 				Rating rating = (Rating) iterator.next();
@@ -88,33 +190,24 @@ StatsDataIOS statsData= new StatsDataIOS(appId,endDate,releaseDate,appName);
 			}
 			
 			statsData.setRatings(ratingList);
-			statsData.setAverageRate(ratingPlus/ratingList.size());
+			if(!ratingList.isEmpty())
+				statsData.setAverageRate(ratingPlus/ratingList.size());
 		}else{
 			logger.info("There are not rate information we cant get downloadURL or rating");
 		}
-		
-		
-		if(initDate.before(releaseDate))
-			initDate = (Date)releaseDate.clone();
-		
-		
-		try {
-			List<UnitData> unitData = DateHelper.getUnitDataByDate(initDate, endDate, appId, user, password, vendorId);
-			statsData.setUnitDataList(unitData);
-			int units = 0;
-			for (Iterator iterator = unitData.iterator(); iterator.hasNext();) {
-				UnitData unitData2 = (UnitData) iterator.next();
-				units= units + unitData2.getUnits();
-				
-			}	
+		return statsData;
+	}
+	
+	private static void setUnitData(StatsDataIOS statsData, List<UnitData> unitData) {
+		statsData.setUnitDataList(unitData);
+		int units = 0;
+		for (Iterator iterator = unitData.iterator(); iterator.hasNext();) {
+			UnitData unitData2 = (UnitData) iterator.next();
+			units= units + unitData2.getUnits();
 			
-			statsData.setDownloadsNumber(units);
-		} catch (DateHelperException e) {
-			logger.error("Error getting units");
-			return null;
-		}
+		}	
 		
-		return statsData;
+		statsData.setDownloadsNumber(units);
 	}
 
 	@Override
@@ -146,10 +239,11 @@ StatsDataIOS statsData= new StatsDataIOS(appId,endDate,releaseDate,appName);
 StatsDataIOS statsData= new StatsDataIOS(appId,endDate,initDate,appName);
 		
 //get rating
-		String downloadURL = RSSHelper.getItunesURL(appleId);
+		ItunesReviewFeed reviewFeed = RSSHelper.getItunesReviewFeed(appleId);
+		String downloadURL = reviewFeed==null?null:reviewFeed.getStoreUrl();
 		if(downloadURL!=null){
 			statsData.setDownloadURL(downloadURL);
-			List<Rating> ratingList = RSSHelper.getItunesRating(appleId);
+			List<Rating> ratingList = getRatings(appleId, reviewFeed);
 			int ratingPlus = 0;
 			for (Iterator iterator = ratingList.iterator(); iterator.hasNext();) {
 				Rating rating = (Rating) iterator.next();
@@ -157,7 +251,8 @@ StatsDataIOS statsData= new StatsDataIOS(appId,endDate,initDate,appName);
 			}
 			
 			statsData.setRatings(ratingList);
-			statsData.setAverageRate(ratingPlus/ratingList.size());
+			if(!ratingList.isEmpty())
+				statsData.setAverageRate(ratingPlus/ratingList.size());
 		}else{
 			logger.info("There are not rate information we cant get downloadURL or rating");
 		}
@@ -185,4 +280,48 @@ StatsDataIOS statsData= new StatsDataIOS(appId,endDate,initDate,appName);
 
 
 
+	public ReviewHarvester getReviewHarvester() {
+		return reviewHarvester;
+	}
+
+	/**
+	 * Takes the ratings of the stats from every country of the harvester
+	 * instead of the first page of the Spanish feed
+	 */
+	public void setReviewHarvester(ReviewHarvester reviewHarvester) {
+		this.reviewHarvester = reviewHarvester;
+	}
+
+	private List<Rating> getRatings(String appleId, ItunesReviewFeed reviewFeed) {
+		if (reviewHarvester == null) {
+			return reviewFeed.getRatings();
+		}
+		try {
+			return reviewHarvester.harvest(appleId);
+		} catch (StoreStatsException e) {
+			logger.error("Error harvesting reviews, using the first page", e);
+			return reviewFeed.getRatings();
+		}
+	}
+
+	/**
+	 * Stores the reviews of the apps posted since the last sync, reading only
+	 * the feed pages with new reviews
+	 * @param appleIds apple ids of the apps
+	 * @return the new reviews of each app, without the apps that failed
+	 */
+	public Map<String, List<Rating>> syncReviews(List<String> appleIds, ReviewStore store) {
+		Map<String, List<Rating>> result = new LinkedHashMap<String, List<Rating>>();
+		ReviewSync sync = new ReviewSync(new ItunesReviewSource(), store);
+		sync.setMaxPages(Constants.RSS_REVIEWS_MAX_PAGES);
+		for (String appleId : appleIds) {
+			try {
+				result.put(appleId, sync.sync(appleId));
+			} catch (StoreStatsException e) {
+				logger.error("Error synchronizing reviews of " + appleId, e);
+			}
+		}
+		return result;
+	}
+
 }
@@ -0,0 +1,298 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import es.arcadiaconsulting.appstoresstats.ios.model.AppInfo;
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+
+/**
+ * Name and release date of the apps, read from the iTunes lookup service.
+ *
+ * The ids missing from the cache are asked for in one lookup request per
+ * {@link Constants#LOOKUP_MAX_IDS} apps. Answers are kept in memory for
+ * {@link Constants#APP_INFO_CACHE_TTL}, the least recently used ones are
+ * dropped when the cache is full. A thread asking for an id another thread
+ * is already looking up waits for that answer instead of sending the same
+ * request again. Failed lookups are not cached. Ids that are not numbers
+ * are not sent, and a batch iTunes can not answer is retried one id at a
+ * time.
+ */
+public class AppInfoService {
+
+	private static final Logger logger = LoggerFactory.getLogger(AppInfoService.class);
+
+	private static final AppInfoService defaultService = new AppInfoService(
+			Constants.APP_INFO_CACHE_SIZE, Constants.APP_INFO_CACHE_TTL);
+
+	private final int maxEntries;
+
+	private final long ttl;
+
+	private final Map<String, CachedAppInfo> cache;
+
+	// lookups in flight by apple id
+	private final Map<String, PendingLookup> pending = new HashMap<String, PendingLookup>();
+
+	/**
+	 * @param maxEntries apps kept in memory
+	 * @param ttl milliseconds an answer is kept
+	 */
+	public AppInfoService(final int maxEntries, long ttl) {
+		this.maxEntries = maxEntries;
+		this.ttl = ttl;
+		this.cache = new LinkedHashMap<String, CachedAppInfo>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedAppInfo> eldest) {
+				return size() > AppInfoService.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Service used by {@link JSONParser} and the stats of the iOS store
+	 */
+	public static AppInfoService getDefault() {
+		return defaultService;
+	}
+
+	/**
+	 * @return the info of the app, not deployed if iTunes does not know it,
+	 *         or null if the lookup failed
+	 */
+	public AppInfo getAppInfo(String appleId) {
+		List<String> appleIds = new ArrayList<String>(1);
+		appleIds.add(appleId);
+		return getAppInfos(appleIds).get(appleId);
+	}
+
+	/**
+	 * @return the info of each app, without the apps whose lookup failed
+	 */
+	public Map<String, AppInfo> getAppInfos(Collection<String> appleIds) {
+		Map<String, AppInfo> result = new LinkedHashMap<String, AppInfo>();
+		Map<String, PendingLookup> waiting = new LinkedHashMap<String, PendingLookup>();
+		Map<String, PendingLookup> owned = new LinkedHashMap<String, PendingLookup>();
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			for (String appleId : new LinkedHashSet<String>(appleIds)) {
+				CachedAppInfo cached = cache.get(appleId);
+				if (cached != null && now - cached.storedAt <= ttl) {
+					result.put(appleId, cached.appInfo);
+					continue;
+				}
+				PendingLookup lookup = pending.get(appleId);
+				if (lookup != null) {
+					waiting.put(appleId, lookup);
+				} else {
+					lookup = new PendingLookup();
+					pending.put(appleId, lookup);
+					owned.put(appleId, lookup);
+				}
+			}
+		}
+
+		List<String> ids = new ArrayList<String>(owned.size());
+		for (String appleId : owned.keySet()) {
+			if (isAppleId(appleId)) {
+				ids.add(appleId);
+			} else {
+				// iTunes would fail the whole batch
+				logger.warn("Not looking up invalid apple id " + appleId);
+				complete(Collections.singletonList(appleId), null, owned);
+			}
+		}
+		for (int from = 0; from < ids.size(); from += Constants.LOOKUP_MAX_IDS) {
+			List<String> batch = ids.subList(from, Math.min(ids.size(), from + Constants.LOOKUP_MAX_IDS));
+			lookupAndComplete(batch, owned, result);
+		}
+
+		boolean interrupted = false;
+		for (Map.Entry<String, PendingLookup> entry : waiting.entrySet()) {
+			try {
+				entry.getValue().done.await();
+			} catch (InterruptedException e) {
+				interrupted = true;
+				break;
+			}
+			if (entry.getValue().appInfo != null) {
+				result.put(entry.getKey(), entry.getValue().appInfo);
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		return result;
+	}
+
+	/**
+	 * Looks up a batch of owned ids and completes them. A batch iTunes can
+	 * not answer is looked up again one id at a time, so an id it rejects
+	 * does not fail the others
+	 */
+	private void lookupAndComplete(List<String> batch, Map<String, PendingLookup> owned,
+			Map<String, AppInfo> result) {
+		Map<String, AppInfo> found = null;
+		boolean split = false;
+		try {
+			found = lookupBatch(batch);
+		} catch (IOException e) {
+			logger.error("Error looking up apps " + batch, e);
+		} catch (JSONException e) {
+			if (batch.size() > 1) {
+				logger.warn("Error parsing the lookup of apps " + batch + ", looking them up one by one", e);
+				split = true;
+			} else {
+				logger.error("Error parsing the lookup of apps " + batch, e);
+			}
+		} finally {
+			if (!split) {
+				complete(batch, found, owned);
+			}
+		}
+		if (split) {
+			for (String appleId : batch) {
+				lookupAndComplete(Collections.singletonList(appleId), owned, result);
+			}
+		} else if (found != null) {
+			for (String appleId : batch) {
+				result.put(appleId, found.get(appleId));
+			}
+		}
+	}
+
+	/**
+	 * @return whether the id can be an apple id, which is all digits
+	 */
+	static boolean isAppleId(String appleId) {
+		if (appleId == null || appleId.length() == 0) {
+			return false;
+		}
+		for (int i = 0; i < appleId.length(); i++) {
+			if (appleId.charAt(i) < '0' || appleId.charAt(i) > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public synchronized void clear() {
+		cache.clear();
+	}
+
+	/**
+	 * Stores the answers and wakes up the threads waiting for them
+	 * @param found null if the lookup failed
+	 */
+	private void complete(List<String> batch, Map<String, AppInfo> found,
+			Map<String, PendingLookup> owned) {
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			for (String appleId : batch) {
+				PendingLookup lookup = owned.get(appleId);
+				pending.remove(appleId);
+				if (found != null) {
+					lookup.appInfo = found.get(appleId);
+					cache.put(appleId, new CachedAppInfo(lookup.appInfo, now));
+				}
+			}
+		}
+		for (String appleId : batch) {
+			owned.get(appleId).done.countDown();
+		}
+	}
+
+	/**
+	 * @return the info of every app of the batch
+	 */
+	private Map<String, AppInfo> lookupBatch(List<String> appleIds) throws IOException, JSONException {
+		StringBuilder ids = new StringBuilder();
+		for (String appleId : appleIds) {
+			if (ids.length() > 0) {
+				ids.append(',');
+			}
+			ids.append(appleId);
+		}
+		String response = lookup(ids.toString());
+		JSONArray results = new JSONObject(response).getJSONArray("results");
+
+		Map<String, AppInfo> found = new HashMap<String, AppInfo>();
+		for (int i = 0; i < results.length(); i++) {
+			JSONObject app = results.getJSONObject(i);
+			if (!app.has("trackId")) {
+				continue;
+			}
+			AppInfo appInfo = new AppInfo();
+			appInfo.setDeployed(true);
+			appInfo.setId(String.valueOf(app.getLong("trackId")));
+			appInfo.setAppName(app.getString("trackName"));
+			appInfo.setReleaseDate(DateHelper.buildDateFromUTCString(app.getString("releaseDate")));
+			found.put(appInfo.getId(), appInfo);
+		}
+		for (String appleId : appleIds) {
+			if (!found.containsKey(appleId)) {
+				AppInfo appInfo = new AppInfo();
+				appInfo.setDeployed(false);
+				appInfo.setId(appleId);
+				found.put(appleId, appInfo);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @param appleIds comma separated ids
+	 * @return the JSON answer of the lookup service
+	 */
+	protected String lookup(String appleIds) throws IOException {
+		return HttpTransport.get(Constants.HTTP_URL_APPLE_APP_GET + "?" + Constants.ID_NAME + "=" + appleIds);
+	}
+
+	private static class CachedAppInfo {
+		final AppInfo appInfo;
+		final long storedAt;
+
+		CachedAppInfo(AppInfo appInfo, long storedAt) {
+			this.appInfo = appInfo;
+			this.storedAt = storedAt;
+		}
+	}
+
+	private static class PendingLookup {
+		final CountDownLatch done = new CountDownLatch(1);
+		// null until done or if the lookup failed
+		volatile AppInfo appInfo;
+	}
+
+}
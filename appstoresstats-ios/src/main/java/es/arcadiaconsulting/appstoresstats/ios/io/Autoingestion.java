@@ -19,6 +19,7 @@ package es.arcadiaconsulting.appstoresstats.ios.io;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -28,144 +29,124 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.net.URLEncoder;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
 
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import es.arcadiaconsulting.appstoresstats.common.SingleFlight;
+import es.arcadiaconsulting.appstoresstats.common.TokenBucket;
 import es.arcadiaconsulting.appstoresstats.ios.model.AutoingestionBean;
 import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+import es.arcadiaconsulting.appstoresstats.ios.model.SalesReport;
+import es.arcadiaconsulting.appstoresstats.ios.model.SalesReportBatch;
 import es.arcadiaconsulting.appstoresstats.ios.model.UnitData;
 
 public class Autoingestion
 {
 
   private static final Logger logger = LoggerFactory.getLogger(Autoingestion.class);
+
+  private static final String AUTOINGESTION_URL = "https://reportingitc.apple.com/autoingestion.tft?";
 	
+  // parsed reports shared by every SKU of the vendor, least recently used dropped first
+  private static final Map<String, MemoizedReport> parsedReports = Collections.synchronizedMap(new LinkedHashMap<String, MemoizedReport>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, MemoizedReport> eldest) {
+      return size() > Constants.PARSED_REPORTS_IN_MEMORY;
+    }
+  });
+
+  private static final SingleFlight<String, SalesReport> reportsInFlight = new SingleFlight<String, SalesReport>();
+
+  private static class MemoizedReport {
+    final SalesReport report;
+    final long loadedAt = System.currentTimeMillis();
+
+    MemoizedReport(SalesReport report) {
+      this.report = report;
+    }
+  }
+
   public static List<UnitData> getUnitsByDate(/**String propertiesFile,*/ String user,String password,String vendorId, String reportType, String dateType, String reportSubType, String date, String sku){
-	  
-	  
-	  try{
-		  
-		  
-		  List<AutoingestionBean> is=	getSalesOutput(new String[]{/**propertiesFile,*/user,password,vendorId,reportType,dateType,reportSubType,date});
-		  if(is==null){
-			  logger.error("Problem getting Autoingestion");
-			  return null;
-		  }
-		  return getUnits(is,sku);
-	  }catch(IOException e){
-		  logger.error("Exception on getUnits method");
+	  SalesReport report = getSalesReport(user, password, vendorId, reportType, dateType, reportSubType, date);
+	  if(report==null){
+		  logger.error("Problem getting Autoingestion");
 		  return null;
 	  }
-		  
-		  
-	  
+	  return report.getUnits(sku);
   }
   
   public static String getAppleIDBySKU(/**String propertiesFile,*/ String user,String password,String vendorId, String reportType, String dateType, String reportSubType, String date, String sku) throws IOException{
-	  String line = new String();
-	  List<AutoingestionBean> salesOutputReader = getSalesOutput(new String[]{/**propertiesFile,*/user,password,vendorId,reportType,dateType,reportSubType,date});
-	  for (Iterator iterator = salesOutputReader.iterator(); iterator.hasNext();) {
-		AutoingestionBean autoingestionBean = (AutoingestionBean) iterator
-				.next();
-		if(autoingestionBean.getSku().equals(sku)){
-			 return autoingestionBean.getAppleIdentifier();
-		 }
-		
-	}
-	  return null;
-	   
-	  /**
- 	  BufferedReader br = new BufferedReader(salesOutputReader);
+	  SalesReport report = getSalesReport(user, password, vendorId, reportType, dateType, reportSubType, date);
+	  if(report==null){
+		  throw new IOException("Problem getting Autoingestion");
+	  }
+	  return report.getAppleIdentifier(sku);
+  }
+  
+  /**
+   * Vendor-wide report, downloaded and parsed once for all the SKUs
+   * @return the report or null if it is not available
+   */
+  public static SalesReport getSalesReport(String user,String password,String vendorId, String reportType, String dateType, String reportSubType, String date){
+	  String key = user + '\t' + vendorId + '\t' + reportType + '\t' + dateType + '\t' + reportSubType + '\t' + date;
+	  MemoizedReport memoized = parsedReports.get(key);
+	  if(memoized!=null && !(ReportCache.isRecent(date) && System.currentTimeMillis() - memoized.loadedAt > Constants.RECENT_REPORT_CACHE_TTL)){
+		  return memoized.report;
+	  }
+	  final String[] params = new String[]{/**propertiesFile,*/user,password,vendorId,reportType,dateType,reportSubType,date};
+	  final String memoKey = key;
 	  try {
-		 //discart first line 
-		 br.readLine();
-		while((line = br.readLine())!=null){
-			 if(line.trim().length()==0){
-				 continue;
-			 }
-			 //get line elements
-			 String[] lineElements = line.split("\t");
-			 //check SKU to get units 
-			 if(lineElements[2].equals(sku)){
-				 return lineElements[16];
-			 }
-		}
-	  
-		return null;
-		
-	} catch (IOException e) {
-		logger.error("getAppleIDBySKU Exception", e);
-		throw e;
-	}
-	*/
+		  // threads asking for the same report at the same time download it once
+		  return reportsInFlight.execute(key + '\t' + password, new Callable<SalesReport>() {
+			  @Override
+			  public SalesReport call() {
+				  SalesReportBatch rows = getSalesOutput(params);
+				  if(rows==null){
+					  return null;
+				  }
+				  SalesReport report = new SalesReport(rows);
+				  parsedReports.put(memoKey, new MemoizedReport(report));
+				  return report;
+			  }
+		  });
+	  } catch (ExecutionException e) {
+		  logger.error("Problem getting report", e.getCause());
+		  return null;
+	  } catch (InterruptedException e) {
+		  Thread.currentThread().interrupt();
+		  return null;
+	  }
   }
   
   
   public static List<UnitData> getUnits(List<AutoingestionBean> salesOutput, String sku) throws IOException{
-	  List<UnitData> unitDataList = new Vector<UnitData>();
-	  
-	  for (Iterator iterator = salesOutput.iterator(); iterator.hasNext();) {
-		AutoingestionBean autoingestionbean = (AutoingestionBean) iterator.next();
-		boolean isupdate = false;
-		for (int i = 0; i < Constants.UPDATE_PRODUCT_TYPE_IDENTIFYER.length; i++) {
-			if(Constants.UPDATE_PRODUCT_TYPE_IDENTIFYER[i].equals(autoingestionbean.getProductTypeIdentifier())){
-				isupdate = true;
-				break;
-			}			
-		}
-		
-		if(autoingestionbean.getSku().equals(sku)&& !isupdate){
-			 unitDataList.add(new UnitData(autoingestionbean.getCountryCode(),autoingestionbean.getUnits()));
-		 }
-		
-	}
-	 
-	  
-	  /**
-	  InputStreamReader salesOutputReader = new InputStreamReader(salesOutput);
- 	  BufferedReader br = new BufferedReader(salesOutputReader);
-	  try {
-		 //discart first line 
-		 br.readLine();
-		while((line = br.readLine())!=null){
-			 if(line.trim().length()==0){
-				 continue;
-			 }
-			 //get line elements
-			 String[] lineElements = line.split("\t");
-			 //check SKU to get units 
-			 if(lineElements[2].equals(sku)){
-				 unitDataList.add(new UnitData(lineElements[13],Integer.getInteger(lineElements[7]).intValue()));
-			 }
-		}
-		
-		return unitDataList;
-		
-	} catch (IOException e) {
-		logger.error("getUnits Exception", e);
-		throw e;
-	}
-		*/
-	  return unitDataList;
-	 
-	  
+	  return new SalesReport(salesOutput).getUnits(sku);
   }
   
   
 	
-  private static List<AutoingestionBean> getSalesOutput(String[] paramArrayOfString)
+  private static SalesReportBatch getSalesOutput(String[] paramArrayOfString)
   {
     int i = 0;
     String str1 = null;
@@ -243,8 +224,6 @@ public class Autoingestion
       str1 = ((SimpleDateFormat)localObject2).format(((Calendar)localObject1).getTime()).toString();
     }
 
-    Object localObject1 = null;
-    Object localObject2 = null;
     try
     {
       str2 = "USERNAME=" + URLEncoder.encode(str3, "UTF-8");
@@ -273,76 +252,119 @@ public class Autoingestion
       logger.error("Some problem occured.",localException2);
     }
 
-    try
+    // past reports never change, look for a local copy first
+    String typeOfReport = paramArrayOfString[i == 1 ? 2 : 3];
+    String dateType = paramArrayOfString[i == 1 ? 3 : 4];
+    String reportSubType = paramArrayOfString[i == 1 ? 4 : 5];
+    ReportCache reportCache = ReportCache.getDefault();
+    byte[] cachedReport = reportCache.get(str5, typeOfReport, dateType, reportSubType, str1);
+    if (cachedReport != null)
+      return parseReport(cachedReport);
+
+    // the report is shared by the callers waiting for it: an interrupt of
+    // the thread downloading it does not cut it short, it is kept for later
+    VendorThrottle throttle = VendorThrottle.forVendor(str5);
+    for (int attempt = 1; ; attempt++)
     {
-      localObject2 = new URL("https://reportingitc.apple.com/autoingestion.tft?");
-
-      localObject1 = (HttpURLConnection)((URL)localObject2).openConnection();
-
-      ((HttpURLConnection)localObject1).setRequestMethod("POST");
-      ((HttpURLConnection)localObject1).setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-      ((HttpURLConnection)localObject1).setDoOutput(true);
-      OutputStreamWriter localOutputStreamWriter = new OutputStreamWriter(((HttpURLConnection)localObject1).getOutputStream());
-
-      localOutputStreamWriter.write(str2);
-      localOutputStreamWriter.flush();
-      localOutputStreamWriter.close();
+      try
+      {
+        throttle.acquireUninterruptibly();
+        byte[] report = download(str2);
+        throttle.onSuccess();
+        SalesReportBatch beans = parseReport(report);
+        // only keep reports that can be read
+        if (beans != null)
+          reportCache.put(str5, typeOfReport, dateType, reportSubType, str1, report);
+        return beans;
+      }
+      catch (AutoingestionException e)
+      {
+        if (e.isThrottled())
+          throttle.onThrottled();
+        if (!e.isRetryable() || attempt >= Constants.AUTOINGESTION_MAX_ATTEMPTS || !throttle.tryRetry()) {
+          throttle.onFailure();
+          logger.error("Report " + typeOfReport + " " + dateType + " " + str1 + " of vendor " + str5 + " not available: " + e.getMessage(), e.getCause());
+          return null;
+        }
+        long wait = VendorThrottle.backoff(attempt);
+        logger.warn("Report " + typeOfReport + " " + dateType + " " + str1 + " of vendor " + str5 + " failed, retrying in " + wait + " ms: " + e.getMessage());
+        TokenBucket.sleepUninterruptibly(wait, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
 
-      if (((HttpURLConnection)localObject1).getHeaderField("ERRORMSG") != null)
-        logger.error(((HttpURLConnection)localObject1).getHeaderField("ERRORMSG"));
-      else if (((HttpURLConnection)localObject1).getHeaderField("filename") != null)
-         return getFile((HttpURLConnection)localObject1);
+  /**
+   * Posts the form of a report request
+   * @return the gzip report
+   * @throws AutoingestionException with the reason Apple gave if no report was sent
+   */
+  private static byte[] download(String form) throws AutoingestionException
+  {
+    HttpPost post = new HttpPost(AUTOINGESTION_URL);
+    try
+    {
+      StringEntity entity = new StringEntity(form, "UTF-8");
+      entity.setContentType("application/x-www-form-urlencoded");
+      post.setEntity(entity);
+      HttpResponse response = HttpTransport.getClient().execute(post);
+      HttpEntity responseEntity = response.getEntity();
+      try {
+        if (response.getFirstHeader("ERRORMSG") != null)
+          throw AutoingestionException.fromErrorMessage(response.getFirstHeader("ERRORMSG").getValue());
+        int status = response.getStatusLine().getStatusCode();
+        if (status != HttpStatus.SC_OK || response.getFirstHeader("filename") == null || responseEntity == null)
+          throw AutoingestionException.fromStatus(status, response.getStatusLine().getReasonPhrase());
+        // reading the whole entity gives the connection back to the pool
+        byte[] report = EntityUtils.toByteArray(responseEntity);
+        responseEntity = null;
+        return report;
+      } finally {
+        EntityUtils.consume(responseEntity);
+      }
     }
-    catch (Exception localException3)
+    catch (AutoingestionException e)
     {
-      logger.error("The report you requested is not available at this time.  Please try again in a few minutes.", localException3);
+      throw e;
     }
-    finally {
-      if (localObject1 != null) {
-        ((HttpURLConnection)localObject1).disconnect();
-        localObject1 = null;
-      }
+    catch (IOException e)
+    {
+      post.abort();
+      throw new AutoingestionException("Network error getting report", e);
     }
-	return null;
   }
 
-  //private static void getFile(HttpURLConnection paramHttpURLConnection) throws IOException
-  private static List<AutoingestionBean> getFile(HttpURLConnection paramHttpURLConnection) throws IOException
+  private static SalesReportBatch parseReport(byte[] report)
   {
-  //  String str = paramHttpURLConnection.getHeaderField("filename");
-	 
-    //logger.info(str);
-   int i = 0;
-
-    	//return paramHttpURLConnection.getInputStream();
-    
-    //BufferedInputStream localBufferedInputStream = new BufferedInputStream(paramHttpURLConnection.getInputStream());
-    
     try {
-		String fileString = decompress(paramHttpURLConnection.getInputStream());
-		return buildAutoingestionTable(fileString.split("\n"));
+		final SalesReportBatch.Builder builder = new SalesReportBatch.Builder();
+		new AutoingestionReportReader(new ByteArrayInputStream(report)).read(new AutoingestionReportReader.RowHandler() {
+			@Override
+			public void handleRow(AutoingestionReportReader.Row row) {
+				int fields = row.getFieldCount();
+				builder.addRow(row.getString(0), row.getString(1), row.getString(2),
+						row.getString(3), row.getString(4), row.getString(5), row.getString(6),
+						row.getInt(7), row.getInt(8), getEpochDay(row, 9), getEpochDay(row, 10),
+						row.getString(11), row.getString(12), row.getString(13), row.getString(14),
+						row.getFloat(15), fields > 16 ? row.getString(16) : null,
+						fields > 17 ? row.getString(17) : null, fields > 18 ? row.getString(18) : null,
+						fields > 19 ? row.getString(19) : null);
+			}
+		});
+		return builder.build();
 	} catch (Exception e) {
 		logger.error("problem  decommpressing file",e );
 		return null;
 		
 	}
-    
-    /**
-    BufferedOutputStream localBufferedOutputStream = new BufferedOutputStream(new FileOutputStream(str));
-
-    byte[] arrayOfByte = new byte[1024];
-
-    while ((i = localBufferedInputStream.read(arrayOfByte)) != -1) {
-      localBufferedOutputStream.write(arrayOfByte, 0, i);
-    }
-
-   localBufferedInputStream.close();
-    localBufferedOutputStream.close();
-
-  System.out.println("File Downloaded Successfully ");
-    
-  return null;
-  */
+  }
+  
+  private static int getEpochDay(AutoingestionReportReader.Row row, int field) {
+	  try {
+		  return row.getEpochDay(field);
+	  } catch (NumberFormatException e) {
+		  logger.error("Build AutoingestionBean error, Incorrect date format", e);
+		  return SalesReportBatch.NO_DAY;
+	  }
   }
   
   public static String decompress(InputStream input) throws Exception {
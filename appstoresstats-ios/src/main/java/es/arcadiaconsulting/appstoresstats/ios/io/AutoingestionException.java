@@ -0,0 +1,100 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * A report Autoingestion did not send, with the reason given by Apple in
+ * the ERRORMSG header or the HTTP status.
+ *
+ * Failures are classified so the caller knows whether asking again can
+ * help: throttling, reports not generated yet and temporary server errors
+ * are retryable, wrong credentials or vendor numbers and reports that do
+ * not exist are not. Only throttling slows down the vendor.
+ */
+public class AutoingestionException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	// parts of the ERRORMSG values Apple sends while it is overloaded
+	private static final String[] THROTTLED_MESSAGES = { "too many requests", "rate limit",
+			"busy", "high volume", "temporarily" };
+
+	// parts of the ERRORMSG values of a report that is not generated yet, like
+	// yesterday's daily report early in the day: worth retrying, but the
+	// vendor is not going too fast
+	private static final String[] NOT_READY_MESSAGES = { "not available at this time", "try again" };
+
+	private final boolean retryable;
+
+	private final boolean throttled;
+
+	public AutoingestionException(String message, boolean retryable, boolean throttled) {
+		super(message);
+		this.retryable = retryable;
+		this.throttled = throttled;
+	}
+
+	public AutoingestionException(String message, Throwable cause) {
+		// network errors
+		super(message);
+		initCause(cause);
+		this.retryable = true;
+		this.throttled = false;
+	}
+
+	/**
+	 * @param errorMessage value of the ERRORMSG header
+	 */
+	public static AutoingestionException fromErrorMessage(String errorMessage) {
+		String lowerCase = errorMessage.toLowerCase(Locale.ENGLISH);
+		for (String throttledMessage : THROTTLED_MESSAGES) {
+			if (lowerCase.contains(throttledMessage)) {
+				return new AutoingestionException(errorMessage, true, true);
+			}
+		}
+		for (String notReadyMessage : NOT_READY_MESSAGES) {
+			if (lowerCase.contains(notReadyMessage)) {
+				return new AutoingestionException(errorMessage, true, false);
+			}
+		}
+		return new AutoingestionException(errorMessage, false, false);
+	}
+
+	public static AutoingestionException fromStatus(int status, String reason) {
+		String message = "Autoingestion returned " + status + " " + reason;
+		if (status == 429 || status == 503) {
+			return new AutoingestionException(message, true, true);
+		}
+		return new AutoingestionException(message, status >= 500, false);
+	}
+
+	/**
+	 * @return true if the same request may succeed later
+	 */
+	public boolean isRetryable() {
+		return retryable;
+	}
+
+	/**
+	 * @return true if Apple asked to slow down
+	 */
+	public boolean isThrottled() {
+		return throttled;
+	}
+}
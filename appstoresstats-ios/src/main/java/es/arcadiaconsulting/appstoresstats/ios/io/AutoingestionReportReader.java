@@ -0,0 +1,328 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import es.arcadiaconsulting.appstoresstats.common.DayHelper;
+import es.arcadiaconsulting.appstoresstats.ios.model.AutoingestionBean;
+
+/**
+ * Reads a gzip Autoingestion report line by line without holding the whole
+ * file in memory.
+ *
+ * Lines are split on tabs inside a reusable char buffer and passed to a
+ * {@link RowHandler} as a {@link Row}, which parses numbers and MM/dd/yyyy
+ * dates straight from the buffer. The header line and empty lines are
+ * skipped. A Row is only valid during the call to the handler.
+ */
+public class AutoingestionReportReader {
+
+	private static final Logger logger = LoggerFactory.getLogger(AutoingestionReportReader.class);
+
+	private static final int BUFFER_SIZE = 8192;
+
+	public interface RowHandler {
+		void handleRow(Row row) throws IOException;
+	}
+
+	private final Reader reader;
+
+	private final Row row = new Row();
+
+	/**
+	 * @param gzipInput gzip report as returned by Apple, closed by
+	 *            {@link #read(RowHandler)}
+	 */
+	public AutoingestionReportReader(InputStream gzipInput) throws IOException {
+		this.reader = new InputStreamReader(new GZIPInputStream(gzipInput, BUFFER_SIZE), "UTF-8");
+	}
+
+	/**
+	 * Passes every row of the report to the handler and closes the stream
+	 * @return number of rows read
+	 */
+	public int read(RowHandler handler) throws IOException {
+		int rows = 0;
+		try {
+			char[] buffer = new char[BUFFER_SIZE];
+			boolean header = true;
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++) {
+					char c = buffer[i];
+					if (c != '\n') {
+						row.append(c);
+						continue;
+					}
+					if (header) {
+						header = false;
+					} else if (row.split()) {
+						handler.handleRow(row);
+						rows++;
+					}
+					row.clear();
+				}
+			}
+			if (!header && row.split()) {
+				handler.handleRow(row);
+				rows++;
+			}
+		} finally {
+			reader.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * A line of the report, split in tab separated fields
+	 */
+	public static class Row {
+
+		private char[] line = new char[512];
+
+		private int length;
+
+		private int[] starts = new int[24];
+
+		private int[] ends = new int[24];
+
+		private int fields;
+
+		// rows of a report share a few days, reuse the Date of each day
+		private final Map<Integer, Date> dates = new HashMap<Integer, Date>();
+
+		private void append(char c) {
+			if (length == line.length) {
+				char[] newLine = new char[length * 2];
+				System.arraycopy(line, 0, newLine, 0, length);
+				line = newLine;
+			}
+			line[length++] = c;
+		}
+
+		private void clear() {
+			length = 0;
+			fields = 0;
+		}
+
+		/**
+		 * Trims the line like String.trim and finds the fields
+		 * @return false for an empty line
+		 */
+		private boolean split() {
+			int start = 0;
+			int end = length;
+			while (start < end && line[start] <= ' ') {
+				start++;
+			}
+			while (end > start && line[end - 1] <= ' ') {
+				end--;
+			}
+			if (start == end) {
+				return false;
+			}
+			fields = 0;
+			int fieldStart = start;
+			for (int i = start; i <= end; i++) {
+				if (i == end || line[i] == '\t') {
+					if (fields == starts.length) {
+						int[] newStarts = new int[fields * 2];
+						int[] newEnds = new int[fields * 2];
+						System.arraycopy(starts, 0, newStarts, 0, fields);
+						System.arraycopy(ends, 0, newEnds, 0, fields);
+						starts = newStarts;
+						ends = newEnds;
+					}
+					starts[fields] = fieldStart;
+					ends[fields] = i;
+					fields++;
+					fieldStart = i + 1;
+				}
+			}
+			return true;
+		}
+
+		public int getFieldCount() {
+			return fields;
+		}
+
+		private void checkField(int field) {
+			if (field >= fields) {
+				throw new ArrayIndexOutOfBoundsException("Row has " + fields + " fields, no field "
+						+ field);
+			}
+		}
+
+		public String getString(int field) {
+			checkField(field);
+			return new String(line, starts[field], ends[field] - starts[field]);
+		}
+
+		/**
+		 * @return true if the field has exactly the given value
+		 */
+		public boolean equals(int field, String value) {
+			checkField(field);
+			int fieldLength = ends[field] - starts[field];
+			if (fieldLength != value.length()) {
+				return false;
+			}
+			for (int i = 0; i < fieldLength; i++) {
+				if (line[starts[field] + i] != value.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public int getInt(int field) {
+			checkField(field);
+			int i = starts[field];
+			int end = ends[field];
+			boolean negative = i < end && line[i] == '-';
+			if (negative || (i < end && line[i] == '+')) {
+				i++;
+			}
+			if (i == end) {
+				throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+			}
+			long value = 0;
+			for (; i < end; i++) {
+				int digit = line[i] - '0';
+				if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+					throw new NumberFormatException("For input string: \"" + getString(field)
+							+ "\"");
+				}
+				value = value * 10 + digit;
+			}
+			value = negative ? -value : value;
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+			}
+			return (int) value;
+		}
+
+		public float getFloat(int field) {
+			return Float.parseFloat(getString(field));
+		}
+
+		/**
+		 * @return the MM/dd/yyyy date of the field as days since 1970-01-01
+		 * @throws NumberFormatException if it is not a valid date
+		 */
+		public int getEpochDay(int field) {
+			checkField(field);
+			int i = starts[field];
+			int end = ends[field];
+			int[] parts = new int[3];
+			int part = 0;
+			int digits = 0;
+			for (; i < end; i++) {
+				char c = line[i];
+				if (c == '/' && part < 2 && digits > 0) {
+					part++;
+					digits = 0;
+				} else if (c >= '0' && c <= '9' && digits < 4) {
+					parts[part] = parts[part] * 10 + (c - '0');
+					digits++;
+				} else {
+					throw new NumberFormatException("Incorrect date \"" + getString(field) + "\"");
+				}
+			}
+			int month = parts[0];
+			int day = parts[1];
+			int year = parts[2];
+			if (part != 2 || digits == 0 || month < 1 || month > 12 || day < 1
+					|| day > daysInMonth(year, month)) {
+				throw new NumberFormatException("Incorrect date \"" + getString(field) + "\"");
+			}
+			return DayHelper.toEpochDay(year, month, day);
+		}
+
+		/**
+		 * @return the MM/dd/yyyy date of the field at midnight of the default
+		 *         time zone, the same instance for every row of the same day
+		 */
+		public Date getDate(int field) {
+			Integer epochDay = Integer.valueOf(getEpochDay(field));
+			Date date = dates.get(epochDay);
+			if (date == null) {
+				date = DayHelper.toDate(epochDay.intValue());
+				dates.put(epochDay, date);
+			}
+			return date;
+		}
+
+		private static int daysInMonth(int year, int month) {
+			if (month == 2) {
+				return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+			}
+			return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+		}
+
+		/**
+		 * Fills a bean with the 16 to 20 columns of a Sales Summary report
+		 */
+		public AutoingestionBean toBean() {
+			AutoingestionBean bean = new AutoingestionBean();
+			bean.setProvider(getString(0));
+			bean.setProviderCountry(getString(1));
+			bean.setSku(getString(2));
+			bean.setDeveloper(getString(3));
+			bean.setTitle(getString(4));
+			bean.setVersion(getString(5));
+			bean.setProductTypeIdentifier(getString(6));
+			bean.setUnits(getInt(7));
+			bean.setDeveloperProceds(getInt(8));
+			try {
+				bean.setBeginDate(getDate(9));
+			} catch (NumberFormatException e) {
+				logger.error("Build AutoingestionBean error, Incorrect beginDate format", e);
+			}
+			try {
+				bean.setEndDate(getDate(10));
+			} catch (NumberFormatException e) {
+				logger.error("Build AutoingestionBean error, Incorrect endDate format", e);
+			}
+			bean.setCustomerCurrency(getString(11));
+			bean.setCountryCode(getString(12));
+			bean.setCurrencyOfProcess(getString(13));
+			bean.setAppleIdentifier(getString(14));
+			bean.setCustomerPrice(getFloat(15));
+			if (fields > 16)
+				bean.setPromoCode(getString(16));
+			if (fields > 17)
+				bean.setParentIdentifier(getString(17));
+			if (fields > 18)
+				bean.setSubscription(getString(18));
+			if (fields > 19)
+				bean.setPeriod(getString(19));
+			return bean;
+		}
+	}
+
+}
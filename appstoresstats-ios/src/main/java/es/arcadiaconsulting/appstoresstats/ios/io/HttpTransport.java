@@ -0,0 +1,238 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.params.HttpClientParams;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import es.arcadiaconsulting.appstoresstats.common.SingleFlight;
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+
+/**
+ * The HTTP client shared by all the iOS requests: iTunes lookup, the
+ * customer reviews feed and Autoingestion.
+ *
+ * Connections are pooled per host and kept alive between requests, so
+ * consecutive calls skip the TCP and TLS handshakes. Responses sent with
+ * gzip content encoding are inflated transparently. Threads asking for the
+ * same URL at the same time share one request. The client is thread
+ * safe; callers must consume or release the entity of every response to
+ * give the connection back to the pool.
+ */
+public class HttpTransport {
+
+	private static final Logger logger = LoggerFactory.getLogger(HttpTransport.class);
+
+	private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+	private static final String ENCODING_GZIP = "gzip";
+
+	private static final ThreadSafeClientConnManager connectionManager;
+
+	private static final DefaultHttpClient client;
+
+	// GET requests being sent, by URL
+	private static final SingleFlight<String, String> stringsInFlight = new SingleFlight<String, String>();
+	private static final SingleFlight<String, byte[]> bytesInFlight = new SingleFlight<String, byte[]>();
+
+	static {
+		HttpParams params = new BasicHttpParams();
+		HttpConnectionParams.setConnectionTimeout(params, Constants.HTTP_TIMEOUT_MILLIS);
+		HttpConnectionParams.setSoTimeout(params, Constants.HTTP_TIMEOUT_MILLIS);
+		HttpConnectionParams.setStaleCheckingEnabled(params, true);
+		HttpConnectionParams.setTcpNoDelay(params, true);
+		HttpClientParams.setRedirecting(params, true);
+		HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+		HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
+		HttpProtocolParams.setUseExpectContinue(params, false);
+
+		SchemeRegistry registry = new SchemeRegistry();
+		registry.register(new Scheme("http", 80, PlainSocketFactory.getSocketFactory()));
+		registry.register(new Scheme("https", 443, SSLSocketFactory.getSocketFactory()));
+
+		connectionManager = new ThreadSafeClientConnManager(registry);
+		connectionManager.setMaxTotal(Constants.HTTP_MAX_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(Constants.HTTP_MAX_CONNECTIONS_PER_HOST);
+
+		client = new DefaultHttpClient(connectionManager, params);
+		client.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+			private final ConnectionKeepAliveStrategy serverStrategy = new DefaultConnectionKeepAliveStrategy();
+
+			@Override
+			public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+				// use the server timeout when it sends one
+				long duration = serverStrategy.getKeepAliveDuration(response, context);
+				return duration > 0 ? duration : Constants.HTTP_KEEP_ALIVE_MILLIS;
+			}
+		});
+		client.addRequestInterceptor(new HttpRequestInterceptor() {
+			@Override
+			public void process(HttpRequest request, HttpContext context) {
+				if (!request.containsHeader(HEADER_ACCEPT_ENCODING)) {
+					request.addHeader(HEADER_ACCEPT_ENCODING, ENCODING_GZIP);
+				}
+			}
+		});
+		client.addResponseInterceptor(new HttpResponseInterceptor() {
+			@Override
+			public void process(HttpResponse response, HttpContext context) {
+				HttpEntity entity = response.getEntity();
+				Header encoding = entity == null ? null : entity.getContentEncoding();
+				if (encoding != null) {
+					for (HeaderElement element : encoding.getElements()) {
+						if (element.getName().equalsIgnoreCase(ENCODING_GZIP)) {
+							response.setEntity(new InflatingEntity(entity));
+							break;
+						}
+					}
+				}
+			}
+		});
+	}
+
+	private HttpTransport() {
+	}
+
+	public static HttpClient getClient() {
+		return client;
+	}
+
+	/**
+	 * @return the body of the response, decoded with its charset or UTF-8
+	 * @throws IOException on network errors or a status other than 200
+	 */
+	public static String get(final String url) throws IOException {
+		return coalesce(stringsInFlight, url, new Callable<String>() {
+			@Override
+			public String call() throws IOException {
+				// reading the entity releases the connection
+				return EntityUtils.toString(execute(url), HTTP.UTF_8);
+			}
+		});
+	}
+
+	/**
+	 * @return the raw body of the response, shared with the threads asking
+	 *         for the same URL at the same time so it must not be modified
+	 * @throws IOException on network errors or a status other than 200
+	 */
+	public static byte[] getBytes(final String url) throws IOException {
+		return coalesce(bytesInFlight, url, new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws IOException {
+				return EntityUtils.toByteArray(execute(url));
+			}
+		});
+	}
+
+	/**
+	 * Sends one request for the threads asking for the same URL at the same
+	 * time
+	 */
+	private static <T> T coalesce(SingleFlight<String, T> inFlight, String url, Callable<T> call)
+			throws IOException {
+		try {
+			return inFlight.execute(url, call);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException("GET " + url + " failed: " + cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for GET " + url);
+		}
+	}
+
+	private static HttpEntity execute(String url) throws IOException {
+		HttpGet request = new HttpGet(url);
+		HttpResponse response = client.execute(request);
+		HttpEntity entity = response.getEntity();
+		int status = response.getStatusLine().getStatusCode();
+		if (status != HttpStatus.SC_OK || entity == null) {
+			// drops the connection instead of reading an unused body
+			request.abort();
+			throw new IOException("GET " + url + " returned " + response.getStatusLine());
+		}
+		return entity;
+	}
+
+	/**
+	 * Closes every pooled connection. Requests made afterwards fail.
+	 */
+	public static void shutdown() {
+		logger.debug("shutdown() - closing pooled connections");
+		connectionManager.shutdown();
+	}
+
+	static class InflatingEntity extends HttpEntityWrapper {
+		public InflatingEntity(HttpEntity wrapped) {
+			super(wrapped);
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return new GZIPInputStream(wrappedEntity.getContent());
+		}
+
+		@Override
+		public long getContentLength() {
+			return -1;
+		}
+	}
+
+}
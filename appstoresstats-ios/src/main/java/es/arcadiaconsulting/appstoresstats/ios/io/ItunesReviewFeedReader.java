@@ -0,0 +1,174 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.InputStream;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import es.arcadiaconsulting.appstoresstats.common.Rating;
+import es.arcadiaconsulting.appstoresstats.ios.model.ItunesReviewFeed;
+
+/**
+ * Reads the iTunes customer reviews feed in a single streaming pass.
+ *
+ * The bytes go straight to the StAX parser, which decodes them with the
+ * encoding of the XML declaration. Only the children of each entry that are
+ * used are turned into strings, and a {@link Rating} is only built for the
+ * entries with a rating: the first entry of the feed describes the app and
+ * its id is the App Store URL.
+ */
+public class ItunesReviewFeedReader {
+
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+	static {
+		// the feed has no DTD, never fetch external entities
+		FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+	}
+
+	private ItunesReviewFeedReader() {
+	}
+
+	/**
+	 * @param in
+	 *            the feed, not closed
+	 */
+	public static ItunesReviewFeed read(InputStream in) throws XMLStreamException {
+		XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+		try {
+			return read(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static ItunesReviewFeed read(XMLStreamReader reader) throws XMLStreamException {
+		// the offset of the dates is ignored, they are read as local time
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+		ParsePosition position = new ParsePosition(0);
+		List<Rating> ratings = new ArrayList<Rating>();
+		String storeUrl = null;
+		boolean firstEntry = true;
+
+		int depth = 0;
+		int entryDepth = -1;
+		boolean inAuthor = false;
+		String id = null;
+		String title = null;
+		String user = null;
+		String version = null;
+		Date date = null;
+		int rate = 0;
+		boolean rated = false;
+
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String name = reader.getLocalName();
+				if (entryDepth < 0) {
+					if ("entry".equals(name)) {
+						entryDepth = depth;
+						id = null;
+						title = null;
+						user = null;
+						version = null;
+						date = null;
+						rate = 0;
+						rated = false;
+					}
+				} else if (depth == entryDepth + 1) {
+					if ("author".equals(name)) {
+						inAuthor = true;
+						continue;
+					}
+					if ("id".equals(name)) {
+						id = readText(reader);
+					} else if ("title".equals(name)) {
+						title = readText(reader);
+					} else if ("version".equals(name)) {
+						version = readText(reader);
+					} else if ("rating".equals(name)) {
+						rate = parseInt(reader, readText(reader));
+						rated = true;
+					} else if ("updated".equals(name)) {
+						date = parseDate(reader, format, position, readText(reader));
+					} else {
+						continue;
+					}
+					// the text was read up to the end tag
+					depth--;
+				} else if (inAuthor && depth == entryDepth + 2 && "name".equals(name)) {
+					user = readText(reader);
+					depth--;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == entryDepth) {
+					if (firstEntry) {
+						storeUrl = id;
+						firstEntry = false;
+					}
+					if (rated) {
+						Rating rating = new Rating(rate, title, user, date, version);
+						rating.setId(id);
+						ratings.add(rating);
+					}
+					entryDepth = -1;
+				} else if (inAuthor && depth == entryDepth + 1) {
+					inAuthor = false;
+				}
+				depth--;
+			}
+		}
+		return new ItunesReviewFeed(storeUrl, ratings);
+	}
+
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		return reader.getElementText().trim();
+	}
+
+	private static int parseInt(XMLStreamReader reader, String text) throws XMLStreamException {
+		try {
+			return Integer.parseInt(text);
+		} catch (NumberFormatException e) {
+			throw new XMLStreamException("Incorrect rating \"" + text + "\"", reader.getLocation(), e);
+		}
+	}
+
+	private static Date parseDate(XMLStreamReader reader, SimpleDateFormat format,
+			ParsePosition position, String text) throws XMLStreamException {
+		position.setIndex(0);
+		position.setErrorIndex(-1);
+		Date date = format.parse(text, position);
+		if (date == null) {
+			throw new XMLStreamException("Incorrect date \"" + text + "\"", reader.getLocation());
+		}
+		return date;
+	}
+
+}
@@ -0,0 +1,67 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import es.arcadiaconsulting.appstoresstats.common.Rating;
+import es.arcadiaconsulting.appstoresstats.common.ReviewSource;
+import es.arcadiaconsulting.appstoresstats.common.StoreStatsException;
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+
+/**
+ * Reviews of an app from the iTunes customer reviews feed, sorted by date.
+ * Apple serves up to {@link Constants#RSS_REVIEWS_MAX_PAGES} pages per app.
+ */
+public class ItunesReviewSource implements ReviewSource {
+
+	private final String country;
+
+	public ItunesReviewSource() {
+		this(Constants.DEFAULT_RSS_COUNTRY);
+	}
+
+	/**
+	 * @param country code of the storefront the reviews are read from
+	 */
+	public ItunesReviewSource(String country) {
+		this.country = country;
+	}
+
+	/**
+	 * @param appId the apple id of the app
+	 */
+	public List<Rating> getReviews(String appId, int page) throws StoreStatsException {
+		if (page >= Constants.RSS_REVIEWS_MAX_PAGES) {
+			return new ArrayList<Rating>();
+		}
+		String url = MessageFormat.format(Constants.HTTP_RSS_REVIEWS_PAGE, appId,
+				String.valueOf(page + 1), country);
+		try {
+			return RSSHelper.parseItunesRatings(HttpTransport.getBytes(url));
+		} catch (IOException e) {
+			throw new StoreStatsException("Could not download the reviews of " + appId, e);
+		} catch (XMLStreamException e) {
+			throw new StoreStatsException("Could not parse the reviews of " + appId, e);
+		}
+	}
+
+}
@@ -15,54 +15,20 @@
 **/
 package es.arcadiaconsulting.appstoresstats.ios.io;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import es.arcadiaconsulting.appstoresstats.ios.model.AppInfo;
-import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
 
 public class JSONParser {
 	
-	private static final Logger logger = LoggerFactory.getLogger(JSONParser.class);
-	
+	/**
+	 * @return the info of the app, read from {@link AppInfoService#getDefault()}.
+	 *         An info with only the id if the lookup failed
+	 */
 	public static AppInfo getAPPInfoByID(String appleID){
-		AppInfo appInfo = new AppInfo();
-		try {
-			String httpResponse = HTTPClientHelper.executeHttpGetWithParams(Constants.HTTP_URL_APPLE_APP_GET, new String[]{Constants.ID_NAME,appleID});
-		
-			JSONObject jsonObject = new JSONObject(httpResponse);
-			int resultCount = jsonObject.getInt("resultCount");
-			if(resultCount==0){
-				appInfo.setDeployed(false);
-				appInfo.setId(appleID);
-				return appInfo;
-			}else if(resultCount > 1){
-				logger.error("There are more than one app with same id");
-				return null;
-			}else{
-				JSONArray result = jsonObject.getJSONArray("results");
-				String releaseDate = result.getJSONObject(0).getString("releaseDate");
-				String trakName = result.getJSONObject(0).getString("trackName");
-				appInfo.setDeployed(true);
-				appInfo.setId(appleID);
-				appInfo.setAppName(trakName);
-				//TODO get more parameters
-				appInfo.setReleaseDate(DateHelper.buildDateFromUTCString(releaseDate));
-				return appInfo;
-				
-				
-			}
-			
-		
-		} catch (JSONException e) {
-			// TODO Auto-generated catch block
-			logger.error("Exception parsing");;
+		AppInfo appInfo = AppInfoService.getDefault().getAppInfo(appleID);
+		if(appInfo==null){
+			appInfo = new AppInfo();
+			appInfo.setId(appleID);
 		}
-		
-		
 		return appInfo;
 	}
 	
@@ -17,22 +17,14 @@ package es.arcadiaconsulting.appstoresstats.ios.io;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.text.MessageFormat;
-import java.text.SimpleDateFormat;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
-import java.util.Vector;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLStreamException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
 
 import com.sun.syndication.feed.atom.Entry;
 import com.sun.syndication.feed.synd.SyndEntry;
@@ -44,6 +36,7 @@ import com.sun.syndication.io.XmlReader;
 import es.arcadiaconsulting.appstoresstats.common.CommonStatsData;
 import es.arcadiaconsulting.appstoresstats.common.Rating;
 import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+import es.arcadiaconsulting.appstoresstats.ios.model.ItunesReviewFeed;
 
 public class RSSHelper {
 	
@@ -53,17 +46,12 @@ public class RSSHelper {
 	public static List<SyndEntry> getRSSEntry(java.lang.String url){
 		
 		try{
-        URL feedUrl = new URL(url);
         SyndFeedInput input = new SyndFeedInput();
-        SyndFeed feed = input.build(new XmlReader(feedUrl));
+        SyndFeed feed = input.build(new XmlReader(new ByteArrayInputStream(HttpTransport.getBytes(url))));
         return (List<SyndEntry>) feed.getEntries();
 //        for (SyndEntry entry : (List<SyndEntry>)feed.getEntries()) {
 //            System.out.println(entry.getTitle());
 //        }
-		}catch(MalformedURLException e){
-			logger.error("Malformed RSS URL", e);
-			return null;
-			
 		} catch (IllegalArgumentException e) {
 			logger.error("Getting RSS Exception", e);
 			
@@ -77,80 +65,55 @@ public class RSSHelper {
 		}
 	}
 	
-	public static String getItunesURL(String appleid){
-		String getResponse = HTTPClientHelper.executeHttpGet(MessageFormat.format(Constants.HTTP_RSS_APP_INFO, new String[]{appleid}));
-		getResponse = getResponse.replaceAll("\n", "");
-		getResponse = getResponse.replaceAll("\t", "");
-		getResponse = getResponse.replaceAll("\r", "");
+	/**
+	 * Downloads the customer reviews feed of the app once
+	 * @return the store URL and the latest reviews, null if the feed could not be read
+	 */
+	public static ItunesReviewFeed getItunesReviewFeed(String appleId){
 		try {
-			
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document doc = builder.parse(new ByteArrayInputStream(getResponse.getBytes()));
-			NodeList entryList = doc.getDocumentElement().getElementsByTagName("entry");
-			if(entryList==null || entryList.getLength()<=0){
-				logger.error("getItunesUrl - There are not rating comments we couldnt get the itunes url");
-				return null;
-			}else{
-				return entryList.item(0).getChildNodes().item(1).getTextContent();
-				
-			}
-			
-			
-					
-		} catch (Exception e) {
-			logger.error("getItunesUrl - Problem getting rss document");
+			byte[] feed = HttpTransport.getBytes(MessageFormat.format(Constants.HTTP_RSS_APP_INFO, new String[]{appleId}));
+			return ItunesReviewFeedReader.read(new ByteArrayInputStream(feed));
+		} catch (IOException e) {
+			logger.error("getItunesReviewFeed - Problem getting rss document", e);
+			return null;
+		} catch (XMLStreamException e) {
+			logger.error("getItunesReviewFeed - Problem reading rss document", e);
 			return null;
 		}
-		
+	}
+	
+	public static String getItunesURL(String appleid){
+		ItunesReviewFeed feed = getItunesReviewFeed(appleid);
+		if(feed==null){
+			return null;
+		}
+		if(feed.getStoreUrl()==null){
+			logger.error("getItunesUrl - There are not rating comments we couldnt get the itunes url");
+		}
+		return feed.getStoreUrl();
 	}
 	
 	public static List<Rating> getItunesRating(String appleId){
-		String getResponse = HTTPClientHelper.executeHttpGet(MessageFormat.format(Constants.HTTP_RSS_APP_INFO, new String[]{appleId}));
-		getResponse = getResponse.replaceAll("\n", "");
-		getResponse = getResponse.replaceAll("\t", "");
-		getResponse = getResponse.replaceAll("\r", "");
-		try {
-			
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document doc = builder.parse(new ByteArrayInputStream(getResponse.getBytes()));
-			NodeList entryList = doc.getDocumentElement().getElementsByTagName("entry");
-			if(entryList==null || entryList.getLength()<=0){
-				logger.error("getItunesRating - There are not rating comments we couldnt get the itunes url");
-				return null;
-			}else{
-				List<Rating> ratingList = new Vector<Rating>();
-				for (int i = 1; i<entryList.getLength();i++) {
-					Rating rating = new Rating();
-					NodeList entryChilds = entryList.item(i).getChildNodes();
-					for (int j=0;j<entryChilds.getLength();j++){
-						if(entryChilds.item(j).getNodeName().equals("title")){
-							rating.setOpinion(entryChilds.item(j).getTextContent());
-						}else if(entryChilds.item(j).getNodeName().contains("rating")){
-							rating.setRate(Integer.valueOf(entryChilds.item(j).getTextContent()).intValue());
-						}else if(entryChilds.item(j).getNodeName().equals("updated")){
-							SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
-							rating.setDate(format .parse(entryChilds.item(j).getTextContent()));
-						}else if(entryChilds.item(j).getNodeName().contains("version")){
-							rating.setAppVersion(entryChilds.item(j).getTextContent());
-						}
-					}
-					ratingList.add(rating);
-					
-				}
-				return ratingList;
-				
-			}
-			
-			
-					
-		} catch (Exception e) {
-			logger.error("getItunesRating - Problem getting rss document");
+		ItunesReviewFeed feed = getItunesReviewFeed(appleId);
+		if(feed==null){
 			return null;
 		}
+		if(feed.getStoreUrl()==null){
+			logger.error("getItunesRating - There are not rating comments we couldnt get the itunes url");
+			return null;
+		}
+		return feed.getRatings();
 	}
 	
+	/**
+	 * Reviews of a page of the iTunes customer reviews feed, from the newest
+	 * to the oldest
+	 * @param feed the feed as downloaded
+	 * @return empty if the page has no reviews
+	 */
+	public static List<Rating> parseItunesRatings(byte[] feed) throws XMLStreamException{
+		return ItunesReviewFeedReader.read(new ByteArrayInputStream(feed)).getRatings();
+	}
 	
 
 }
@@ -0,0 +1,228 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Comparator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+
+/**
+ * Local copy of the gzip files returned by Autoingestion.
+ *
+ * A report for a past date never changes, so it is stored on disk under the
+ * SHA-1 of (vendorId, reportType, dateType, reportSubType, reportDate) and
+ * served from there afterwards. Reports dated today or yesterday may still
+ * be generated again by Apple, so they expire after
+ * {@link Constants#RECENT_REPORT_CACHE_TTL}. When the directory grows over
+ * its size limit the least recently read files are deleted. Temporary files
+ * of writes that never finished are deleted once older than
+ * {@link Constants#REPORT_CACHE_TEMP_FILE_TTL}.
+ *
+ * Each file holds the time it was stored followed by the gzip bytes; the
+ * last modified time of the file is the last time it was read.
+ */
+public class ReportCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReportCache.class);
+
+	private static final String FILE_SUFFIX = ".report";
+
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final ReportCache defaultCache = new ReportCache(new File(System.getProperty(
+			Constants.REPORT_CACHE_DIR_PROPERTY, System.getProperty("java.io.tmpdir")
+					+ File.separator + Constants.REPORT_CACHE_DEFAULT_DIR)), Long.getLong(
+			Constants.REPORT_CACHE_MAX_BYTES_PROPERTY, Constants.REPORT_CACHE_DEFAULT_MAX_BYTES));
+
+	private final File directory;
+
+	private final long maxBytes;
+
+	public ReportCache(File directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Cache used by {@link Autoingestion}, in the directory of the
+	 * {@link Constants#REPORT_CACHE_DIR_PROPERTY} system property
+	 */
+	public static ReportCache getDefault() {
+		return defaultCache;
+	}
+
+	/**
+	 * @return the stored gzip report or null if it is not stored or expired
+	 */
+	public byte[] get(String vendorId, String reportType, String dateType, String reportSubType,
+			String reportDate) {
+		File file = getFile(vendorId, reportType, dateType, reportSubType, reportDate);
+		if (!file.exists()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try {
+				long storedAt = in.readLong();
+				if (isRecent(reportDate)
+						&& System.currentTimeMillis() - storedAt > Constants.RECENT_REPORT_CACHE_TTL) {
+					logger.debug("get() - expired report {}", file.getName());
+					return null;
+				}
+				byte[] report = new byte[(int) file.length() - 8];
+				in.readFully(report);
+				file.setLastModified(System.currentTimeMillis());
+				return report;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			logger.warn("Error reading cached report " + file.getName(), e);
+			file.delete();
+			return null;
+		}
+	}
+
+	public void put(String vendorId, String reportType, String dateType, String reportSubType,
+			String reportDate, byte[] report) {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			logger.warn("Can not create report cache directory " + directory);
+			return;
+		}
+		File file = getFile(vendorId, reportType, dateType, reportSubType, reportDate);
+		File temp = null;
+		try {
+			// other threads or processes may be reading the same report
+			temp = File.createTempFile("report", TEMP_FILE_SUFFIX, directory);
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(temp));
+			try {
+				out.writeLong(System.currentTimeMillis());
+				out.write(report);
+			} finally {
+				out.close();
+			}
+			if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+				logger.warn("Can not store report " + file.getName());
+				temp.delete();
+				return;
+			}
+		} catch (IOException e) {
+			logger.warn("Error storing report " + file.getName(), e);
+			if (temp != null) {
+				temp.delete();
+			}
+			return;
+		}
+		evict();
+	}
+
+	/**
+	 * Deletes the temporary files left by writes that never finished and
+	 * then the least recently read reports until the directory fits in the
+	 * size limit
+	 */
+	void evict() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		long size = 0;
+		for (File file : files) {
+			// a recent one may still be written by another thread or process
+			if (file.getName().endsWith(TEMP_FILE_SUFFIX)
+					&& now - file.lastModified() > Constants.REPORT_CACHE_TEMP_FILE_TTL
+					&& file.delete()) {
+				logger.debug("evict() - deleted stale {}", file.getName());
+				continue;
+			}
+			size += file.length();
+		}
+		if (size <= maxBytes) {
+			return;
+		}
+		final long[] lastModified = new long[files.length];
+		Integer[] order = new Integer[files.length];
+		for (int i = 0; i < files.length; i++) {
+			// read once, another thread may touch the files while sorting
+			lastModified[i] = files[i].lastModified();
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				long difference = lastModified[a.intValue()] - lastModified[b.intValue()];
+				return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+			}
+		});
+		for (int i = 0; i < order.length && size > maxBytes; i++) {
+			File file = files[order[i].intValue()];
+			if (!file.getName().endsWith(FILE_SUFFIX)) {
+				continue;
+			}
+			long length = file.length();
+			if (file.delete()) {
+				size -= length;
+			}
+		}
+	}
+
+	File getFile(String vendorId, String reportType, String dateType, String reportSubType,
+			String reportDate) {
+		String key = vendorId + '\t' + reportType + '\t' + dateType + '\t' + reportSubType + '\t'
+				+ reportDate;
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+			char[] name = new char[digest.length * 2];
+			for (int i = 0; i < digest.length; i++) {
+				name[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+				name[i * 2 + 1] = HEX[digest[i] & 0xf];
+			}
+			return new File(directory, new String(name) + FILE_SUFFIX);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return true if the report date is today or yesterday
+	 */
+	static boolean isRecent(String reportDate) {
+		Calendar yesterday = Calendar.getInstance();
+		yesterday.add(Calendar.DATE, -1);
+		SimpleDateFormat sdf = new SimpleDateFormat(Constants.DATE_FORMAT);
+		return reportDate.compareTo(sdf.format(yesterday.getTime())) >= 0;
+	}
+
+}
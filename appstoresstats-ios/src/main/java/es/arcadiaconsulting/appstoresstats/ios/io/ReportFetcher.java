@@ -0,0 +1,201 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+import es.arcadiaconsulting.appstoresstats.ios.model.ReportPlan;
+import es.arcadiaconsulting.appstoresstats.ios.model.ReportRequest;
+import es.arcadiaconsulting.appstoresstats.ios.model.SalesReport;
+import es.arcadiaconsulting.appstoresstats.ios.model.UnitData;
+
+/**
+ * Downloads the reports of a {@link ReportPlan} concurrently.
+ *
+ * Requests run on a shared pool of daemon threads. Apple throttles each
+ * vendor account, so no more than
+ * {@link Constants#MAX_CONCURRENT_REPORTS_PER_VENDOR} reports of the same
+ * vendorId are downloaded at the same time. The caller waits for a free slot
+ * before submitting each request, so waiting requests do not hold pool
+ * threads. Results are merged in plan order.
+ */
+public class ReportFetcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReportFetcher.class);
+
+	private static final ExecutorService executor = Executors
+			.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "autoingestion-"
+							+ count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private static final ConcurrentMap<String, Semaphore> vendorPermits = new ConcurrentHashMap<String, Semaphore>();
+
+	private ReportFetcher() {
+	}
+
+	/**
+	 * @return units of every report of the plan, in plan order and without
+	 *         merging countries
+	 * @throws DateHelperException if any of the reports can not be downloaded
+	 */
+	public static List<UnitData> fetchUnits(ReportPlan plan, String sku,
+			String user, String password, String vendorId)
+			throws DateHelperException {
+		List<UnitData> unitDataList = new Vector<UnitData>();
+		for (SalesReport report : fetchReports(plan, user, password, vendorId)) {
+			unitDataList.addAll(report.getUnits(sku));
+		}
+		return unitDataList;
+	}
+
+	/**
+	 * @return every report of the plan, in plan order
+	 * @throws DateHelperException if any of the reports can not be downloaded
+	 */
+	public static List<SalesReport> fetchReports(ReportPlan plan, final String user,
+			final String password, final String vendorId) throws DateHelperException {
+		return fetchReports(plan, vendorId, new ReportDownloader() {
+			@Override
+			public SalesReport download(ReportRequest request) {
+				return Autoingestion.getSalesReport(user, password, vendorId,
+						Constants.REPORT_TYPE_SALES, request.getDateType(),
+						Constants.REPORT_SUBTYPE_SUMMARY_NAME, request.getReportDate());
+			}
+		});
+	}
+
+	static List<SalesReport> fetchReports(ReportPlan plan, String vendorId,
+			ReportDownloader downloader) throws DateHelperException {
+		Semaphore permits = getPermits(vendorId);
+		List<Future<SalesReport>> results = new ArrayList<Future<SalesReport>>(plan.size());
+		try {
+			for (ReportRequest request : plan.getRequests()) {
+				permits.acquire();
+				ReportTask task = new ReportTask(permits, request, downloader);
+				try {
+					executor.execute(task);
+				} catch (RuntimeException e) {
+					permits.release();
+					throw e;
+				}
+				results.add(task);
+			}
+
+			List<SalesReport> reports = new ArrayList<SalesReport>(plan.size());
+			Iterator<ReportRequest> requests = plan.getRequests().iterator();
+			for (Future<SalesReport> result : results) {
+				ReportRequest request = requests.next();
+				SalesReport report = result.get();
+				if (report == null) {
+					logger.error("Error Getting " + request + " units");
+					throw new DateHelperException("Problem getting " + request.getDateType()
+							+ " sales. Please see log for more information");
+				}
+				reports.add(report);
+			}
+			return reports;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DateHelperException("Interrupted while getting sales");
+		} catch (ExecutionException e) {
+			logger.error("Error getting sales", e.getCause());
+			throw new DateHelperException(
+					"Problem getting sales. Please see log for more information");
+		} finally {
+			// nothing else will read the pending reports
+			for (Future<SalesReport> result : results) {
+				result.cancel(true);
+			}
+		}
+	}
+
+	private static Semaphore getPermits(String vendorId) {
+		Semaphore permits = vendorPermits.get(vendorId);
+		if (permits == null) {
+			Semaphore newPermits = new Semaphore(Constants.MAX_CONCURRENT_REPORTS_PER_VENDOR);
+			permits = vendorPermits.putIfAbsent(vendorId, newPermits);
+			if (permits == null) {
+				permits = newPermits;
+			}
+		}
+		return permits;
+	}
+
+	/**
+	 * Downloads one report of a plan, null if it can not be downloaded
+	 */
+	interface ReportDownloader {
+		SalesReport download(ReportRequest request);
+	}
+
+	/**
+	 * Gives the vendor slot back when the download has really ended. A
+	 * cancelled download keeps running until the HTTP call returns, so the
+	 * slot is not released on cancel but when run() leaves, which it does at
+	 * once if the task was cancelled before it started
+	 */
+	private static class ReportTask extends FutureTask<SalesReport> {
+
+		private final Semaphore permits;
+
+		ReportTask(Semaphore permits, final ReportRequest request,
+				final ReportDownloader downloader) {
+			super(new Callable<SalesReport>() {
+				@Override
+				public SalesReport call() {
+					return downloader.download(request);
+				}
+			});
+			this.permits = permits;
+		}
+
+		@Override
+		public void run() {
+			try {
+				super.run();
+			} finally {
+				permits.release();
+			}
+		}
+	}
+
+}
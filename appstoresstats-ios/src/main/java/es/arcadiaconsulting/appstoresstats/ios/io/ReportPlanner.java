@@ -0,0 +1,196 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import es.arcadiaconsulting.appstoresstats.common.DayHelper;
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+import es.arcadiaconsulting.appstoresstats.ios.model.ReportPlan;
+import es.arcadiaconsulting.appstoresstats.ios.model.ReportRequest;
+
+/**
+ * Computes the smallest set of Daily/Weekly/Monthly/Yearly Autoingestion
+ * reports that covers a date range.
+ *
+ * Every day of the range is a node and every available report starting on a
+ * day is an edge to the day after it ends, so the plan is a shortest path.
+ * Reports that are not finished yet or are older than Apple keeps them
+ * ({@link Constants#DAILY_REPORTS_AVAILABLE_DAYS} and friends) are not
+ * used. When some days cannot be covered exactly the plan uses the smallest
+ * available report containing them and is marked as approximated.
+ *
+ * Weeks go from Monday to Sunday and are requested by their Sunday, months
+ * and years by their first day.
+ */
+public class ReportPlanner {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReportPlanner.class);
+
+	// indexes in DATE_TYPES, from the coarsest to the finest report
+	private static final int YEARLY = 0;
+	private static final int MONTHLY = 1;
+	private static final int WEEKLY = 2;
+
+	private static final String[] DATE_TYPES = new String[] { Constants.DATE_TYPE_YEARLY,
+			Constants.DATE_TYPE_MONTHLY, Constants.DATE_TYPE_WEEDLY, Constants.DATE_TYPE_DAILY };
+
+	private ReportPlanner() {
+	}
+
+	public static ReportPlan plan(Date initDate, Date endDate) throws DateHelperException {
+		return plan(initDate, endDate, new Date(System.currentTimeMillis()));
+	}
+
+	/**
+	 * @param initDate first day to count
+	 * @param endDate last day to count, reports for today are not ready so it is
+	 *            moved back to yesterday if needed
+	 * @param currentDate day used as "today" for availability windows
+	 */
+	public static ReportPlan plan(Date initDate, Date endDate, Date currentDate)
+			throws DateHelperException {
+		TimeZone timeZone = TimeZone.getDefault();
+		int today = DayHelper.toEpochDay(currentDate, timeZone);
+		int start = DayHelper.toEpochDay(initDate, timeZone);
+		int end = Math.min(DayHelper.toEpochDay(endDate, timeZone), today - 1);
+
+		if (start > end) {
+			logger.error("Incorrect Dates, First date must be 2 days previous to final date");
+			throw new DateHelperException(
+					"Incorrect Dates, First date must be 2 days previous to final date");
+		}
+
+		int days = end - start + 1;
+		// best known way of covering the first i days: extra days fetched, then number of reports
+		int[] extra = new int[days + 1];
+		int[] calls = new int[days + 1];
+		int[] previous = new int[days + 1];
+		int[] dateType = new int[days + 1];
+		for (int i = 1; i <= days; i++) {
+			extra[i] = Integer.MAX_VALUE;
+			calls[i] = Integer.MAX_VALUE;
+		}
+
+		for (int i = 0; i < days; i++) {
+			if (calls[i] == Integer.MAX_VALUE) {
+				continue;
+			}
+			int day = start + i;
+			for (int type = 0; type < DATE_TYPES.length; type++) {
+				int periodStart = periodStart(type, day);
+				int periodEnd = periodEnd(type, periodStart);
+				// days before the current one are already covered
+				if (periodStart < day && i > 0) {
+					continue;
+				}
+				if (periodEnd >= today || !isAvailable(type, periodStart, periodEnd, today)) {
+					continue;
+				}
+				int next = Math.min(days, periodEnd - start + 1);
+				int newExtra = extra[i] + (day - periodStart) + Math.max(0, periodEnd - end);
+				int newCalls = calls[i] + 1;
+				if (newExtra < extra[next] || (newExtra == extra[next] && newCalls < calls[next])) {
+					extra[next] = newExtra;
+					calls[next] = newCalls;
+					previous[next] = i;
+					dateType[next] = type;
+				}
+			}
+		}
+
+		if (calls[days] == Integer.MAX_VALUE) {
+			logger.error("There are not reports available for the requested dates");
+			throw new DateHelperException(
+					"There are not reports available for the requested dates");
+		}
+
+		LinkedList<ReportRequest> requests = new LinkedList<ReportRequest>();
+		for (int i = days; i > 0; i = previous[i]) {
+			int type = dateType[i];
+			int periodStart = periodStart(type, start + previous[i]);
+			int periodEnd = periodEnd(type, periodStart);
+			requests.addFirst(new ReportRequest(DATE_TYPES[type], formatReportDate(type,
+					periodStart, periodEnd), periodStart, periodEnd));
+		}
+
+		if (extra[days] > 0) {
+			logger.warn("We can get sales with this dates, we get the aproximated possible sale");
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("plan() - {} reports for {} days", requests.size(), days);
+		}
+		return new ReportPlan(start, end, new ArrayList<ReportRequest>(requests), extra[days] > 0);
+	}
+
+	private static boolean isAvailable(int type, int periodStart, int periodEnd, int today) {
+		switch (type) {
+		case YEARLY:
+			return true;
+		case MONTHLY:
+			int[] ymd = DayHelper.fromEpochDay(today);
+			int month = ymd[0] * 12 + ymd[1] - 1 - Constants.MONTHLY_REPORTS_AVAILABLE_MONTHS;
+			return periodStart >= DayHelper.toEpochDay(month / 12, month % 12 + 1, 1);
+		case WEEKLY:
+			return periodEnd >= today - Constants.WEEKLY_REPORTS_AVAILABLE_WEEKS * 7;
+		default:
+			return periodStart >= today - Constants.DAILY_REPORTS_AVAILABLE_DAYS;
+		}
+	}
+
+	private static int periodStart(int type, int day) {
+		switch (type) {
+		case YEARLY:
+			return DayHelper.toEpochDay(DayHelper.fromEpochDay(day)[0], 1, 1);
+		case MONTHLY:
+			int[] ymd = DayHelper.fromEpochDay(day);
+			return DayHelper.toEpochDay(ymd[0], ymd[1], 1);
+		case WEEKLY:
+			return day - DayHelper.dayOfWeek(day);
+		default:
+			return day;
+		}
+	}
+
+	private static int periodEnd(int type, int periodStart) {
+		int[] ymd = DayHelper.fromEpochDay(periodStart);
+		switch (type) {
+		case YEARLY:
+			return DayHelper.toEpochDay(ymd[0] + 1, 1, 1) - 1;
+		case MONTHLY:
+			return ymd[1] == 12 ? DayHelper.toEpochDay(ymd[0] + 1, 1, 1) - 1
+					: DayHelper.toEpochDay(ymd[0], ymd[1] + 1, 1) - 1;
+		case WEEKLY:
+			return periodStart + 6;
+		default:
+			return periodStart;
+		}
+	}
+
+	private static String formatReportDate(int type, int periodStart, int periodEnd) {
+		// weekly reports are named after the sunday that closes the week
+		int[] ymd = DayHelper.fromEpochDay(type == WEEKLY ? periodEnd : periodStart);
+		return String.format("%04d%02d%02d", ymd[0], ymd[1], ymd[2]);
+	}
+
+}
@@ -0,0 +1,219 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import es.arcadiaconsulting.appstoresstats.common.AsyncStoreStats;
+import es.arcadiaconsulting.appstoresstats.common.Rating;
+import es.arcadiaconsulting.appstoresstats.common.StoreStatsException;
+import es.arcadiaconsulting.appstoresstats.common.TokenBucket;
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+
+/**
+ * Reads every review of an app in several App Store countries.
+ *
+ * The countries are harvested concurrently, each one page after page until
+ * an empty page or {@link Constants#RSS_REVIEWS_MAX_PAGES}, and every
+ * request of the harvester takes a token of the same {@link TokenBucket}.
+ * Reviews are handed to the {@link RatingSink} as their pages arrive, once
+ * per review id, and one at a time.
+ */
+public class ReviewHarvester {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReviewHarvester.class);
+
+	public static final int DEFAULT_THREADS = 4;
+	public static final double DEFAULT_REQUESTS_PER_SECOND = 5;
+
+	/**
+	 * Receives the harvested reviews
+	 */
+	public interface RatingSink {
+		void rating(String country, Rating rating);
+	}
+
+	private final List<String> countries;
+
+	private final TokenBucket limiter;
+
+	private final ExecutorService executor;
+
+	// only shut down the executor created here
+	private final boolean ownExecutor;
+
+	/**
+	 * Uses {@link #DEFAULT_THREADS} daemon threads and
+	 * {@link #DEFAULT_REQUESTS_PER_SECOND}
+	 * @param countries storefront country codes, such as "es" or "us"
+	 */
+	public ReviewHarvester(List<String> countries) {
+		this(countries, new TokenBucket(DEFAULT_REQUESTS_PER_SECOND, DEFAULT_THREADS),
+				Executors.newFixedThreadPool(DEFAULT_THREADS,
+						AsyncStoreStats.daemonThreads("review-harvester-")), true);
+	}
+
+	public ReviewHarvester(List<String> countries, TokenBucket limiter, ExecutorService executor) {
+		this(countries, limiter, executor, false);
+	}
+
+	private ReviewHarvester(List<String> countries, TokenBucket limiter,
+			ExecutorService executor, boolean ownExecutor) {
+		this.countries = new ArrayList<String>(countries);
+		this.limiter = limiter;
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+	}
+
+	/**
+	 * Sends the reviews of the app in every country to the sink. A country
+	 * that fails is logged and skipped, the others are still harvested
+	 * @param appleId apple id of the app
+	 * @return number of different reviews sent to the sink
+	 * @throws StoreStatsException if interrupted while harvesting
+	 */
+	public int harvest(String appleId, RatingSink sink) throws StoreStatsException {
+		Harvest harvest = new Harvest(appleId, sink);
+		Map<String, Future<Integer>> futures = new LinkedHashMap<String, Future<Integer>>();
+		try {
+			for (String country : countries) {
+				futures.put(country, executor.submit(harvest.country(country)));
+			}
+			for (Map.Entry<String, Future<Integer>> entry : futures.entrySet()) {
+				try {
+					entry.getValue().get();
+				} catch (ExecutionException e) {
+					logger.error("Error harvesting reviews of " + appleId + " in " + entry.getKey(),
+							e.getCause());
+				}
+			}
+			return harvest.getDelivered();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new StoreStatsException("Interrupted while harvesting reviews", e);
+		} finally {
+			// no-op for finished countries
+			for (Future<Integer> future : futures.values()) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * @return the reviews of the app in every country, in the order they
+	 *         arrived
+	 */
+	public List<Rating> harvest(String appleId) throws StoreStatsException {
+		final List<Rating> ratings = new ArrayList<Rating>();
+		harvest(appleId, new RatingSink() {
+			public void rating(String country, Rating rating) {
+				ratings.add(rating);
+			}
+		});
+		return ratings;
+	}
+
+	/**
+	 * @param page 0 for the newest reviews
+	 * @return the feed page as downloaded
+	 */
+	protected byte[] fetchPage(String appleId, String country, int page) throws IOException {
+		return HttpTransport.getBytes(MessageFormat.format(Constants.HTTP_RSS_REVIEWS_PAGE,
+				appleId, String.valueOf(page + 1), country));
+	}
+
+	/**
+	 * Stops the executor if it was created by this instance
+	 */
+	public void shutdown() {
+		if (ownExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * State of a harvest shared by its countries
+	 */
+	private class Harvest {
+
+		private final String appleId;
+
+		private final RatingSink sink;
+
+		// reviews move between pages while they are read, guarded by this
+		private final Set<String> ids = new HashSet<String>();
+
+		// guarded by this
+		private int delivered;
+
+		Harvest(String appleId, RatingSink sink) {
+			this.appleId = appleId;
+			this.sink = sink;
+		}
+
+		Callable<Integer> country(final String country) {
+			return new Callable<Integer>() {
+				public Integer call() throws IOException, XMLStreamException,
+						InterruptedException {
+					int page = 0;
+					for (; page < Constants.RSS_REVIEWS_MAX_PAGES; page++) {
+						limiter.acquire();
+						List<Rating> ratings = ItunesReviewFeedReader.read(
+								new ByteArrayInputStream(fetchPage(appleId, country, page)))
+								.getRatings();
+						if (ratings.isEmpty()) {
+							break;
+						}
+						deliver(country, ratings);
+					}
+					return Integer.valueOf(page);
+				}
+			};
+		}
+
+		private synchronized void deliver(String country, List<Rating> ratings) {
+			for (Rating rating : ratings) {
+				if (rating.getId() == null || ids.add(rating.getId())) {
+					sink.rating(country, rating);
+					delivered++;
+				}
+			}
+		}
+
+		synchronized int getDelivered() {
+			return delivered;
+		}
+	}
+
+}
@@ -0,0 +1,141 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import es.arcadiaconsulting.appstoresstats.common.TokenBucket;
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+
+/**
+ * Pace of the Autoingestion requests of a vendor account.
+ *
+ * Requests take a token from a bucket whose rate goes up a little after
+ * every report received and is halved whenever Apple throttles the vendor,
+ * between {@link Constants#AUTOINGESTION_MIN_REQUESTS_PER_SECOND} and
+ * {@link Constants#AUTOINGESTION_MAX_REQUESTS_PER_SECOND}. Retries spend a
+ * budget of {@link Constants#AUTOINGESTION_RETRY_RESERVE} that every
+ * request refills by {@link Constants#AUTOINGESTION_RETRY_RATIO}, so a
+ * vendor that keeps failing does not multiply its traffic.
+ */
+public class VendorThrottle {
+
+	private static final ConcurrentMap<String, VendorThrottle> throttles = new ConcurrentHashMap<String, VendorThrottle>();
+
+	private static final Random random = new Random();
+
+	private final TokenBucket bucket;
+
+	private double retryBudget = Constants.AUTOINGESTION_RETRY_RESERVE;
+
+	VendorThrottle(double requestsPerSecond) {
+		// no bursts, requests are spread evenly
+		bucket = new TokenBucket(requestsPerSecond, 1);
+	}
+
+	/**
+	 * @return the throttle shared by every request of the vendor
+	 */
+	public static VendorThrottle forVendor(String vendorId) {
+		VendorThrottle throttle = throttles.get(vendorId);
+		if (throttle == null) {
+			VendorThrottle newThrottle = new VendorThrottle(
+					Constants.AUTOINGESTION_MAX_REQUESTS_PER_SECOND);
+			throttle = throttles.putIfAbsent(vendorId, newThrottle);
+			if (throttle == null) {
+				throttle = newThrottle;
+			}
+		}
+		return throttle;
+	}
+
+	/**
+	 * Waits for the turn of the next request
+	 */
+	public void acquire() throws InterruptedException {
+		bucket.acquire();
+	}
+
+	/**
+	 * Waits for the turn of the next request even if the thread is
+	 * interrupted, the interrupt is kept for the caller
+	 */
+	public void acquireUninterruptibly() {
+		bucket.acquireUninterruptibly();
+	}
+
+	/**
+	 * A report was received: speeds up and adds to the retry budget
+	 */
+	public synchronized void onSuccess() {
+		bucket.setRate(Math.min(Constants.AUTOINGESTION_MAX_REQUESTS_PER_SECOND, bucket.getRate()
+				+ Constants.AUTOINGESTION_RATE_INCREASE));
+		depositRetry();
+	}
+
+	/**
+	 * Apple asked to slow down
+	 */
+	public synchronized void onThrottled() {
+		bucket.setRate(Math.max(Constants.AUTOINGESTION_MIN_REQUESTS_PER_SECOND,
+				bucket.getRate() / 2));
+	}
+
+	/**
+	 * A request failed for good, it still earns its share of retries
+	 */
+	public synchronized void onFailure() {
+		depositRetry();
+	}
+
+	/**
+	 * @return true if a retry fits in the budget, which is then spent
+	 */
+	public synchronized boolean tryRetry() {
+		if (retryBudget < 1) {
+			return false;
+		}
+		retryBudget--;
+		return true;
+	}
+
+	public double getRate() {
+		return bucket.getRate();
+	}
+
+	/**
+	 * @param attempt failed attempts so far, from 1
+	 * @return milliseconds to wait before the next attempt, a random time
+	 *         between half a limit that doubles with each attempt and the
+	 *         limit, so retries of different reports do not arrive together
+	 */
+	public static long backoff(int attempt) {
+		long limit = Constants.AUTOINGESTION_BACKOFF_MILLIS << Math.min(attempt - 1, 20);
+		limit = Math.min(limit, Constants.AUTOINGESTION_MAX_BACKOFF_MILLIS);
+		double fraction;
+		synchronized (random) {
+			fraction = random.nextDouble();
+		}
+		return (long) (limit * (0.5 + fraction / 2));
+	}
+
+	private void depositRetry() {
+		retryBudget = Math.min(Constants.AUTOINGESTION_RETRY_RESERVE, retryBudget
+				+ Constants.AUTOINGESTION_RETRY_RATIO);
+	}
+}
@@ -26,11 +26,58 @@ public class Constants {
 	
 	public static final java.lang.String DATE_FORMAT ="yyyyMMdd";
 	
+	// how far back Apple keeps each report period type, counted from today
+	public static final int DAILY_REPORTS_AVAILABLE_DAYS = 30;
+	public static final int WEEKLY_REPORTS_AVAILABLE_WEEKS = 26;
+	public static final int MONTHLY_REPORTS_AVAILABLE_MONTHS = 12;
+	
+	// reports of the same vendor downloaded at the same time
+	public static final int MAX_CONCURRENT_REPORTS_PER_VENDOR = 4;
+	
+	// Autoingestion requests per second of a vendor, lowered while Apple throttles it
+	public static final double AUTOINGESTION_MAX_REQUESTS_PER_SECOND = 2;
+	public static final double AUTOINGESTION_MIN_REQUESTS_PER_SECOND = 0.1;
+	public static final double AUTOINGESTION_RATE_INCREASE = 0.1;
+	// attempts of a report, waiting twice as long after each failure
+	public static final int AUTOINGESTION_MAX_ATTEMPTS = 4;
+	public static final long AUTOINGESTION_BACKOFF_MILLIS = 1000;
+	public static final long AUTOINGESTION_MAX_BACKOFF_MILLIS = 30000;
+	// retries of a vendor allowed per request, on top of a fixed reserve
+	public static final double AUTOINGESTION_RETRY_RATIO = 0.2;
+	public static final int AUTOINGESTION_RETRY_RESERVE = 10;
+	
+	// local copy of the downloaded reports
+	public static final java.lang.String REPORT_CACHE_DIR_PROPERTY = "appstoresstats.ios.reportcache.dir";
+	public static final java.lang.String REPORT_CACHE_MAX_BYTES_PROPERTY = "appstoresstats.ios.reportcache.maxbytes";
+	public static final java.lang.String REPORT_CACHE_DEFAULT_DIR = "appstoresstats-reports";
+	public static final long REPORT_CACHE_DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+	// reports of today and yesterday may still change
+	public static final long RECENT_REPORT_CACHE_TTL = 60L * 60 * 1000;
+	// older temporary files were left by a write that never finished
+	public static final long REPORT_CACHE_TEMP_FILE_TTL = 60L * 60 * 1000;
+	// parsed reports kept in memory
+	public static final int PARSED_REPORTS_IN_MEMORY = 64;
+	
+	// shared http connection pool
+	public static final int HTTP_TIMEOUT_MILLIS = 30000;
+	public static final int HTTP_MAX_CONNECTIONS = 20;
+	public static final int HTTP_MAX_CONNECTIONS_PER_HOST = 8;
+	public static final long HTTP_KEEP_ALIVE_MILLIS = 30000;
+	
 	public static final java.lang.String HTTP_URL_APPLE_APP_GET ="https://itunes.apple.com/lookup";
 	
 	public static final java.lang.String ID_NAME ="id";
+	// apps asked for in one lookup request
+	public static final int LOOKUP_MAX_IDS = 200;
+	// app names and release dates kept in memory
+	public static final int APP_INFO_CACHE_SIZE = 1000;
+	public static final long APP_INFO_CACHE_TTL = 24L * 60 * 60 * 1000;
 	
 	public static final java.lang.String[] UPDATE_PRODUCT_TYPE_IDENTIFYER = new String[]{"7", "7F", "7T", "F7"};
 	
 	public static final java.lang.String HTTP_RSS_APP_INFO = "https://itunes.apple.com/es/rss/customerreviews/id={0}/sortBy=mostRecent/xml";
+	// {1} goes from 1 to RSS_REVIEWS_MAX_PAGES, {2} is the storefront country code
+	public static final java.lang.String HTTP_RSS_REVIEWS_PAGE = "https://itunes.apple.com/{2}/rss/customerreviews/page={1}/id={0}/sortBy=mostRecent/xml";
+	public static final java.lang.String DEFAULT_RSS_COUNTRY = "es";
+	public static final int RSS_REVIEWS_MAX_PAGES = 10;
 }
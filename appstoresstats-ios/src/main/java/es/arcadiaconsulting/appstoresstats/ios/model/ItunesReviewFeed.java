@@ -0,0 +1,51 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.model;
+
+import java.util.List;
+
+import es.arcadiaconsulting.appstoresstats.common.Rating;
+
+/**
+ * What the iTunes customer reviews feed of an app tells: its store URL and
+ * the reviews of the page
+ */
+public class ItunesReviewFeed {
+
+	private final String storeUrl;
+
+	private final List<Rating> ratings;
+
+	public ItunesReviewFeed(String storeUrl, List<Rating> ratings) {
+		this.storeUrl = storeUrl;
+		this.ratings = ratings;
+	}
+
+	/**
+	 * @return the App Store page of the app, null if the feed has no entries
+	 */
+	public String getStoreUrl() {
+		return storeUrl;
+	}
+
+	/**
+	 * @return the reviews from the newest to the oldest
+	 */
+	public List<Rating> getRatings() {
+		return ratings;
+	}
+
+}
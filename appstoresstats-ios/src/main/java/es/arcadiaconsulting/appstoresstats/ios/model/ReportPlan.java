@@ -0,0 +1,77 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Set of Autoingestion reports that covers a date range, computed before
+ * anything is downloaded. Requests are sorted by covered days.
+ */
+public class ReportPlan {
+
+	/**
+	 * Requested range, as days since 1970-01-01 (end already limited to the
+	 * last day with reports)
+	 */
+	private final int firstDay;
+
+	private final int lastDay;
+
+	private final List<ReportRequest> requests;
+
+	/**
+	 * True if some report covers days outside the requested range because
+	 * there was no finer report available for them
+	 */
+	private final boolean approximated;
+
+	public ReportPlan(int firstDay, int lastDay, List<ReportRequest> requests,
+			boolean approximated) {
+		super();
+		this.firstDay = firstDay;
+		this.lastDay = lastDay;
+		this.requests = Collections.unmodifiableList(requests);
+		this.approximated = approximated;
+	}
+
+	public int getFirstDay() {
+		return firstDay;
+	}
+
+	public int getLastDay() {
+		return lastDay;
+	}
+
+	public List<ReportRequest> getRequests() {
+		return requests;
+	}
+
+	public int size() {
+		return requests.size();
+	}
+
+	public boolean isApproximated() {
+		return approximated;
+	}
+
+	@Override
+	public String toString() {
+		return "ReportPlan" + requests + (approximated ? " (approximated)" : "");
+	}
+
+}
@@ -0,0 +1,86 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.model;
+
+/**
+ * A single Autoingestion report to download: the report period type
+ * ({@link Constants#DATE_TYPE_DAILY}, {@link Constants#DATE_TYPE_WEEDLY},
+ * {@link Constants#DATE_TYPE_MONTHLY} or {@link Constants#DATE_TYPE_YEARLY})
+ * and the report date sent to Apple, together with the days it covers.
+ */
+public class ReportRequest {
+
+	private final String dateType;
+
+	/**
+	 * Report date in {@link Constants#DATE_FORMAT}
+	 */
+	private final String reportDate;
+
+	/**
+	 * First and last covered day, as days since 1970-01-01
+	 */
+	private final int firstDay;
+
+	private final int lastDay;
+
+	public ReportRequest(String dateType, String reportDate, int firstDay, int lastDay) {
+		super();
+		this.dateType = dateType;
+		this.reportDate = reportDate;
+		this.firstDay = firstDay;
+		this.lastDay = lastDay;
+	}
+
+	public String getDateType() {
+		return dateType;
+	}
+
+	public String getReportDate() {
+		return reportDate;
+	}
+
+	public int getFirstDay() {
+		return firstDay;
+	}
+
+	public int getLastDay() {
+		return lastDay;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * dateType.hashCode() + reportDate.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ReportRequest)) {
+			return false;
+		}
+		ReportRequest other = (ReportRequest) obj;
+		return dateType.equals(other.dateType) && reportDate.equals(other.reportDate);
+	}
+
+	@Override
+	public String toString() {
+		return dateType + " " + reportDate;
+	}
+
+}
@@ -0,0 +1,109 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+/**
+ * A parsed vendor-wide Autoingestion report with its rows indexed by SKU and
+ * by Apple identifier, so the same download answers the queries of every
+ * app of the vendor.
+ *
+ * Rows are kept in a {@link SalesReportBatch}; beans are only built when
+ * they are asked for.
+ */
+public class SalesReport {
+
+	private final SalesReportBatch batch;
+
+	private List<AutoingestionBean> rows;
+
+	public SalesReport(List<AutoingestionBean> rows) {
+		this(toBatch(rows));
+	}
+
+	public SalesReport(SalesReportBatch batch) {
+		super();
+		this.batch = batch;
+	}
+
+	private static SalesReportBatch toBatch(List<AutoingestionBean> rows) {
+		SalesReportBatch.Builder builder = new SalesReportBatch.Builder(rows.size());
+		for (AutoingestionBean row : rows) {
+			builder.addBean(row);
+		}
+		return builder.build();
+	}
+
+	public SalesReportBatch getBatch() {
+		return batch;
+	}
+
+	public synchronized List<AutoingestionBean> getRows() {
+		if (rows == null) {
+			List<AutoingestionBean> beans = new ArrayList<AutoingestionBean>(batch.size());
+			for (int row = 0; row < batch.size(); row++) {
+				beans.add(batch.getBean(row));
+			}
+			rows = Collections.unmodifiableList(beans);
+		}
+		return rows;
+	}
+
+	public List<AutoingestionBean> getRowsBySku(String sku) {
+		return getBeans(batch.getRowsOfSku(sku));
+	}
+
+	public List<AutoingestionBean> getRowsByAppleIdentifier(String appleIdentifier) {
+		return getBeans(batch.getRowsOfAppleIdentifier(appleIdentifier));
+	}
+
+	private List<AutoingestionBean> getBeans(int[] rowIndexes) {
+		List<AutoingestionBean> beans = new ArrayList<AutoingestionBean>(rowIndexes.length);
+		for (int row : rowIndexes) {
+			beans.add(batch.getBean(row));
+		}
+		return beans;
+	}
+
+	/**
+	 * @return the Apple identifier of the SKU or null if it has no sales in
+	 *         this report
+	 */
+	public String getAppleIdentifier(String sku) {
+		return batch.getAppleIdentifierOfSku(sku);
+	}
+
+	/**
+	 * @return units of the SKU by country, without counting updates
+	 */
+	public List<UnitData> getUnits(String sku) {
+		List<UnitData> unitDataList = new Vector<UnitData>();
+		for (Map.Entry<String, Integer> country : batch.unitsByCountry(sku, true).entrySet()) {
+			unitDataList.add(new UnitData(country.getKey(), country.getValue().intValue()));
+		}
+		return unitDataList;
+	}
+
+	public int size() {
+		return batch.size();
+	}
+
+}
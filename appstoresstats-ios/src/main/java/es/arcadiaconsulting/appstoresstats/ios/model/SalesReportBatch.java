@@ -0,0 +1,441 @@
+/**
+* Copyright 2013 Arcadia Consulting C.B.
+*
+* Licensed under the Apache License, Version 2.0 (the "License");
+* you may not use this file except in compliance with the License.
+* You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+**/
+package es.arcadiaconsulting.appstoresstats.ios.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import es.arcadiaconsulting.appstoresstats.common.DayHelper;
+
+/**
+ * Rows of an Autoingestion Sales report stored by column.
+ *
+ * Numbers are kept in primitive arrays, dates as days since 1970-01-01 and
+ * every text column as a code of a dictionary shared by the whole report,
+ * so repeated values such as countries, currencies, SKUs or titles are
+ * stored once. Aggregations run over the arrays without creating
+ * {@link AutoingestionBean}s.
+ */
+public class SalesReportBatch {
+
+	/**
+	 * Day of the rows whose date could not be read
+	 */
+	public static final int NO_DAY = Integer.MIN_VALUE;
+
+	// text columns, as indexes in texts
+	private static final int PROVIDER = 0;
+	private static final int PROVIDER_COUNTRY = 1;
+	private static final int SKU = 2;
+	private static final int DEVELOPER = 3;
+	private static final int TITLE = 4;
+	private static final int VERSION = 5;
+	private static final int PRODUCT_TYPE = 6;
+	private static final int CUSTOMER_CURRENCY = 7;
+	private static final int COUNTRY = 8;
+	private static final int PROCEEDS_CURRENCY = 9;
+	private static final int APPLE_IDENTIFIER = 10;
+	private static final int PROMO_CODE = 11;
+	private static final int PARENT_IDENTIFIER = 12;
+	private static final int SUBSCRIPTION = 13;
+	private static final int PERIOD = 14;
+	private static final int TEXT_COLUMNS = 15;
+
+	private final int size;
+
+	private final String[] dictionary;
+
+	private final int[][] texts;
+
+	private final int[] units;
+
+	private final int[] proceeds;
+
+	private final float[] customerPrice;
+
+	private final int[] beginDay;
+
+	private final int[] endDay;
+
+	// dictionary codes of the update product types
+	private final boolean[] updateCodes;
+
+	private final Map<String, int[]> rowsBySku;
+
+	private final Map<String, int[]> rowsByAppleIdentifier;
+
+	private SalesReportBatch(Builder builder) {
+		size = builder.size;
+		dictionary = builder.dictionaryValues.toArray(new String[builder.dictionaryValues.size()]);
+		texts = new int[TEXT_COLUMNS][];
+		for (int column = 0; column < TEXT_COLUMNS; column++) {
+			texts[column] = trim(builder.texts[column], size);
+		}
+		units = trim(builder.units, size);
+		proceeds = trim(builder.proceeds, size);
+		customerPrice = new float[size];
+		System.arraycopy(builder.customerPrice, 0, customerPrice, 0, size);
+		beginDay = trim(builder.beginDay, size);
+		endDay = trim(builder.endDay, size);
+
+		updateCodes = new boolean[dictionary.length];
+		for (int i = 0; i < Constants.UPDATE_PRODUCT_TYPE_IDENTIFYER.length; i++) {
+			Integer code = builder.dictionary.get(Constants.UPDATE_PRODUCT_TYPE_IDENTIFYER[i]);
+			if (code != null) {
+				updateCodes[code.intValue()] = true;
+			}
+		}
+
+		rowsBySku = buildIndex(texts[SKU]);
+		rowsByAppleIdentifier = buildIndex(texts[APPLE_IDENTIFIER]);
+	}
+
+	/**
+	 * @return rows of every value of a text column, in report order
+	 */
+	private Map<String, int[]> buildIndex(int[] codes) {
+		int[] rowCount = new int[dictionary.length];
+		for (int row = 0; row < size; row++) {
+			if (codes[row] >= 0) {
+				rowCount[codes[row]]++;
+			}
+		}
+		Map<String, int[]> index = new HashMap<String, int[]>();
+		int[] filled = new int[dictionary.length];
+		for (int row = 0; row < size; row++) {
+			int code = codes[row];
+			if (code < 0) {
+				continue;
+			}
+			int[] rows = index.get(dictionary[code]);
+			if (rows == null) {
+				rows = new int[rowCount[code]];
+				index.put(dictionary[code], rows);
+			}
+			rows[filled[code]++] = row;
+		}
+		return index;
+	}
+
+	private static int[] trim(int[] values, int size) {
+		int[] trimmed = new int[size];
+		System.arraycopy(values, 0, trimmed, 0, size);
+		return trimmed;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String getSku(int row) {
+		return text(SKU, row);
+	}
+
+	public String getAppleIdentifier(int row) {
+		return text(APPLE_IDENTIFIER, row);
+	}
+
+	public String getCountryCode(int row) {
+		return text(COUNTRY, row);
+	}
+
+	public String getProductTypeIdentifier(int row) {
+		return text(PRODUCT_TYPE, row);
+	}
+
+	public int getUnits(int row) {
+		return units[row];
+	}
+
+	public int getProceeds(int row) {
+		return proceeds[row];
+	}
+
+	public float getCustomerPrice(int row) {
+		return customerPrice[row];
+	}
+
+	/**
+	 * @return begin date as days since 1970-01-01, or {@link #NO_DAY}
+	 */
+	public int getBeginDay(int row) {
+		return beginDay[row];
+	}
+
+	public int getEndDay(int row) {
+		return endDay[row];
+	}
+
+	public boolean isUpdate(int row) {
+		int code = texts[PRODUCT_TYPE][row];
+		return code >= 0 && updateCodes[code];
+	}
+
+	/**
+	 * @return indexes of the rows of the SKU, in report order
+	 */
+	public int[] getRowsOfSku(String sku) {
+		int[] rows = rowsBySku.get(sku);
+		return rows == null ? new int[0] : rows.clone();
+	}
+
+	/**
+	 * @return indexes of the rows of the Apple identifier, in report order
+	 */
+	public int[] getRowsOfAppleIdentifier(String appleIdentifier) {
+		int[] rows = rowsByAppleIdentifier.get(appleIdentifier);
+		return rows == null ? new int[0] : rows.clone();
+	}
+
+	/**
+	 * @return Apple identifier of the SKU or null if it is not in the report
+	 */
+	public String getAppleIdentifierOfSku(String sku) {
+		int[] rows = rowsBySku.get(sku);
+		return rows == null ? null : getAppleIdentifier(rows[0]);
+	}
+
+	/**
+	 * @return units of the SKU added by country code, in the order countries
+	 *         appear in the report
+	 */
+	public Map<String, Integer> unitsByCountry(String sku, boolean excludeUpdates) {
+		Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+		int[] rows = rowsBySku.get(sku);
+		if (rows == null) {
+			return result;
+		}
+		int[] countryUnits = new int[dictionary.length];
+		boolean[] seen = new boolean[dictionary.length];
+		int[] countries = new int[rows.length];
+		int countryCount = 0;
+		int[] productTypes = texts[PRODUCT_TYPE];
+		int[] countryCodes = texts[COUNTRY];
+		for (int row : rows) {
+			if (excludeUpdates && updateCodes[productTypes[row]]) {
+				continue;
+			}
+			int country = countryCodes[row];
+			if (!seen[country]) {
+				seen[country] = true;
+				countries[countryCount++] = country;
+			}
+			countryUnits[country] += units[row];
+		}
+		for (int i = 0; i < countryCount; i++) {
+			result.put(dictionary[countries[i]], Integer.valueOf(countryUnits[countries[i]]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return total units of the SKU
+	 */
+	public int totalUnits(String sku, boolean excludeUpdates) {
+		int[] rows = rowsBySku.get(sku);
+		if (rows == null) {
+			return 0;
+		}
+		int total = 0;
+		int[] productTypes = texts[PRODUCT_TYPE];
+		for (int row : rows) {
+			if (!excludeUpdates || !updateCodes[productTypes[row]]) {
+				total += units[row];
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Builds a bean with the values of a row
+	 */
+	public AutoingestionBean getBean(int row) {
+		AutoingestionBean bean = new AutoingestionBean();
+		bean.setProvider(text(PROVIDER, row));
+		bean.setProviderCountry(text(PROVIDER_COUNTRY, row));
+		bean.setSku(text(SKU, row));
+		bean.setDeveloper(text(DEVELOPER, row));
+		bean.setTitle(text(TITLE, row));
+		bean.setVersion(text(VERSION, row));
+		bean.setProductTypeIdentifier(text(PRODUCT_TYPE, row));
+		bean.setUnits(units[row]);
+		bean.setDeveloperProceds(proceeds[row]);
+		bean.setBeginDate(toDate(beginDay[row]));
+		bean.setEndDate(toDate(endDay[row]));
+		bean.setCustomerCurrency(text(CUSTOMER_CURRENCY, row));
+		bean.setCountryCode(text(COUNTRY, row));
+		bean.setCurrencyOfProcess(text(PROCEEDS_CURRENCY, row));
+		bean.setAppleIdentifier(text(APPLE_IDENTIFIER, row));
+		bean.setCustomerPrice(customerPrice[row]);
+		bean.setPromoCode(text(PROMO_CODE, row));
+		bean.setParentIdentifier(text(PARENT_IDENTIFIER, row));
+		bean.setSubscription(text(SUBSCRIPTION, row));
+		bean.setPeriod(text(PERIOD, row));
+		return bean;
+	}
+
+	private String text(int column, int row) {
+		int code = texts[column][row];
+		return code < 0 ? null : dictionary[code];
+	}
+
+	private static Date toDate(int epochDay) {
+		if (epochDay == NO_DAY) {
+			return null;
+		}
+		return DayHelper.toDate(epochDay);
+	}
+
+	/**
+	 * Adds rows one by one. SKU, product type and country code are required,
+	 * other text values may be null
+	 */
+	public static class Builder {
+
+		private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+
+		private final List<String> dictionaryValues = new ArrayList<String>();
+
+		private int size;
+
+		private int[][] texts = new int[TEXT_COLUMNS][];
+
+		private int[] units;
+
+		private int[] proceeds;
+
+		private float[] customerPrice;
+
+		private int[] beginDay;
+
+		private int[] endDay;
+
+		public Builder() {
+			this(64);
+		}
+
+		public Builder(int expectedRows) {
+			int capacity = Math.max(expectedRows, 1);
+			for (int column = 0; column < TEXT_COLUMNS; column++) {
+				texts[column] = new int[capacity];
+			}
+			units = new int[capacity];
+			proceeds = new int[capacity];
+			customerPrice = new float[capacity];
+			beginDay = new int[capacity];
+			endDay = new int[capacity];
+		}
+
+		public Builder addRow(String provider, String providerCountry, String sku,
+				String developer, String title, String version, String productTypeIdentifier,
+				int units, int proceeds, int beginDay, int endDay, String customerCurrency,
+				String countryCode, String currencyOfProceeds, String appleIdentifier,
+				float customerPrice, String promoCode, String parentIdentifier,
+				String subscription, String period) {
+			if (sku == null || productTypeIdentifier == null || countryCode == null) {
+				throw new IllegalArgumentException("Row without SKU, product type or country");
+			}
+			if (size == this.units.length) {
+				grow();
+			}
+			texts[PROVIDER][size] = code(provider);
+			texts[PROVIDER_COUNTRY][size] = code(providerCountry);
+			texts[SKU][size] = code(sku);
+			texts[DEVELOPER][size] = code(developer);
+			texts[TITLE][size] = code(title);
+			texts[VERSION][size] = code(version);
+			texts[PRODUCT_TYPE][size] = code(productTypeIdentifier);
+			texts[CUSTOMER_CURRENCY][size] = code(customerCurrency);
+			texts[COUNTRY][size] = code(countryCode);
+			texts[PROCEEDS_CURRENCY][size] = code(currencyOfProceeds);
+			texts[APPLE_IDENTIFIER][size] = code(appleIdentifier);
+			texts[PROMO_CODE][size] = code(promoCode);
+			texts[PARENT_IDENTIFIER][size] = code(parentIdentifier);
+			texts[SUBSCRIPTION][size] = code(subscription);
+			texts[PERIOD][size] = code(period);
+			this.units[size] = units;
+			this.proceeds[size] = proceeds;
+			this.customerPrice[size] = customerPrice;
+			this.beginDay[size] = beginDay;
+			this.endDay[size] = endDay;
+			size++;
+			return this;
+		}
+
+		/**
+		 * Adds the values of a bean
+		 */
+		public Builder addBean(AutoingestionBean bean) {
+			return addRow(bean.getProvider(), bean.getProviderCountry(), bean.getSku(),
+					bean.getDeveloper(), bean.getTitle(), bean.getVersion(),
+					bean.getProductTypeIdentifier(), bean.getUnits(), bean.getDeveloperProceds(),
+					toEpochDay(bean.getBeginDate()), toEpochDay(bean.getEndDate()),
+					bean.getCustomerCurrency(), bean.getCountryCode(),
+					bean.getCurrencyOfProcess(), bean.getAppleIdentifier(),
+					bean.getCustomerPrice(), bean.getPromoCode(), bean.getParentIdentifier(),
+					bean.getSubscription(), bean.getPeriod());
+		}
+
+		public SalesReportBatch build() {
+			return new SalesReportBatch(this);
+		}
+
+		private int code(String value) {
+			if (value == null) {
+				return -1;
+			}
+			Integer code = dictionary.get(value);
+			if (code == null) {
+				code = Integer.valueOf(dictionaryValues.size());
+				dictionary.put(value, code);
+				dictionaryValues.add(value);
+			}
+			return code.intValue();
+		}
+
+		private void grow() {
+			int capacity = units.length * 2;
+			for (int column = 0; column < TEXT_COLUMNS; column++) {
+				texts[column] = copyOf(texts[column], capacity);
+			}
+			units = copyOf(units, capacity);
+			proceeds = copyOf(proceeds, capacity);
+			float[] newPrice = new float[capacity];
+			System.arraycopy(customerPrice, 0, newPrice, 0, size);
+			customerPrice = newPrice;
+			beginDay = copyOf(beginDay, capacity);
+			endDay = copyOf(endDay, capacity);
+		}
+
+		private int[] copyOf(int[] values, int capacity) {
+			int[] copy = new int[capacity];
+			System.arraycopy(values, 0, copy, 0, size);
+			return copy;
+		}
+
+		private static int toEpochDay(Date date) {
+			if (date == null) {
+				return NO_DAY;
+			}
+			return DayHelper.toEpochDay(date);
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import es.arcadiaconsulting.appstoresstats.ios.model.AppInfo;
+
+public class AppInfoServiceTest extends TestCase{
+
+	private final List<String> lookups = Collections.synchronizedList(new ArrayList<String>());
+
+	private static String app(String id, String name){
+		return "{\"trackId\":" + id + ",\"trackName\":\"" + name + "\",\"releaseDate\":\"2013-06-18T07:00:00Z\"}";
+	}
+
+	private class FakeService extends AppInfoService {
+		volatile boolean fail;
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch proceed;
+
+		FakeService(int maxEntries, long ttl){
+			super(maxEntries, ttl);
+		}
+
+		@Override
+		protected String lookup(String appleIds) throws IOException {
+			lookups.add(appleIds);
+			started.countDown();
+			if(proceed!=null){
+				try {
+					proceed.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e.getMessage());
+				}
+			}
+			if(fail)
+				throw new IOException("offline");
+			if(Arrays.asList(appleIds.split(",")).contains("666"))
+				return "{\"errorMessage\":\"Invalid value(s) for key(s): [id]\"}";
+			StringBuilder results = new StringBuilder();
+			for (String id : appleIds.split(",")) {
+				if(id.equals("3"))
+					continue;
+				if(results.length()>0)
+					results.append(',');
+				results.append(app(id, "App " + id));
+			}
+			return "{\"results\":[" + results + "]}";
+		}
+	}
+
+	public void testBatchAndCache(){
+		FakeService service = new FakeService(10, 60000);
+		Map<String, AppInfo> infos = service.getAppInfos(Arrays.asList("1", "2", "3"));
+		assertEquals(Arrays.asList("1,2,3"), lookups);
+		assertEquals("App 2", infos.get("2").getAppName());
+		assertTrue(infos.get("1").isDeployed());
+		assertNotNull(infos.get("1").getReleaseDate());
+		assertFalse(infos.get("3").isDeployed());
+
+		assertEquals("App 1", service.getAppInfo("1").getAppName());
+		service.getAppInfos(Arrays.asList("2", "4"));
+		assertEquals(Arrays.asList("1,2,3", "4"), lookups);
+	}
+
+	public void testExpiredAndEvicted() throws InterruptedException{
+		FakeService service = new FakeService(1, 60000);
+		service.getAppInfo("1");
+		service.getAppInfo("2");
+		service.getAppInfo("1");
+		assertEquals(Arrays.asList("1", "2", "1"), lookups);
+
+		lookups.clear();
+		service = new FakeService(10, 0);
+		service.getAppInfo("1");
+		Thread.sleep(5);
+		service.getAppInfo("1");
+		assertEquals(Arrays.asList("1", "1"), lookups);
+	}
+
+	public void testFailureNotCached(){
+		FakeService service = new FakeService(10, 60000);
+		service.fail = true;
+		assertNull(service.getAppInfo("1"));
+		service.fail = false;
+		assertNotNull(service.getAppInfo("1"));
+		assertEquals(2, lookups.size());
+	}
+
+	public void testConcurrentLookupsCoalesced() throws Exception{
+		final FakeService service = new FakeService(10, 60000);
+		service.proceed = new CountDownLatch(1);
+		final AppInfo[] other = new AppInfo[1];
+		Thread first = new Thread() {
+			@Override
+			public void run() {
+				service.getAppInfo("1");
+			}
+		};
+		first.start();
+		service.started.await();
+		Thread second = new Thread() {
+			@Override
+			public void run() {
+				other[0] = service.getAppInfo("1");
+			}
+		};
+		second.start();
+		// the second thread waits for the lookup of the first one
+		second.join(200);
+		assertTrue(second.isAlive());
+		service.proceed.countDown();
+		first.join();
+		second.join();
+		assertEquals("App 1", other[0].getAppName());
+		assertEquals(1, lookups.size());
+	}
+
+	public void testInvalidIdsNotSent(){
+		FakeService service = new FakeService(10, 60000);
+		Map<String, AppInfo> infos = service.getAppInfos(Arrays.asList("1", "null", "2"));
+		assertEquals(Arrays.asList("1,2"), lookups);
+		assertEquals(2, infos.size());
+		assertFalse(infos.containsKey("null"));
+		assertNull(service.getAppInfo("null"));
+		assertEquals(1, lookups.size());
+	}
+
+	public void testRejectedBatchLookedUpOneByOne(){
+		FakeService service = new FakeService(10, 60000);
+		Map<String, AppInfo> infos = service.getAppInfos(Arrays.asList("1", "666", "2"));
+		assertEquals(Arrays.asList("1,666,2", "1", "666", "2"), lookups);
+		assertEquals("App 1", infos.get("1").getAppName());
+		assertEquals("App 2", infos.get("2").getAppName());
+		assertFalse(infos.containsKey("666"));
+		// the good ids are cached, the rejected one is not
+		lookups.clear();
+		service.getAppInfos(Arrays.asList("1", "2", "666"));
+		assertEquals(Arrays.asList("666"), lookups);
+	}
+}
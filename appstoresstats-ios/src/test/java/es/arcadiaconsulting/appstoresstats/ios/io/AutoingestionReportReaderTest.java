@@ -0,0 +1,76 @@
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import es.arcadiaconsulting.appstoresstats.ios.model.AutoingestionBean;
+import junit.framework.TestCase;
+
+public class AutoingestionReportReaderTest extends TestCase{
+
+	private static final String HEADER = "Provider\tProvider Country\tSKU\tDeveloper\tTitle\tVersion\tProduct Type Identifier\tUnits\tDeveloper Proceeds\tBegin Date\tEnd Date\tCustomer Currency\tCountry Code\tCurrency of Proceeds\tApple Identifier\tCustomer Price\tPromo Code\tParent Identifier\tSubscription\tPeriod";
+
+	private static final String ROW_ES = "APPLE\tUS\tSKU1\tArcadia\tFiestas\t1.2.3\t1F\t12\t0\t10/13/2013\t10/13/2013\tEUR\tES\tEUR\t662257575\t0\t \t \t \t ";
+
+	private static final String ROW_US = "APPLE\tUS\tSKU1\tArcadia\tFiestas\t1.2.3\t7\t3\t0\t10/13/2013\t10/13/2013\tUSD\tUS\tUSD\t662257575\t0.99";
+
+	private static byte[] gzip(String text) throws IOException{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GZIPOutputStream out = new GZIPOutputStream(bytes);
+		out.write(text.getBytes("UTF-8"));
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static List<AutoingestionBean> read(String text) throws IOException{
+		final List<AutoingestionBean> beans = new ArrayList<AutoingestionBean>();
+		new AutoingestionReportReader(new ByteArrayInputStream(gzip(text))).read(new AutoingestionReportReader.RowHandler() {
+			@Override
+			public void handleRow(AutoingestionReportReader.Row row) {
+				beans.add(row.toBean());
+			}
+		});
+		return beans;
+	}
+
+	public void testSameBeansAsSplit() throws IOException{
+		List<AutoingestionBean> beans = read(HEADER + "\n" + ROW_ES + "\r\n\n" + ROW_US + "\n");
+		assertEquals(2, beans.size());
+		String[] rows = new String[]{ROW_ES, ROW_US};
+		for (int i = 0; i < rows.length; i++) {
+			AutoingestionBean expected = Autoingestion.buildAutogestionBean(rows[i].trim().split("\t"));
+			AutoingestionBean bean = beans.get(i);
+			assertEquals(expected.getSku(), bean.getSku());
+			assertEquals(expected.getProductTypeIdentifier(), bean.getProductTypeIdentifier());
+			assertEquals(expected.getUnits(), bean.getUnits());
+			assertEquals(expected.getBeginDate(), bean.getBeginDate());
+			assertEquals(expected.getEndDate(), bean.getEndDate());
+			assertEquals(expected.getCountryCode(), bean.getCountryCode());
+			assertEquals(expected.getAppleIdentifier(), bean.getAppleIdentifier());
+			assertEquals(expected.getCustomerPrice(), bean.getCustomerPrice());
+			assertEquals(expected.getPromoCode(), bean.getPromoCode());
+			assertEquals(expected.getPeriod(), bean.getPeriod());
+		}
+		// rows of the same day share the date
+		assertSame(beans.get(0).getBeginDate(), beans.get(1).getEndDate());
+	}
+
+	public void testLastLineWithoutNewLine() throws IOException{
+		assertEquals(1, read(HEADER + "\n" + ROW_US).size());
+		assertEquals(0, read(HEADER).size());
+	}
+
+	public void testIncorrectUnits() throws IOException{
+		try {
+			read(HEADER + "\n" + ROW_US.replace("\t3\t", "\tx\t"));
+			fail();
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.ByteArrayInputStream;
+import java.text.SimpleDateFormat;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.stream.XMLStreamException;
+
+import junit.framework.TestCase;
+
+import es.arcadiaconsulting.appstoresstats.common.Rating;
+import es.arcadiaconsulting.appstoresstats.ios.model.ItunesReviewFeed;
+
+public class ItunesReviewFeedReaderTest extends TestCase{
+
+	private static final String FEED = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+			+ "<feed xmlns:im=\"http://itunes.apple.com/rss\" xmlns=\"http://www.w3.org/2005/Atom\" xml:lang=\"es\">\n"
+			+ "\t<id>https://itunes.apple.com/es/rss/customerreviews/id=662257575/sortBy=mostRecent/xml</id>\n"
+			+ "\t<title>iTunes Store: Opiniones de clientes</title>\n"
+			+ "\t<updated>2013-07-02T02:13:49-07:00</updated>\n"
+			+ "\t<entry>\n"
+			+ "\t\t<updated>2013-07-02T02:13:49-07:00</updated>\n"
+			+ "\t\t<id im:id=\"662257575\">\n\t\t\thttps://itunes.apple.com/es/app/app/id662257575?mt=8&amp;uo=2\n\t\t</id>\n"
+			+ "\t\t<title>App - Arcadia</title>\n"
+			+ "\t\t<im:name>App</im:name>\n"
+			+ "\t</entry>\n"
+			+ "\t<entry>\n"
+			+ "\t\t<id>881370513</id>\n"
+			+ "\t\t<title>Muy útil</title>\n"
+			+ "\t\t<content type=\"text\">Me ayuda mucho</content>\n"
+			+ "\t\t<im:voteSum>0</im:voteSum>\n"
+			+ "\t\t<im:rating>5</im:rating>\n"
+			+ "\t\t<im:version>1.2.3</im:version>\n"
+			+ "\t\t<author><name>Pepe</name><uri>https://itunes.apple.com/es/reviews/id1</uri></author>\n"
+			+ "\t\t<updated>2013-06-18T03:48:00-07:00</updated>\n"
+			+ "\t</entry>\n"
+			+ "\t<entry>\n"
+			+ "\t\t<id>881370000</id>\n"
+			+ "\t\t<title><![CDATA[Regular]]></title>\n"
+			+ "\t\t<im:rating>3</im:rating>\n"
+			+ "\t\t<im:version>1.2.2</im:version>\n"
+			+ "\t\t<updated>2013-06-10T10:00:00-07:00</updated>\n"
+			+ "\t</entry>\n"
+			+ "</feed>\n";
+
+	private ItunesReviewFeed read(String feed, String charset) throws Exception{
+		return ItunesReviewFeedReader.read(new ByteArrayInputStream(feed.getBytes(charset)));
+	}
+
+	public void testRead() throws Exception{
+		ItunesReviewFeed feed = read(FEED, "UTF-8");
+		assertEquals("https://itunes.apple.com/es/app/app/id662257575?mt=8&uo=2", feed.getStoreUrl());
+
+		List<Rating> ratings = feed.getRatings();
+		assertEquals(2, ratings.size());
+		Rating rating = ratings.get(0);
+		assertEquals("881370513", rating.getId());
+		assertEquals("Muy útil", rating.getOpinion());
+		assertEquals(5, rating.getRate());
+		assertEquals("1.2.3", rating.getAppVersion());
+		assertEquals("Pepe", rating.getUser());
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+		assertEquals(format.parse("2013-06-18 03:48:00"), rating.getDate());
+
+		assertEquals("Regular", ratings.get(1).getOpinion());
+		assertNull(ratings.get(1).getUser());
+	}
+
+	public void testEncodingOfDeclaration() throws Exception{
+		String feed = FEED.replace("encoding=\"utf-8\"", "encoding=\"ISO-8859-1\"");
+		assertEquals("Muy útil", read(feed, "ISO-8859-1").getRatings().get(0).getOpinion());
+	}
+
+	public void testEmptyFeed() throws Exception{
+		ItunesReviewFeed feed = read("<feed xmlns=\"http://www.w3.org/2005/Atom\"><id>x</id></feed>", "UTF-8");
+		assertNull(feed.getStoreUrl());
+		assertTrue(feed.getRatings().isEmpty());
+	}
+
+	public void testIncorrectRating() throws Exception{
+		try {
+			read(FEED.replace("<im:rating>5</im:rating>", "<im:rating>five</im:rating>"), "UTF-8");
+			fail();
+		} catch (XMLStreamException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class ReportCacheTest extends TestCase{
+
+	private File directory;
+
+	@Override
+	protected void setUp() throws IOException{
+		directory = File.createTempFile("reportcache", "");
+		directory.delete();
+	}
+
+	@Override
+	protected void tearDown(){
+		File[] files = directory.listFiles();
+		if(files != null){
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	public void testPutAndGet(){
+		ReportCache cache = new ReportCache(directory, 1024);
+		assertNull(cache.get("80000000", "Sales", "Daily", "Summary", "20130101"));
+		byte[] report = new byte[]{1, 2, 3};
+		cache.put("80000000", "Sales", "Daily", "Summary", "20130101", report);
+		assertTrue(Arrays.equals(report, cache.get("80000000", "Sales", "Daily", "Summary", "20130101")));
+		assertNull(cache.get("80000001", "Sales", "Daily", "Summary", "20130101"));
+		assertNull(cache.get("80000000", "Sales", "Weekly", "Summary", "20130101"));
+	}
+
+	public void testEvictLeastRecentlyRead(){
+		// room for two reports of 100 bytes plus the header
+		ReportCache cache = new ReportCache(directory, 250);
+		cache.put("80000000", "Sales", "Daily", "Summary", "20130101", new byte[100]);
+		cache.put("80000000", "Sales", "Daily", "Summary", "20130102", new byte[100]);
+		cache.getFile("80000000", "Sales", "Daily", "Summary", "20130101").setLastModified(10000);
+		cache.getFile("80000000", "Sales", "Daily", "Summary", "20130102").setLastModified(20000);
+		cache.put("80000000", "Sales", "Daily", "Summary", "20130103", new byte[100]);
+		assertNull(cache.get("80000000", "Sales", "Daily", "Summary", "20130101"));
+		assertNotNull(cache.get("80000000", "Sales", "Daily", "Summary", "20130102"));
+		assertNotNull(cache.get("80000000", "Sales", "Daily", "Summary", "20130103"));
+	}
+
+	public void testStaleTempFilesDeleted() throws IOException{
+		ReportCache cache = new ReportCache(directory, 1024);
+		cache.put("80000000", "Sales", "Daily", "Summary", "20130101", new byte[10]);
+		File stale = File.createTempFile("report", ".tmp", directory);
+		stale.setLastModified(10000);
+		File writing = File.createTempFile("report", ".tmp", directory);
+		cache.put("80000000", "Sales", "Daily", "Summary", "20130102", new byte[10]);
+		assertFalse(stale.exists());
+		assertTrue(writing.exists());
+		assertNotNull(cache.get("80000000", "Sales", "Daily", "Summary", "20130101"));
+	}
+
+}
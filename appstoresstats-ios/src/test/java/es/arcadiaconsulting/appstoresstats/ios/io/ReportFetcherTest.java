@@ -0,0 +1,187 @@
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import es.arcadiaconsulting.appstoresstats.ios.model.AutoingestionBean;
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+import es.arcadiaconsulting.appstoresstats.ios.model.ReportPlan;
+import es.arcadiaconsulting.appstoresstats.ios.model.ReportRequest;
+import es.arcadiaconsulting.appstoresstats.ios.model.SalesReport;
+
+public class ReportFetcherTest extends TestCase{
+
+	private final AtomicInteger running = new AtomicInteger();
+
+	private final AtomicInteger maxRunning = new AtomicInteger();
+
+	private static ReportPlan plan(int size){
+		List<ReportRequest> requests = new ArrayList<ReportRequest>();
+		for (int i = 0; i < size; i++) {
+			requests.add(new ReportRequest(Constants.DATE_TYPE_DAILY, "2013060" + i, i, i));
+		}
+		return new ReportPlan(0, size - 1, requests, false);
+	}
+
+	private static SalesReport report(){
+		return new SalesReport(Collections.<AutoingestionBean>emptyList());
+	}
+
+	private void enter(){
+		int now = running.incrementAndGet();
+		int max;
+		while (now > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, now)) {
+			// retry
+		}
+	}
+
+	/**
+	 * Waits like a download that does not notice the interrupt
+	 */
+	private static void awaitUninterruptibly(CountDownLatch latch){
+		boolean interrupted = false;
+		while (true) {
+			try {
+				latch.await();
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public void testPlanOrder() throws Exception{
+		ReportPlan plan = plan(6);
+		final List<SalesReport> expected = new ArrayList<SalesReport>();
+		for (int i = 0; i < plan.size(); i++) {
+			expected.add(report());
+		}
+		List<SalesReport> reports = ReportFetcher.fetchReports(plan, "order",
+				new ReportFetcher.ReportDownloader() {
+					public SalesReport download(ReportRequest request) {
+						// later requests finish first
+						try {
+							Thread.sleep(10 * (6 - request.getFirstDay()));
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return expected.get(request.getFirstDay());
+					}
+				});
+		assertEquals(expected.size(), reports.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertSame(expected.get(i), reports.get(i));
+		}
+	}
+
+	public void testMissingReportFails() throws Exception{
+		try {
+			ReportFetcher.fetchReports(plan(3), "missing", new ReportFetcher.ReportDownloader() {
+				public SalesReport download(ReportRequest request) {
+					return request.getFirstDay() == 1 ? null : report();
+				}
+			});
+			fail();
+		} catch (DateHelperException e) {
+			// expected
+		}
+	}
+
+	public void testDownloadErrorFails() throws Exception{
+		try {
+			ReportFetcher.fetchReports(plan(3), "error", new ReportFetcher.ReportDownloader() {
+				public SalesReport download(ReportRequest request) {
+					if (request.getFirstDay() == 2) {
+						throw new IllegalStateException("broken report");
+					}
+					return report();
+				}
+			});
+			fail();
+		} catch (DateHelperException e) {
+			// expected
+		}
+	}
+
+	public void testConcurrencyBound() throws Exception{
+		ReportFetcher.fetchReports(plan(12), "bound", new ReportFetcher.ReportDownloader() {
+			public SalesReport download(ReportRequest request) {
+				enter();
+				try {
+					Thread.sleep(20);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					running.decrementAndGet();
+				}
+				return report();
+			}
+		});
+		assertTrue(maxRunning.get() > 1);
+		assertTrue(maxRunning.get() <= Constants.MAX_CONCURRENT_REPORTS_PER_VENDOR);
+	}
+
+	public void testCancelledDownloadsKeepTheirSlot() throws Exception{
+		final CountDownLatch stuck = new CountDownLatch(1);
+		final int slots = Constants.MAX_CONCURRENT_REPORTS_PER_VENDOR;
+		final CountDownLatch started = new CountDownLatch(slots - 1);
+		final ReportFetcher.ReportDownloader downloader = new ReportFetcher.ReportDownloader() {
+			public SalesReport download(ReportRequest request) {
+				if (request.getFirstDay() == 0) {
+					// fails once the other downloads are running
+					awaitUninterruptibly(started);
+					return null;
+				}
+				enter();
+				started.countDown();
+				try {
+					awaitUninterruptibly(stuck);
+				} finally {
+					running.decrementAndGet();
+				}
+				return report();
+			}
+		};
+		try {
+			ReportFetcher.fetchReports(plan(slots), "cancel", downloader);
+			fail();
+		} catch (DateHelperException e) {
+			// the other downloads are cancelled but still running
+		}
+
+		ExecutorService caller = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<SalesReport>> next = caller.submit(new Callable<List<SalesReport>>() {
+				public List<SalesReport> call() throws Exception {
+					List<ReportRequest> requests = new ArrayList<ReportRequest>();
+					for (int i = 1; i <= slots; i++) {
+						requests.add(new ReportRequest(Constants.DATE_TYPE_DAILY, "2013070" + i, i, i));
+					}
+					return ReportFetcher.fetchReports(new ReportPlan(1, slots, requests, false),
+							"cancel", downloader);
+				}
+			});
+			Thread.sleep(200);
+			assertTrue(maxRunning.get() <= slots);
+			stuck.countDown();
+			assertEquals(slots, next.get(5, TimeUnit.SECONDS).size());
+			assertTrue(maxRunning.get() <= slots);
+		} finally {
+			stuck.countDown();
+			caller.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import es.arcadiaconsulting.appstoresstats.common.DayHelper;
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+import es.arcadiaconsulting.appstoresstats.ios.model.ReportPlan;
+import es.arcadiaconsulting.appstoresstats.ios.model.ReportRequest;
+import junit.framework.TestCase;
+
+public class ReportPlannerTest extends TestCase{
+
+	// wednesday
+	private static final Date TODAY = date(2013, 10, 16);
+
+	private static Date date(int year, int month, int day){
+		return new GregorianCalendar(year, month - 1, day).getTime();
+	}
+
+	private static void assertRequest(String dateType, String reportDate, ReportRequest request){
+		assertEquals(dateType, request.getDateType());
+		assertEquals(reportDate, request.getReportDate());
+	}
+
+	public void testEpochDays(){
+		assertEquals(0, DayHelper.toEpochDay(1970, 1, 1));
+		assertEquals(3, DayHelper.dayOfWeek(0));
+		int day = DayHelper.toEpochDay(2012, 2, 29);
+		int[] ymd = DayHelper.fromEpochDay(day);
+		assertEquals(2012, ymd[0]);
+		assertEquals(2, ymd[1]);
+		assertEquals(29, ymd[2]);
+		assertEquals(day + 1, DayHelper.toEpochDay(2012, 3, 1));
+		assertEquals(DayHelper.toEpochDay(1969, 12, 31), -1);
+		// midnight and the last minute fall in the same day, in any time zone
+		TimeZone madrid = TimeZone.getTimeZone("Europe/Madrid");
+		assertEquals(day, DayHelper.toEpochDay(DayHelper.toDate(day, madrid), madrid));
+		assertEquals(day, DayHelper.toEpochDay(DayHelper.toDate(day + 1, madrid).getTime() - 1, madrid));
+		TimeZone utc = TimeZone.getTimeZone("UTC");
+		assertEquals(day - 1, DayHelper.toEpochDay(DayHelper.toDate(day, madrid), utc));
+	}
+
+	public void testFullWeeks() throws DateHelperException{
+		ReportPlan plan = ReportPlanner.plan(date(2013, 9, 30), date(2013, 10, 13), TODAY);
+		List<ReportRequest> requests = plan.getRequests();
+		assertEquals(2, requests.size());
+		assertRequest(Constants.DATE_TYPE_WEEDLY, "20131006", requests.get(0));
+		assertRequest(Constants.DATE_TYPE_WEEDLY, "20131013", requests.get(1));
+		assertFalse(plan.isApproximated());
+	}
+
+	public void testWeekAndDays() throws DateHelperException{
+		ReportPlan plan = ReportPlanner.plan(date(2013, 10, 5), date(2013, 10, 13), TODAY);
+		List<ReportRequest> requests = plan.getRequests();
+		assertEquals(3, requests.size());
+		assertRequest(Constants.DATE_TYPE_DAILY, "20131005", requests.get(0));
+		assertRequest(Constants.DATE_TYPE_DAILY, "20131006", requests.get(1));
+		assertRequest(Constants.DATE_TYPE_WEEDLY, "20131013", requests.get(2));
+		assertFalse(plan.isApproximated());
+	}
+
+	public void testEndMovedToYesterday() throws DateHelperException{
+		ReportPlan plan = ReportPlanner.plan(date(2013, 10, 14), date(2013, 10, 20), TODAY);
+		List<ReportRequest> requests = plan.getRequests();
+		assertEquals(2, requests.size());
+		assertRequest(Constants.DATE_TYPE_DAILY, "20131014", requests.get(0));
+		assertRequest(Constants.DATE_TYPE_DAILY, "20131015", requests.get(1));
+	}
+
+	public void testFullYear() throws DateHelperException{
+		ReportPlan plan = ReportPlanner.plan(date(2012, 1, 1), date(2012, 12, 31), TODAY);
+		assertEquals(1, plan.size());
+		assertRequest(Constants.DATE_TYPE_YEARLY, "20120101", plan.getRequests().get(0));
+		assertFalse(plan.isApproximated());
+	}
+
+	public void testMonths() throws DateHelperException{
+		ReportPlan plan = ReportPlanner.plan(date(2013, 1, 1), date(2013, 3, 31), TODAY);
+		List<ReportRequest> requests = plan.getRequests();
+		assertEquals(3, requests.size());
+		assertRequest(Constants.DATE_TYPE_MONTHLY, "20130101", requests.get(0));
+		assertRequest(Constants.DATE_TYPE_MONTHLY, "20130201", requests.get(1));
+		assertRequest(Constants.DATE_TYPE_MONTHLY, "20130301", requests.get(2));
+	}
+
+	public void testApproximatedMonth() throws DateHelperException{
+		ReportPlan plan = ReportPlanner.plan(date(2013, 3, 5), date(2013, 3, 31), TODAY);
+		assertEquals(1, plan.size());
+		assertRequest(Constants.DATE_TYPE_MONTHLY, "20130301", plan.getRequests().get(0));
+		assertTrue(plan.isApproximated());
+	}
+
+	public void testIncorrectDates(){
+		try {
+			ReportPlanner.plan(date(2013, 10, 10), date(2013, 10, 1), TODAY);
+			fail();
+		} catch (DateHelperException e) {
+			// expected
+		}
+	}
+
+}
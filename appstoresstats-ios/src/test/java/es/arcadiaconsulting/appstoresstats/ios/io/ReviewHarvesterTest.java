@@ -0,0 +1,90 @@
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import es.arcadiaconsulting.appstoresstats.common.Rating;
+import es.arcadiaconsulting.appstoresstats.common.TokenBucket;
+
+public class ReviewHarvesterTest extends TestCase{
+
+	private ExecutorService executor;
+
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+	@Override
+	protected void setUp(){
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@Override
+	protected void tearDown(){
+		executor.shutdownNow();
+	}
+
+	private static String feed(String... ids){
+		StringBuilder feed = new StringBuilder("<feed xmlns:im=\"http://itunes.apple.com/rss\" xmlns=\"http://www.w3.org/2005/Atom\">"
+				+ "<entry><id>https://itunes.apple.com/app/id1</id><title>App</title></entry>");
+		for (String id : ids) {
+			feed.append("<entry><id>").append(id).append("</id><title>t").append(id)
+					.append("</title><im:rating>4</im:rating><updated>2013-06-18T03:48:00-07:00</updated></entry>");
+		}
+		return feed.append("</feed>").toString();
+	}
+
+	private ReviewHarvester createHarvester(List<String> countries){
+		return new ReviewHarvester(countries, new TokenBucket(1000, 10), executor) {
+			@Override
+			protected byte[] fetchPage(String appleId, String country, int page) throws IOException {
+				requests.add(country + page);
+				String feed;
+				if ("xx".equals(country)) {
+					throw new IOException("no storefront");
+				} else if ("es".equals(country) && page == 0) {
+					feed = feed("1", "2");
+				} else if ("es".equals(country) && page == 1) {
+					// moved down by a new review
+					feed = feed("2", "3");
+				} else if ("us".equals(country) && page == 0) {
+					feed = feed("4", "5");
+				} else {
+					feed = feed();
+				}
+				return feed.getBytes("UTF-8");
+			}
+		};
+	}
+
+	public void testHarvestCountries() throws Exception{
+		final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+		int delivered = createHarvester(Arrays.asList("es", "us", "xx")).harvest("1",
+				new ReviewHarvester.RatingSink() {
+					public void rating(String country, Rating rating) {
+						received.add(country + ":" + rating.getId());
+					}
+				});
+
+		assertEquals(5, delivered);
+		Collections.sort(received);
+		assertEquals(Arrays.asList("es:1", "es:2", "es:3", "us:4", "us:5"), received);
+		// each country stops at its first empty page
+		assertTrue(requests.contains("es2"));
+		assertFalse(requests.contains("es3"));
+		assertTrue(requests.contains("us1"));
+		assertFalse(requests.contains("us2"));
+	}
+
+	public void testHarvestList() throws Exception{
+		List<Rating> ratings = createHarvester(Arrays.asList("us")).harvest("1");
+		assertEquals(2, ratings.size());
+		assertEquals("t4", ratings.get(0).getOpinion());
+		assertEquals(4, ratings.get(0).getRate());
+	}
+}
@@ -0,0 +1,73 @@
+package es.arcadiaconsulting.appstoresstats.ios.io;
+
+import junit.framework.TestCase;
+
+import es.arcadiaconsulting.appstoresstats.ios.model.Constants;
+
+public class VendorThrottleTest extends TestCase{
+
+	public void testRateAdapts(){
+		VendorThrottle throttle = new VendorThrottle(1);
+		throttle.onThrottled();
+		assertEquals(0.5, throttle.getRate(), 0.001);
+		throttle.onSuccess();
+		assertEquals(0.5 + Constants.AUTOINGESTION_RATE_INCREASE, throttle.getRate(), 0.001);
+		for (int i = 0; i < 20; i++) {
+			throttle.onThrottled();
+		}
+		assertEquals(Constants.AUTOINGESTION_MIN_REQUESTS_PER_SECOND, throttle.getRate(), 0.001);
+		for (int i = 0; i < 100; i++) {
+			throttle.onSuccess();
+		}
+		assertEquals(Constants.AUTOINGESTION_MAX_REQUESTS_PER_SECOND, throttle.getRate(), 0.001);
+	}
+
+	public void testRetryBudget(){
+		VendorThrottle throttle = new VendorThrottle(1);
+		for (int i = 0; i < Constants.AUTOINGESTION_RETRY_RESERVE; i++) {
+			assertTrue(throttle.tryRetry());
+		}
+		assertFalse(throttle.tryRetry());
+		// every request earns part of a retry
+		int requests = (int) Math.ceil(1 / Constants.AUTOINGESTION_RETRY_RATIO);
+		for (int i = 0; i < requests; i++) {
+			throttle.onFailure();
+		}
+		assertTrue(throttle.tryRetry());
+		assertFalse(throttle.tryRetry());
+	}
+
+	public void testBackoff(){
+		for (int attempt = 1; attempt < 40; attempt++) {
+			long limit = Math.min(Constants.AUTOINGESTION_MAX_BACKOFF_MILLIS,
+					Constants.AUTOINGESTION_BACKOFF_MILLIS << Math.min(attempt - 1, 20));
+			long backoff = VendorThrottle.backoff(attempt);
+			assertTrue(backoff >= limit / 2);
+			assertTrue(backoff <= limit);
+		}
+	}
+
+	public void testClassifyErrors(){
+		// not generated yet, the vendor keeps its pace
+		AutoingestionException notReady = AutoingestionException.fromErrorMessage(
+				"The report you requested is not available at this time.  Please try again in a few minutes.");
+		assertTrue(notReady.isRetryable());
+		assertFalse(notReady.isThrottled());
+		AutoingestionException busy = AutoingestionException.fromErrorMessage(
+				"Too many requests, please try again later.");
+		assertTrue(busy.isRetryable());
+		assertTrue(busy.isThrottled());
+
+		AutoingestionException login = AutoingestionException.fromErrorMessage(
+				"Please enter a valid user name and password.");
+		assertFalse(login.isRetryable());
+		AutoingestionException missing = AutoingestionException.fromErrorMessage(
+				"There is no report available to download, for the selected period");
+		assertFalse(missing.isRetryable());
+
+		assertTrue(AutoingestionException.fromStatus(429, "Too Many Requests").isThrottled());
+		assertTrue(AutoingestionException.fromStatus(502, "Bad Gateway").isRetryable());
+		assertFalse(AutoingestionException.fromStatus(502, "Bad Gateway").isThrottled());
+		assertFalse(AutoingestionException.fromStatus(404, "Not Found").isRetryable());
+	}
+}
@@ -0,0 +1,89 @@
+package es.arcadiaconsulting.appstoresstats.ios.model;
+
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Iterator;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class SalesReportBatchTest extends TestCase{
+
+	private static final Date DAY = new GregorianCalendar(2013, 9, 13).getTime();
+
+	private static SalesReportBatch.Builder addRow(SalesReportBatch.Builder builder, String sku, String productType, int units, String country, String appleId){
+		return builder.addRow("APPLE", "US", sku, "Arcadia", "Fiestas", "1.0", productType, units, 0,
+				15991, 15991, "EUR", country, "EUR", appleId, 0f, null, null, null, null);
+	}
+
+	private static SalesReportBatch buildBatch(){
+		SalesReportBatch.Builder builder = new SalesReportBatch.Builder(2);
+		addRow(builder, "SKU1", "1F", 10, "ES", "1001");
+		addRow(builder, "SKU2", "1F", 4, "ES", "1002");
+		addRow(builder, "SKU1", "7", 50, "ES", "1001");
+		addRow(builder, "SKU1", "1F", 3, "FR", "1001");
+		addRow(builder, "SKU1", "1F", 2, "ES", "1001");
+		return builder.build();
+	}
+
+	public void testUnitsByCountry(){
+		SalesReportBatch batch = buildBatch();
+		assertEquals(5, batch.size());
+		Map<String, Integer> units = batch.unitsByCountry("SKU1", true);
+		assertEquals(2, units.size());
+		Iterator<String> countries = units.keySet().iterator();
+		assertEquals("ES", countries.next());
+		assertEquals("FR", countries.next());
+		assertEquals(Integer.valueOf(12), units.get("ES"));
+		assertEquals(Integer.valueOf(3), units.get("FR"));
+		assertEquals(Integer.valueOf(62), batch.unitsByCountry("SKU1", false).get("ES"));
+		assertTrue(batch.unitsByCountry("SKU3", true).isEmpty());
+	}
+
+	public void testTotalUnits(){
+		SalesReportBatch batch = buildBatch();
+		assertEquals(15, batch.totalUnits("SKU1", true));
+		assertEquals(65, batch.totalUnits("SKU1", false));
+		assertEquals(4, batch.totalUnits("SKU2", true));
+		assertTrue(batch.isUpdate(2));
+	}
+
+	public void testIndexes(){
+		SalesReportBatch batch = buildBatch();
+		assertEquals("1002", batch.getAppleIdentifierOfSku("SKU2"));
+		assertNull(batch.getAppleIdentifierOfSku("SKU3"));
+		int[] rows = batch.getRowsOfAppleIdentifier("1001");
+		assertEquals(4, rows.length);
+		assertEquals(0, rows[0]);
+		assertEquals(4, rows[3]);
+	}
+
+	public void testBeanRoundTrip(){
+		AutoingestionBean bean = new AutoingestionBean();
+		bean.setSku("SKU1");
+		bean.setProductTypeIdentifier("1F");
+		bean.setCountryCode("ES");
+		bean.setAppleIdentifier("1001");
+		bean.setUnits(7);
+		bean.setCustomerPrice(0.99f);
+		bean.setBeginDate(DAY);
+		SalesReportBatch batch = new SalesReportBatch.Builder().addBean(bean).build();
+		AutoingestionBean copy = batch.getBean(0);
+		assertEquals("SKU1", copy.getSku());
+		assertEquals(7, copy.getUnits());
+		assertEquals(0.99f, copy.getCustomerPrice());
+		assertEquals(DAY, copy.getBeginDate());
+		assertNull(copy.getEndDate());
+		assertNull(copy.getPromoCode());
+		assertEquals(SalesReportBatch.NO_DAY, batch.getEndDay(0));
+	}
+
+	public void testNullText(){
+		SalesReportBatch batch = addRow(new SalesReportBatch.Builder(1), "SKU1", "1F", 1, "ES", null).build();
+		assertNull(batch.getAppleIdentifier(0));
+		assertEquals("SKU1", batch.getSku(0));
+		assertEquals("ES", batch.getCountryCode(0));
+		assertNull(batch.getAppleIdentifierOfSku("SKU1"));
+	}
+
+}